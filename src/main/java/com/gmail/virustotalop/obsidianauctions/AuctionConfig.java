@@ -2,7 +2,7 @@ package com.gmail.virustotalop.obsidianauctions;
 
 import com.clubobsidian.wrappy.ConfigurationSection;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionScope;
-import com.gmail.virustotalop.obsidianauctions.util.Functions;
+import com.gmail.virustotalop.obsidianauctions.util.Money;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,7 +22,7 @@ public class AuctionConfig {
      * @return "safe money" from config
      */
     public static long getSafeMoneyFromDouble(String path, AuctionScope auctionScope) {
-        return Functions.getSafeMoney(getDouble(path, auctionScope));
+        return Money.toMinor(getDouble(path, auctionScope));
     }
 
     /**
@@ -3,51 +3,71 @@ package com.gmail.virustotalop.obsidianauctions;
 import com.clubobsidian.wrappy.Configuration;
 import com.gmail.virustotalop.obsidianauctions.area.AreaManager;
 import com.gmail.virustotalop.obsidianauctions.auction.Auction;
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionCheckpoint;
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionClock;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionParticipant;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionProhibitionManager;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionScope;
+import com.gmail.virustotalop.obsidianauctions.economy.EconomyBridge;
+import com.gmail.virustotalop.obsidianauctions.history.AuctionHistoryEntry;
+import com.gmail.virustotalop.obsidianauctions.history.AuctionHistoryStore;
 import com.gmail.virustotalop.obsidianauctions.inject.AuctionModule;
+import com.gmail.virustotalop.obsidianauctions.journal.AuctionJournal;
+import com.gmail.virustotalop.obsidianauctions.language.TranslationIndex;
+import com.gmail.virustotalop.obsidianauctions.log.AuctionLogWriter;
 import com.gmail.virustotalop.obsidianauctions.message.MessageManager;
-import com.gmail.virustotalop.obsidianauctions.util.FileLoadUtil;
+import com.gmail.virustotalop.obsidianauctions.nbt.NmsAdapters;
+import com.gmail.virustotalop.obsidianauctions.price.PriceStatistics;
+import com.gmail.virustotalop.obsidianauctions.price.PriceStats;
+import com.gmail.virustotalop.obsidianauctions.storage.CheckpointStore;
+import com.gmail.virustotalop.obsidianauctions.storage.FlatFileStorage;
+import com.gmail.virustotalop.obsidianauctions.storage.PlayerDataStore;
+import com.gmail.virustotalop.obsidianauctions.storage.PlayerSetStore;
+import com.gmail.virustotalop.obsidianauctions.storage.SqliteStorage;
+import com.gmail.virustotalop.obsidianauctions.storage.Storage;
 import com.gmail.virustotalop.obsidianauctions.util.Functions;
+import com.gmail.virustotalop.obsidianauctions.util.ItemFingerprint;
 import com.gmail.virustotalop.obsidianauctions.util.LegacyUtil;
+import com.gmail.virustotalop.obsidianauctions.util.MaterialUtil;
+import com.gmail.virustotalop.obsidianauctions.util.Money;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.permission.Permission;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.GameMode;
+import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitScheduler;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -60,26 +80,29 @@ public class ObsidianAuctions extends JavaPlugin {
     private static ObsidianAuctions instance;
 
     public static int decimalPlaces = 0;
-    public static String decimalRegex = "^[0-9]{0,13}(\\.[0-9]{0,1})?$";
-    private File auctionLog = null;
+    private AuctionLogWriter auctionLog = null;
+    private AuctionJournal journal = null;
+    private AuctionHistoryStore historyStore = null;
+    private PriceStatistics priceStatistics = null;
     private static boolean suspendAllAuctions = false;
     public static boolean isDamagedAllowed;
     public static List<AuctionParticipant> auctionParticipants = new ArrayList<>();
-    public static Map<UUID, String[]> userSavedInputArgs = new HashMap<>();
 
     // Config files info.
     public static Configuration config = null;
     public static Configuration textConfig = null;
     private static File dataFolder;
-    private static int queueTimer;
 
 
     private static int playerScopeCheckTimer;
+    private static int priceSaveTimer;
     private static final Map<UUID, String> playerScopeCache = new HashMap<>();
 
-    private static List<AuctionLot> orphanLots = new ArrayList<>();
-    private Collection<UUID> voluntarilyDisabledUsers = new HashSet<>();
-    private Collection<UUID> suspendedUsers = new HashSet<>();
+    private Storage storage;
+    private PlayerDataStore playerData;
+    private PlayerSetStore suspendedUsers;
+    private CheckpointStore checkpoints;
+    private final AuctionClock auctionClock = new AuctionClock();
 
     private MessageManager messageManager;
     private AuctionProhibitionManager prohibitionCache;
@@ -109,60 +132,33 @@ public class ObsidianAuctions extends JavaPlugin {
      * @param auctionLot AuctionLot to save.
      */
     public static void saveOrphanLot(AuctionLot auctionLot) {
-        ObsidianAuctions.orphanLots.add(auctionLot);
-        saveObject(ObsidianAuctions.orphanLots, "orphanLots.ser");
-    }
-
-    /**
-     * Saves an object to a file.
-     *
-     * @param object   object to save
-     * @param filename name of file
-     */
-    private static void saveObject(Object object, String filename) {
-        File saveFile = new File(dataFolder, filename);
-        try {
-            if(saveFile.exists()) {
-                saveFile.delete();
-            }
-            FileOutputStream file = new FileOutputStream(saveFile.getAbsolutePath());
-            OutputStream buffer = new BufferedOutputStream(file);
-            ObjectOutput output = new ObjectOutputStream(buffer);
-            try {
-                output.writeObject(object);
-            } finally {
-                output.close();
-                buffer.close(); //make sure these are closed
-                file.close(); //make sure these are closed
-            }
-        } catch(IOException ex) {
-            ex.printStackTrace();
-        }
+        ObsidianAuctions.get().playerData.addOrphanLot(auctionLot);
     }
 
     /**
      * Attempts to give lost AuctionLots back to their intended destination.
      *
      * @param player the player to check for missing items
+     * @return whether any items were waiting for the player
      */
     // Eliminate orphan lots (i.e. try to give the items to a player again).
-    public static void killOrphan(Player player) {
-        if(orphanLots != null && orphanLots.size() > 0) {
-            Iterator<AuctionLot> iter = orphanLots.iterator();
-            while(iter.hasNext()) {
-                AuctionLot lot = iter.next();
-                if(lot.getOwner().equalsIgnoreCase(player.getName())) {
-                    lot.cancelLot();
-                    iter.remove();
-                }
-            }
-            saveObject(orphanLots, "orphanLots.ser");
+    public static boolean killOrphan(Player player) {
+        PlayerDataStore playerData = ObsidianAuctions.get().playerData;
+        if(playerData == null) {
+            return false;
+        }
+        // Removed first so lots which are orphaned again while being given end up back in the store
+        List<AuctionLot> lots = playerData.removeOrphanLots(player.getUniqueId());
+        for(AuctionLot lot : lots) {
+            lot.cancelLot();
         }
+        return !lots.isEmpty();
     }
 
 
     // Vault objects
     private Economy econ = null;
+    private EconomyBridge economyBridge = null;
     private Permission perms = null;
     // private static Chat chat = null;
 
@@ -183,15 +179,6 @@ public class ObsidianAuctions extends JavaPlugin {
             dataFolder.mkdir();
         }
 
-        this.auctionLog = new File(dataFolder, "auctions.log");
-        if(!this.auctionLog.exists()) {
-            try {
-                this.auctionLog.createNewFile();
-                this.auctionLog.setWritable(true);
-            } catch(IOException e) {
-                e.printStackTrace();
-            }
-        }
         this.saveResource("config.yml", false);
         this.saveResource("language.yml", false);
 
@@ -202,7 +189,49 @@ public class ObsidianAuctions extends JavaPlugin {
 
         this.saveResource("item_languages/en-US.yml", false);
 
-        loadConfig();
+        Startup startup = new Startup(this.getLogger());
+        try {
+            this.enable(startup);
+        } finally {
+            startup.finish();
+        }
+    }
+
+    private void enable(Startup startup) {
+        startup.run("config", () -> this.loadConfig(startup.executor()));
+
+        // Independent of each other, everything they set up is used after the join below
+        String language = config.getString("language");
+        CompletableFuture<TranslationIndex> itemLanguage = startup.fork("item language", () -> {
+            NmsAdapters.load(this.getLogger());
+            return this.loadItemLanguage(language);
+        });
+        CompletableFuture<Void> logs = startup.fork("logs", () -> {
+            this.setupAuctionLog();
+            this.journal = new AuctionJournal(new File(dataFolder, "auctions.journal"), this.getLogger(),
+                    config.get("journal-auctions", Boolean.class, true));
+            this.journal.start();
+            this.historyStore = new AuctionHistoryStore(new File(dataFolder, "history"), this.getLogger(),
+                    config.get("history-segment-size", Integer.class, 50000),
+                    config.get("history-enabled", Boolean.class, true));
+            this.historyStore.start();
+        });
+        CompletableFuture<Void> prices = startup.fork("prices", () -> {
+            this.priceStatistics = new PriceStatistics(new File(dataFolder, "prices.dat"), this.getLogger(),
+                    config.get("price-ewma-alpha", Double.class, 0.2),
+                    config.get("price-sketch-compression", Integer.class, 50),
+                    config.get("price-max-fingerprints", Integer.class, 4096),
+                    config.get("price-suggested-starting-bid-percent", Integer.class, 0),
+                    config.get("price-suggested-starting-bid-min-sales", Integer.class, 5));
+            this.priceStatistics.load();
+        });
+        // Players who are already online after a reload
+        List<UUID> onlinePlayers = new ArrayList<>();
+        for(Player player : this.getServer().getOnlinePlayers()) {
+            onlinePlayers.add(player.getUniqueId());
+        }
+        CompletableFuture<Void> storage = startup.fork("storage", () -> this.loadStorage(onlinePlayers));
+        startup.join(itemLanguage, logs, prices, storage);
 
         if(Bukkit.getPluginManager().getPlugin("Vault") == null) {
             logToBukkit("plugin-disabled-no-vault", Level.SEVERE);
@@ -215,15 +244,11 @@ public class ObsidianAuctions extends JavaPlugin {
             Bukkit.getPluginManager().disablePlugin(this);
             return;
         } else {
+            this.economyBridge = new EconomyBridge(this, econ, config.get("economy-threads", Integer.class, 1),
+                    config.get("economy-balance-cache-ms", Integer.class, 5000));
             decimalPlaces = Math.max(econ.fractionalDigits(), 0);
             config.set("decimal-places", decimalPlaces);
-            if(decimalPlaces < 1) {
-                decimalRegex = "^[0-9]{1,13}$";
-            } else if(decimalPlaces == 1) {
-                decimalRegex = "^[0-9]{0,13}(\\.[0-9])?$";
-            } else {
-                decimalRegex = "^[0-9]{0,13}(\\.[0-9]{1," + decimalPlaces + "})?$";
-            }
+            Money.setDecimalPlaces(decimalPlaces);
         }
         this.setupPermissions();
 
@@ -231,19 +256,17 @@ public class ObsidianAuctions extends JavaPlugin {
             ObsidianAuctions.placeHolderApiEnabled = true;
         }
 
-        String language = config.getString("language");
-        Injector injector = this.inject(language);
-        this.registerListeners(injector);
+        startup.run("injector", () -> {
+            Injector injector = this.inject(itemLanguage.join());
+            this.registerListeners(injector);
+        });
 
         AreaManager.loadArenaListeners(this);
 
         //Load in inventory click listener
 
         BukkitScheduler bukkitScheduler = getServer().getScheduler();
-        if(queueTimer > 0) {
-            bukkitScheduler.cancelTask(queueTimer);
-        }
-        queueTimer = bukkitScheduler.scheduleSyncRepeatingTask(this, () -> AuctionScope.checkAuctionQueue(), 20L, 20L);
+        this.auctionClock.start(this, config.get("auction-clock-resolution-ticks", Integer.class, 2));
 
         long playerScopeCheckInterval = config.getLong("auctionscope-change-check-interval");
         if(playerScopeCheckTimer > 0) bukkitScheduler.cancelTask(playerScopeCheckTimer);
@@ -255,58 +278,130 @@ public class ObsidianAuctions extends JavaPlugin {
             }, playerScopeCheckInterval, playerScopeCheckInterval);
         }
 
-        File orphanLotsFile = new File(this.getDataFolder(), "orphanLots.ser");
-        File voluntarilyDisabledUsersFile = new File(this.getDataFolder(), "voluntarilyDisabledUsers.ser");
-        File suspendedUserFile = new File(this.getDataFolder(), "suspendedUsers.ser");
-        File savedUserInputsFile = new File(this.getDataFolder(), "userSavedInputArgs.ser");
-        orphanLots = FileLoadUtil.loadListAuctionLot(orphanLotsFile);
-        this.voluntarilyDisabledUsers = FileLoadUtil.loadUUIDSet(voluntarilyDisabledUsersFile);
-        this.suspendedUsers = FileLoadUtil.loadUUIDSet(suspendedUserFile);
-        userSavedInputArgs = FileLoadUtil.loadMapUUIDStringArray(savedUserInputsFile);
+        long priceSaveInterval = config.get("price-save-interval-secs", Integer.class, 300) * 20L;
+        if(priceSaveTimer > 0) bukkitScheduler.cancelTask(priceSaveTimer);
+
+        if(priceSaveInterval > 0) {
+            priceSaveTimer = bukkitScheduler.scheduleSyncRepeatingTask(this, () -> {
+                PriceStatistics statistics = this.priceStatistics;
+                if(statistics != null && statistics.isDirty()) {
+                    byte[] encoded = statistics.encode();
+                    bukkitScheduler.runTaskAsynchronously(this, () -> statistics.write(encoded));
+                }
+            }, priceSaveInterval, priceSaveInterval);
+        }
+
+        // Needs the economy
+        this.recoverInterruptedAuctions();
 
         this.messageManager.sendPlayerMessage("plugin-enabled", null, (AuctionScope) null);
+    }
+
+    /**
+     * Opens the storage and loads the stores kept in memory.
+     *
+     * @param onlinePlayers players whose records should be loaded
+     */
+    private void loadStorage(List<UUID> onlinePlayers) {
+        this.storage = this.createStorage();
+        this.playerData = this.storage.loadPlayerData();
+        for(UUID uuid : onlinePlayers) {
+            this.playerData.load(uuid);
+        }
+        this.suspendedUsers = this.storage.loadPlayerSet("suspendedUsers");
+        this.checkpoints = this.storage.loadCheckpoints();
+    }
 
+    /**
+     * Hands back the lots and reserves of auctions which were still running when the server went down.
+     * Nobody is online yet, so lots are orphaned until their owner joins. Every lot and reserve is dropped from the
+     * checkpoint as soon as it is handed back, so a failed refund is retried on the next start without repeating the others.
+     */
+    private void recoverInterruptedAuctions() {
+        for(AuctionCheckpoint interrupted : new ArrayList<>(this.checkpoints.getAll())) {
+            this.getLogger().warning("Auction " + interrupted.getAuctionId() + " by " + interrupted.getOwnerName()
+                    + " was interrupted, returning the lot and refunding " + interrupted.getReserves().size() + " bids");
+            // Only touched on the main thread
+            AuctionCheckpoint[] checkpoint = {interrupted};
+            if(interrupted.getLot() != null) {
+                this.playerData.addOrphanLot(interrupted.getLot());
+                checkpoint[0] = interrupted.withoutLot();
+            }
+            this.updateCheckpoint(checkpoint[0]);
+            for(AuctionCheckpoint.Reserve reserve : interrupted.getReserves()) {
+                this.economyBridge.deposit(reserve.getBidderName(), Money.ofMinor(reserve.getAmount())).thenAcceptAsync(success -> {
+                    if(success) {
+                        checkpoint[0] = checkpoint[0].withoutReserve(reserve);
+                        this.updateCheckpoint(checkpoint[0]);
+                    } else {
+                        this.getLogger().severe("Unable to refund " + Money.ofMinor(reserve.getAmount()) + " to " + reserve.getBidderName()
+                                + " for auction " + interrupted.getAuctionId() + ", retrying on the next start");
+                    }
+                }, this.economyBridge.sync());
+            }
+        }
     }
 
-    private <T> Collection<T> collectInstances(Class<T> superClazz, Injector injector) {
-        Collection<T> bindings = new ArrayList<>();
-        injector.getAllBindings().values().forEach(binding -> {
-            Class<?> bindingClazz = binding.getKey().getTypeLiteral().getRawType();
-            if(superClazz.isAssignableFrom(bindingClazz)) {
-                bindings.add((T) binding.getProvider().get());
+    private void updateCheckpoint(AuctionCheckpoint checkpoint) {
+        if(checkpoint.isSettled()) {
+            this.checkpoints.remove(checkpoint.getAuctionId());
+        } else {
+            this.checkpoints.put(checkpoint);
+        }
+    }
+
+    /**
+     * Creates the storage backend chosen in the config, falling back to flat files if the database can't be opened.
+     *
+     * @return the storage backend
+     */
+    private Storage createStorage() {
+        long flushDelay = config.get("state-flush-delay-ms", Integer.class, 500);
+        String type = config.get("storage-type", String.class, "flatfile");
+        if(type.equalsIgnoreCase("sqlite")) {
+            SqliteStorage sqlite = new SqliteStorage(new File(dataFolder, config.get("storage-sqlite-file", String.class, "storage.db")),
+                    this.getLogger(), flushDelay);
+            try {
+                sqlite.open();
+                return sqlite;
+            } catch(SQLException e) {
+                this.getLogger().log(Level.SEVERE, "Unable to open the SQLite storage, falling back to flat files", e);
+                sqlite.close();
             }
-        });
-        return bindings;
+        }
+        return new FlatFileStorage(dataFolder, this.getLogger(), config.get("state-compact-after-changes", Integer.class, 256), flushDelay);
     }
 
-    private Injector inject(String language) {
+    private TranslationIndex loadItemLanguage(String language) {
         File itemLanguagesFolder = new File(dataFolder, "item_languages");
-        File itemConfig = new File(itemLanguagesFolder, language + ".yml");
-        Configuration i18nItemConfig = Configuration.load(itemConfig);
+        return TranslationIndex.load(new File(itemLanguagesFolder, language + ".yml"), this.getLogger());
+    }
 
-        Injector injector = Guice.createInjector(new AuctionModule(this.adventure, i18nItemConfig));
+    private Injector inject(TranslationIndex translationIndex) {
+        Injector injector = Guice.createInjector(new AuctionModule(this.adventure, translationIndex));
         this.messageManager = injector.getInstance(MessageManager.class);
         this.prohibitionCache = injector.getInstance(AuctionProhibitionManager.class);
         return injector;
     }
 
     private void registerListeners(Injector injector) {
-        this.collectInstances(Listener.class, injector).forEach(listener -> {
+        for(Listener listener : injector.getInstance(Key.get(new TypeLiteral<Set<Listener>>() {}))) {
             this.getServer().getPluginManager().registerEvents(listener, this);
-        });
+        }
     }
 
     /**
      * Loads config.yml and language.yml configuration files.
      */
-    private void loadConfig() {
+    private void loadConfig(Executor executor) {
         File configFile = new File(dataFolder, "config.yml");
 
         File textConfigFile = new File(dataFolder, "language.yml");
 
-
+        File loadedTextConfigFile = textConfigFile;
+        CompletableFuture<Configuration> loadingTextConfig = CompletableFuture.supplyAsync(() -> Configuration.load(loadedTextConfigFile), executor);
         config = Configuration.load(configFile);
-        textConfig = Configuration.load(textConfigFile);
+        textConfig = loadingTextConfig.join();
 
         //TODO - copy defaults
         /*
@@ -365,7 +460,7 @@ public class ObsidianAuctions extends JavaPlugin {
         textConfig.save();*/
 
         // Build auction scopes.
-        AuctionScope.setupScopeList(config.getConfigurationSection("auction-scopes"), dataFolder);
+        AuctionScope.setupScopeList(config.getConfigurationSection("auction-scopes"), dataFolder, executor);
 
         //Gui queue inventory name
         ObsidianAuctions.guiQueueName = ChatColor.translateAlternateColorCodes('&', config.getString("queue-gui-name"));
@@ -391,11 +486,39 @@ public class ObsidianAuctions extends JavaPlugin {
      */
     @Override
     public void onDisable() {
+        // Finishes transactions in flight, the escrows they fill are settled right after
+        if(this.economyBridge != null) {
+            this.economyBridge.close();
+        }
         AuctionScope.cancelAllAuctions();
-        this.getServer().getScheduler().cancelTask(queueTimer);
+        this.getServer().getScheduler().cancelTask(priceSaveTimer);
+        this.auctionClock.stop(this);
+        this.economyBridge = null;
+        // Lots of cancelled auctions may have been orphaned
+        if(this.storage != null) {
+            this.storage.close();
+            this.storage = null;
+        }
         instance = null;
         this.logToBukkit("plugin-disabled", Level.INFO);
-        this.auctionLog = null;
+        if(this.auctionLog != null) {
+            this.auctionLog.close();
+            this.auctionLog = null;
+        }
+        if(this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+        if(this.historyStore != null) {
+            this.historyStore.close();
+            this.historyStore = null;
+        }
+        if(this.priceStatistics != null) {
+            if(this.priceStatistics.isDirty()) {
+                this.priceStatistics.write(this.priceStatistics.encode());
+            }
+            this.priceStatistics = null;
+        }
         if(this.adventure != null) {
             this.adventure.close();
             this.adventure = null;
@@ -427,7 +550,6 @@ public class ObsidianAuctions extends JavaPlugin {
         ) {
             if(this.removeVoluntarilyDisabled(playerUUID)) {
                 this.messageManager.sendPlayerMessage("auction-enabled", playerUUID, (AuctionScope) null);
-                saveObject(this.voluntarilyDisabledUsers, "voluntarilyDisabledUsers.ser");
             }
             return true;
         }
@@ -454,7 +576,7 @@ public class ObsidianAuctions extends JavaPlugin {
                         return true;
                     }
 
-                    loadConfig();
+                    loadConfig(Runnable::run);
                     this.messageManager.sendPlayerMessage("plugin-reloaded", playerUUID, (AuctionScope) null);
                     return true;
                 } else if(args[0].equalsIgnoreCase("resume")) {
@@ -487,8 +609,7 @@ public class ObsidianAuctions extends JavaPlugin {
                         return true;
                     }
 
-                    suspendedUsers.remove(args[1].toLowerCase());
-                    saveObject(suspendedUsers, "suspendedUsers.ser");
+                    suspendedUsers.remove(suspendUUID);
                     this.messageManager.sendPlayerMessage("unsuspension-user", suspendUUID, (AuctionScope) null);
                     this.messageManager.sendPlayerMessage("unsuspension-user-success", playerUUID, (AuctionScope) null);
 
@@ -500,11 +621,6 @@ public class ObsidianAuctions extends JavaPlugin {
                     }
                     if(args.length > 1) {
                         // Suspend a player:
-                        if(suspendedUsers.contains(args[1].toLowerCase())) {
-                            this.messageManager.sendPlayerMessage("suspension-user-fail-already-suspended", playerUUID, (AuctionScope) null);
-                            return true;
-                        }
-
                         Player playerToSuspend = getServer().getPlayer(args[1]);
 
                         if(playerToSuspend == null || !playerToSuspend.isOnline()) {
@@ -512,13 +628,17 @@ public class ObsidianAuctions extends JavaPlugin {
                             return true;
                         }
 
+                        if(suspendedUsers.contains(playerToSuspend.getUniqueId())) {
+                            this.messageManager.sendPlayerMessage("suspension-user-fail-already-suspended", playerUUID, (AuctionScope) null);
+                            return true;
+                        }
+
                         if(perms.has(playerToSuspend, "auction.admin")) {
                             this.messageManager.sendPlayerMessage("suspension-user-fail-is-admin", playerUUID, (AuctionScope) null);
                             return true;
                         }
 
                         suspendedUsers.add(playerToSuspend.getUniqueId());
-                        saveObject(suspendedUsers, "suspendedUsers.ser");
                         this.messageManager.sendPlayerMessage("suspension-user", playerToSuspend.getUniqueId(), (AuctionScope) null);
                         this.messageManager.sendPlayerMessage("suspension-user-success", playerUUID, (AuctionScope) null);
 
@@ -544,7 +664,7 @@ public class ObsidianAuctions extends JavaPlugin {
                         this.messageManager.sendPlayerMessage("suspension-global", playerUUID, (AuctionScope) null);
                         return true;
                     }
-                    if(player != null && suspendedUsers.contains(playerName.toLowerCase())) {
+                    if(player != null && suspendedUsers.contains(playerUUID)) {
                         this.messageManager.sendPlayerMessage("suspension-user", playerUUID, (AuctionScope) null);
                         return true;
                     }
@@ -609,8 +729,7 @@ public class ObsidianAuctions extends JavaPlugin {
                     String[] mergedArgs = Functions.mergeInputArgs(playerUUID, args, true);
 
                     if(mergedArgs != null) {
-                        ObsidianAuctions.userSavedInputArgs.put(playerUUID, mergedArgs);
-                        ObsidianAuctions.saveObject(ObsidianAuctions.userSavedInputArgs, "userSavedInputArgs.ser");
+                        this.playerData.putPreset(playerUUID, mergedArgs);
                         this.messageManager.sendPlayerMessage("prep-save-success", playerUUID, (AuctionScope) null);
                     }
 
@@ -695,7 +814,6 @@ public class ObsidianAuctions extends JavaPlugin {
                     if(!this.isVoluntarilyDisabled(playerUUID)) {
                         this.messageManager.sendPlayerMessage("auction-disabled", playerUUID, (AuctionScope) null);
                         this.addVoluntarilyDisabled(playerUUID);
-                        saveObject(this.voluntarilyDisabledUsers, "voluntarilyDisabledUsers.ser");
                     }
                     return true;
                 } else if(args[0].equalsIgnoreCase("info") || args[0].equalsIgnoreCase("i")) {
@@ -719,6 +837,19 @@ public class ObsidianAuctions extends JavaPlugin {
                     }
                     player.openInventory(inv);
                     return true;
+                } else if(args[0].equalsIgnoreCase("history")) {
+                    this.sendHistory(player, playerUUID, args);
+                    return true;
+                } else if(args[0].equalsIgnoreCase("price")) {
+                    this.sendPrice(player, playerUUID, args);
+                    return true;
+                } else if(args[0].equalsIgnoreCase("claim")) {
+                    if(player == null) {
+                        this.messageManager.sendPlayerMessage("auction-fail-console", null, (AuctionScope) null);
+                    } else if(!killOrphan(player)) {
+                        this.messageManager.sendPlayerMessage("mailbox-empty", playerUUID, (AuctionScope) null);
+                    }
+                    return true;
                 }
             }
             this.messageManager.sendPlayerMessage("auction-help", playerUUID, (AuctionScope) null);
@@ -727,7 +858,7 @@ public class ObsidianAuctions extends JavaPlugin {
             if(suspendAllAuctions) {
                 this.messageManager.sendPlayerMessage("suspension-global", playerUUID, (AuctionScope) null);
                 return true;
-            } else if(player != null && suspendedUsers.contains(playerName.toLowerCase())) {
+            } else if(player != null && suspendedUsers.contains(playerUUID)) {
                 this.messageManager.sendPlayerMessage("suspension-user", playerUUID, (AuctionScope) null);
                 return true;
             } else if(player == null) {
@@ -749,6 +880,174 @@ public class ObsidianAuctions extends JavaPlugin {
         return false;
     }
 
+    /**
+     * Looks up the auction history of a player or item, the result is sent once the lookup completes.
+     *
+     * @param player     the player asking or null for console
+     * @param playerUUID uuid of the player asking or null for console
+     * @param args       the command arguments, history &lt;player|item|hand|recent&gt; [days]
+     */
+    private void sendHistory(Player player, UUID playerUUID, String[] args) {
+        if(player != null && !perms.has(player, "auction.history")) {
+            this.messageManager.sendPlayerMessage("history-fail-permissions", playerUUID, (AuctionScope) null);
+            return;
+        } else if(args.length < 2) {
+            this.messageManager.sendPlayerMessage("history-usage", playerUUID, (AuctionScope) null);
+            return;
+        }
+
+        long since = 0;
+        if(args.length > 2) {
+            try {
+                since = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Integer.parseInt(args[2]));
+            } catch(NumberFormatException e) {
+                this.messageManager.sendPlayerMessage("history-usage", playerUUID, (AuctionScope) null);
+                return;
+            }
+        }
+
+        String query = args[1];
+        int limit = config.get("history-query-limit", Integer.class, 10);
+        CompletableFuture<List<AuctionHistoryEntry>> lookup;
+        if(query.equalsIgnoreCase("hand")) {
+            if(player == null) {
+                this.messageManager.sendPlayerMessage("auction-fail-console", playerUUID, (AuctionScope) null);
+                return;
+            }
+            ItemStack hand = LegacyUtil.getItemInMainHand(player);
+            if(hand == null || hand.getAmount() == 0) {
+                this.messageManager.sendPlayerMessage("auction-fail-hand-is-empty", playerUUID, (AuctionScope) null);
+                return;
+            }
+            query = MaterialUtil.formatName(hand.getType().name());
+            lookup = this.historyStore.findByFingerprint(ItemFingerprint.of(hand), since, limit);
+        } else if(query.equalsIgnoreCase("recent")) {
+            lookup = this.historyStore.findSince(since, limit);
+        } else {
+            Player target = Bukkit.getPlayerExact(query);
+            if(target != null) {
+                query = target.getName();
+                lookup = this.historyStore.findByPlayer(target.getUniqueId(), since, limit);
+            } else {
+                // Players who are offline are found by the names they traded under on the history thread, items are next
+                Material material = Material.matchMaterial(query);
+                String playerName = query;
+                long from = since;
+                lookup = this.historyStore.findByPlayerName(playerName, from, limit).thenCompose(entries -> {
+                    if(!entries.isEmpty() || material == null) {
+                        return CompletableFuture.completedFuture(entries);
+                    }
+                    return this.historyStore.findByMaterial(material.name(), from, limit);
+                });
+                lookup.thenAccept(entries -> {
+                    if(this.isEnabled()) {
+                        Bukkit.getScheduler().runTask(this, () -> {
+                            if(entries.isEmpty() && material == null) {
+                                Map<String, String> replacements = new HashMap<>();
+                                replacements.put("%history-query%", playerName);
+                                this.messageManager.sendPlayerMessage("history-fail-unknown", playerUUID, replacements);
+                            } else if(material != null && !this.isTradedBy(entries, playerName)) {
+                                this.sendHistoryEntries(playerUUID, MaterialUtil.formatName(material.name()), entries);
+                            } else {
+                                this.sendHistoryEntries(playerUUID, playerName, entries);
+                            }
+                        });
+                    }
+                });
+                return;
+            }
+        }
+
+        final String queryName = query;
+        lookup.thenAccept(entries -> {
+            if(this.isEnabled()) {
+                Bukkit.getScheduler().runTask(this, () -> this.sendHistoryEntries(playerUUID, queryName, entries));
+            }
+        });
+    }
+
+    private boolean isTradedBy(List<AuctionHistoryEntry> entries, String playerName) {
+        return !entries.isEmpty() && (playerName.equalsIgnoreCase(entries.get(0).getSellerName())
+                || playerName.equalsIgnoreCase(entries.get(0).getWinnerName()));
+    }
+
+    private void sendHistoryEntries(UUID playerUUID, String query, List<AuctionHistoryEntry> entries) {
+        Map<String, String> replacements = new HashMap<>();
+        replacements.put("%history-query%", query);
+        if(entries.isEmpty()) {
+            this.messageManager.sendPlayerMessage("history-empty", playerUUID, replacements);
+            return;
+        }
+        this.messageManager.sendPlayerMessage("history-header", playerUUID, replacements);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for(AuctionHistoryEntry entry : entries) {
+            replacements.put("%history-date%", dateFormat.format(new Date(entry.getEndTime())));
+            replacements.put("%history-seller%", entry.getSellerName());
+            replacements.put("%history-winner%", entry.isSold() ? entry.getWinnerName() : "");
+            replacements.put("%history-quantity%", Integer.toString(entry.getQuantity()));
+            replacements.put("%history-item%", MaterialUtil.formatName(entry.getMaterial()));
+            replacements.put("%history-price%", Functions.formatAmount(entry.getWinningBid()));
+            replacements.put("%history-scope%", entry.getScopeId() == null ? "" : entry.getScopeId());
+            this.messageManager.sendPlayerMessage(entry.isSold() ? "history-entry-sold" : "history-entry-unsold", playerUUID, replacements);
+        }
+    }
+
+    /**
+     * Sends the sale statistics of an item.
+     *
+     * @param player     the player asking or null for console
+     * @param playerUUID uuid of the player asking or null for console
+     * @param args       the command arguments, price &lt;item|hand&gt;
+     */
+    private void sendPrice(Player player, UUID playerUUID, String[] args) {
+        if(player != null && !perms.has(player, "auction.start")) {
+            this.messageManager.sendPlayerMessage("auction-fail-permissions", playerUUID, (AuctionScope) null);
+            return;
+        } else if(args.length < 2) {
+            this.messageManager.sendPlayerMessage("price-usage", playerUUID, (AuctionScope) null);
+            return;
+        }
+
+        String query = args[1];
+        Map<String, String> replacements = new HashMap<>();
+        PriceStats stats;
+        if(query.equalsIgnoreCase("hand")) {
+            if(player == null) {
+                this.messageManager.sendPlayerMessage("auction-fail-console", playerUUID, (AuctionScope) null);
+                return;
+            }
+            ItemStack hand = LegacyUtil.getItemInMainHand(player);
+            if(hand == null || hand.getAmount() == 0) {
+                this.messageManager.sendPlayerMessage("auction-fail-hand-is-empty", playerUUID, (AuctionScope) null);
+                return;
+            }
+            query = MaterialUtil.formatName(hand.getType().name());
+            stats = this.priceStatistics.getStats(hand.getType().name(), ItemFingerprint.of(hand), 1);
+        } else {
+            Material material = Material.matchMaterial(query);
+            if(material == null) {
+                replacements.put("%price-item%", query);
+                this.messageManager.sendPlayerMessage("price-fail-unknown", playerUUID, replacements);
+                return;
+            }
+            query = MaterialUtil.formatName(material.name());
+            stats = this.priceStatistics.getMaterialStats(material.name());
+        }
+
+        replacements.put("%price-item%", query);
+        if(stats == null || stats.getCount() == 0) {
+            this.messageManager.sendPlayerMessage("price-none", playerUUID, replacements);
+            return;
+        }
+        replacements.put("%price-count%", Long.toString(stats.getCount()));
+        replacements.put("%price-mean%", Functions.formatAmount(Math.round(stats.getMean())));
+        replacements.put("%price-recent%", Functions.formatAmount(Math.round(stats.getRecent())));
+        replacements.put("%price-low%", Functions.formatAmount(Math.round(stats.getQuantile(0.25))));
+        replacements.put("%price-median%", Functions.formatAmount(Math.round(stats.getQuantile(0.5))));
+        replacements.put("%price-high%", Functions.formatAmount(Math.round(stats.getQuantile(0.75))));
+        this.messageManager.sendPlayerMessage("price-info", playerUUID, replacements);
+    }
+
     /**
      * Log data to the floAuction log file if logging is enabled.
      *
@@ -757,24 +1056,43 @@ public class ObsidianAuctions extends JavaPlugin {
      * @param auctionScope the auction scope being referenced if any
      */
     public void log(String playerName, String message, AuctionScope auctionScope) {
-        if(AuctionConfig.getBoolean("log-auctions", auctionScope)) {
-            try(BufferedWriter out = new BufferedWriter(new FileWriter(this.auctionLog, true))) {
-                String scopeId = "NOSCOPE";
-                if(auctionScope != null) {
-                    scopeId = auctionScope.getScopeId();
-                }
-                String dateStr = (new Date()).toString();
-                String strippedMessage = ChatColor.stripColor(message);
-                String log = dateStr + " (" + playerName + ", " + scopeId + "): " + strippedMessage;
-                out.write(log);
-                out.newLine();
-                out.flush();
-            } catch(IOException e) {
-                e.printStackTrace();
-            }
+        if(this.auctionLog != null && AuctionConfig.getBoolean("log-auctions", auctionScope)) {
+            this.auctionLog.log(playerName, this.getScopeId(auctionScope), message);
         }
     }
 
+    /**
+     * Log several lines at once to the floAuction log file if logging is enabled.
+     *
+     * @param playerName   who is initiating the logged event
+     * @param messages     messages to save
+     * @param auctionScope the auction scope being referenced if any
+     */
+    public void log(String playerName, List<String> messages, AuctionScope auctionScope) {
+        if(this.auctionLog != null && AuctionConfig.getBoolean("log-auctions", auctionScope)) {
+            this.auctionLog.log(playerName, this.getScopeId(auctionScope), messages);
+        }
+    }
+
+    private String getScopeId(AuctionScope auctionScope) {
+        return auctionScope == null ? "NOSCOPE" : auctionScope.getScopeId();
+    }
+
+    /**
+     * Starts the background writer for auctions.log.
+     */
+    private void setupAuctionLog() {
+        int bufferSize = config.get("log-buffer-size", Integer.class, 8192);
+        int flushInterval = config.get("log-flush-interval-ms", Integer.class, 1000);
+        int flushBatchSize = config.get("log-flush-batch-size", Integer.class, 256);
+        int maxFileSize = config.get("log-max-file-size-kb", Integer.class, 0);
+        boolean rotateDaily = config.get("log-rotate-daily", Boolean.class, false);
+        boolean compressRotated = config.get("log-compress-rotated", Boolean.class, false);
+        this.auctionLog = new AuctionLogWriter(new File(dataFolder, "auctions.log"), this.getLogger(),
+                bufferSize, flushInterval, flushBatchSize, maxFileSize * 1024L, rotateDaily, compressRotated);
+        this.auctionLog.start();
+    }
+
     /**
      * Setup Vault economy.
      *
@@ -834,15 +1152,19 @@ public class ObsidianAuctions extends JavaPlugin {
     }
 
     public boolean isVoluntarilyDisabled(UUID uuid) {
-        return this.voluntarilyDisabledUsers.contains(uuid);
+        return this.playerData.isAuctionsDisabled(uuid);
     }
 
     public boolean addVoluntarilyDisabled(UUID uuid) {
-        return this.voluntarilyDisabledUsers.add(uuid);
+        return this.playerData.setAuctionsDisabled(uuid, true);
     }
 
     public boolean removeVoluntarilyDisabled(UUID uuid) {
-        return this.voluntarilyDisabledUsers.remove(uuid);
+        return this.playerData.setAuctionsDisabled(uuid, false);
+    }
+
+    public PlayerDataStore getPlayerData() {
+        return this.playerData;
     }
 
     public Map<UUID, String> getPlayerScopeCache() {
@@ -867,6 +1189,26 @@ public class ObsidianAuctions extends JavaPlugin {
         return this.messageManager;
     }
 
+    public AuctionJournal getJournal() {
+        return this.journal;
+    }
+
+    public AuctionHistoryStore getHistoryStore() {
+        return this.historyStore;
+    }
+
+    public PriceStatistics getPriceStatistics() {
+        return this.priceStatistics;
+    }
+
+    public CheckpointStore getCheckpoints() {
+        return this.checkpoints;
+    }
+
+    public AuctionClock getAuctionClock() {
+        return this.auctionClock;
+    }
+
     public AuctionProhibitionManager getProhibitionManager() {
         return this.prohibitionCache;
     }
@@ -875,6 +1217,10 @@ public class ObsidianAuctions extends JavaPlugin {
         return this.econ;
     }
 
+    public EconomyBridge getEconomyBridge() {
+        return this.economyBridge;
+    }
+
     public Permission getPermission() {
         return this.perms;
     }
@@ -0,0 +1,102 @@
+package com.gmail.virustotalop.obsidianauctions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Runs independent parts of the plugin startup on a small fork join pool and reports how long every phase took.
+ */
+final class Startup {
+
+    private final Logger logger;
+    private final ForkJoinPool pool;
+    private final long startTime = System.nanoTime();
+    // Phase name and milliseconds, guarded by this
+    private final List<String> timings = new ArrayList<>();
+
+    Startup(Logger logger) {
+        this.logger = logger;
+        this.pool = new ForkJoinPool(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    Executor executor() {
+        return this.pool;
+    }
+
+    /**
+     * Starts a phase on the pool.
+     *
+     * @param phase name of the phase for the timings
+     * @param task  the work
+     * @return the running phase, join it before using anything it sets up
+     */
+    CompletableFuture<Void> fork(String phase, Runnable task) {
+        return this.fork(phase, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    <T> CompletableFuture<T> fork(String phase, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> this.time(phase, task), this.pool);
+    }
+
+    /**
+     * Runs a phase on the calling thread.
+     *
+     * @param phase name of the phase for the timings
+     * @param task  the work
+     */
+    void run(String phase, Runnable task) {
+        this.time(phase, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits for phases, rethrowing the first failure.
+     *
+     * @param phases the phases
+     */
+    void join(CompletableFuture<?>... phases) {
+        try {
+            CompletableFuture.allOf(phases).join();
+        } catch(CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Logs the timings and stops the pool.
+     */
+    void finish() {
+        this.pool.shutdown();
+        long total = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startTime);
+        synchronized(this) {
+            this.logger.info("Enabled in " + total + " ms (" + String.join(", ", this.timings) + ")");
+        }
+    }
+
+    private <T> T time(String phase, Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            synchronized(this) {
+                this.timings.add(phase + " " + millis + " ms");
+            }
+        }
+    }
+}
@@ -3,13 +3,16 @@ package com.gmail.virustotalop.obsidianauctions.auction;
 import com.gmail.virustotalop.obsidianauctions.AuctionConfig;
 import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
 import com.gmail.virustotalop.obsidianauctions.area.AreaManager;
+import com.gmail.virustotalop.obsidianauctions.economy.EconomyBridge;
 import com.gmail.virustotalop.obsidianauctions.event.AuctionBidEvent;
 import com.gmail.virustotalop.obsidianauctions.event.AuctionEndEvent;
 import com.gmail.virustotalop.obsidianauctions.event.AuctionStartEvent;
+import com.gmail.virustotalop.obsidianauctions.history.AuctionHistoryEntry;
 import com.gmail.virustotalop.obsidianauctions.message.MessageManager;
 import com.gmail.virustotalop.obsidianauctions.util.Functions;
 import com.gmail.virustotalop.obsidianauctions.util.Items;
 import com.gmail.virustotalop.obsidianauctions.util.LegacyUtil;
+import com.gmail.virustotalop.obsidianauctions.util.Money;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
@@ -18,10 +21,12 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.logging.Level;
 
 /**
  * Main auction class.
@@ -31,38 +36,61 @@ import java.util.UUID;
 public class Auction {
 
     protected ObsidianAuctions plugin;
+    private final UUID auctionId = UUID.randomUUID();
     private final String[] args;
     private final UUID ownerUUID;
     private String ownerName;
     private final AuctionScope scope;
 
-    public double extractedPreTax = 0;
-    public double extractedPostTax = 0;
+    // Taxes in floAuction's proprietary "safe money"
+    public long extractedPreTax = 0;
+    public long extractedPostTax = 0;
 
     private long startingBid = 0;
     private long minBidIncrement = 0;
     private long buyNow = 0;
     private int quantity = 0;
     private int time = 0;
-    private boolean active = false;
+    private AuctionPhase phase = AuctionPhase.PENDING;
 
     private AuctionLot lot;
+    private final boolean suggestStartingBid;
     private AuctionBid currentBid = null;
     public ArrayList<AuctionBid> sealedBids = new ArrayList<>();
 
     public boolean sealed = false;
 
-    public long nextTickTime = 0;
-
-    // Scheduled timers:
-    private int countdown = 0;
-    private int countdownTimer = 0;
+    // When the auction ends in milliseconds, driven by the shared AuctionClock
+    private long endTime = 0;
 
     //added
     private final ItemStack guiItem;
 
+    private final EscrowLedger escrow = new EscrowLedger(this);
+    // Bids wait here while the funds of the one before are reserved
+    private final ArrayDeque<BidRequest> bidQueue = new ArrayDeque<>();
+    private boolean reservingFunds = false;
+
     public MessageManager messageManager = null;
 
+    /**
+     * Gets the id which identifies this auction in the journal.
+     *
+     * @return the auction id
+     */
+    public UUID getAuctionId() {
+        return this.auctionId;
+    }
+
+    /**
+     * Gets the funds held from the bidders of this auction.
+     *
+     * @return the escrow
+     */
+    EscrowLedger getEscrow() {
+        return this.escrow;
+    }
+
     /**
      * Gets the AuctionScope which hosts this auction.
      *
@@ -85,6 +113,7 @@ public class Auction {
         this.ownerUUID = auctionOwner.getUniqueId();
         this.ownerName = auctionOwner.getName();
         this.args = Functions.mergeInputArgs(auctionOwner.getUniqueId(), inputArgs, false);
+        this.suggestStartingBid = Functions.usesSystemDefault(auctionOwner.getUniqueId(), inputArgs, 1);
         this.plugin = plugin;
         this.scope = scope;
         this.sealed = sealed;
@@ -124,8 +153,9 @@ public class Auction {
 
     /**
      * Attempts to start this auction instance.  Returns success.
+     * If a start tax is due the auction starts once it is paid, {@link AuctionScope#abortStart(Auction)} releases the scope if it can't.
      *
-     * @return whether or not the auction start succeeded
+     * @return whether or not the auction start succeeded or waits for the start tax
      */
     public boolean start() {
         Player owner = Bukkit.getServer().getPlayer(this.ownerUUID);
@@ -136,12 +166,13 @@ public class Auction {
         }
 
         ItemStack typeStack = this.lot.getTypeStack();
-        double preAuctionTax = AuctionConfig.getDouble("auction-start-tax", this.scope);
+        long fingerprint = this.lot.getFingerprint();
+        Money preAuctionTax = Money.ofMajor(AuctionConfig.getDouble("auction-start-tax", this.scope));
 
         // Check banned items:
         List<String> bannedItems = AuctionConfig.getStringList("banned-items", this.scope);
         for(int i = 0; i < bannedItems.size(); i++) {
-            if(Items.isSameItem(typeStack, bannedItems.get(i))) {
+            if(Items.isSameItem(typeStack, fingerprint, bannedItems.get(i))) {
                 this.messageManager.sendPlayerMessage("auction-fail-banned", this.ownerUUID, this);
                 return false;
             }
@@ -150,23 +181,22 @@ public class Auction {
         Map<String, String> taxedItems = AuctionConfig.getStringStringMap("taxed-items", this.scope);
         if(taxedItems != null) {
             for(Map.Entry<String, String> entry : taxedItems.entrySet()) {
-                if(Items.isSameItem(typeStack, entry.getKey())) {
+                if(Items.isSameItem(typeStack, fingerprint, entry.getKey())) {
                     String itemTax = entry.getValue();
 
                     if(itemTax.endsWith("a")) {
                         try {
-                            preAuctionTax = Double.valueOf(itemTax.substring(0, itemTax.length() - 1));
+                            preAuctionTax = Money.ofMajor(Double.parseDouble(itemTax.substring(0, itemTax.length() - 1)));
                         } catch(Exception e) {
                             // Clearly this isn't a valid number, just forget about it.
-                            preAuctionTax = AuctionConfig.getDouble("auction-start-tax", this.scope);
+                            preAuctionTax = Money.ofMajor(AuctionConfig.getDouble("auction-start-tax", this.scope));
                         }
                     } else if(!itemTax.endsWith("%")) {
                         try {
-                            preAuctionTax = Double.valueOf(itemTax);
-                            preAuctionTax *= this.quantity;
+                            preAuctionTax = Money.ofMajor(Double.parseDouble(itemTax)).multiply(this.quantity);
                         } catch(Exception e) {
                             // Clearly this isn't a valid number, just forget about it.
-                            preAuctionTax = AuctionConfig.getDouble("auction-start-tax", this.scope);
+                            preAuctionTax = Money.ofMajor(AuctionConfig.getDouble("auction-start-tax", this.scope));
                         }
                     }
                     break;
@@ -174,27 +204,54 @@ public class Auction {
             }
         }
 
-        if(preAuctionTax > 0D) {
-            if(!ObsidianAuctions.get().getEconomy().has(this.ownerName, preAuctionTax)) {
+        if(!preAuctionTax.isPositive()) {
+            return this.takeLotAndStart(Money.ZERO);
+        }
+        EconomyBridge economy = ObsidianAuctions.get().getEconomyBridge();
+        if(!economy.canAfford(this.ownerName, preAuctionTax)) {
+            this.messageManager.sendPlayerMessage("auction-fail-start-tax", this.ownerUUID, this);
+            return false;
+        }
+        // The auction holds the scope while the economy withdraws the start tax
+        Money startTax = preAuctionTax;
+        economy.withdraw(this.ownerName, startTax).thenAcceptAsync(paid -> {
+            if(this.phase == AuctionPhase.DISPOSED) {
+                // Cancelled while waiting
+                if(paid) {
+                    economy.depositOrLog(this.ownerName, startTax, "start tax refund of auction " + this.auctionId);
+                }
+            } else if(!paid) {
                 this.messageManager.sendPlayerMessage("auction-fail-start-tax", this.ownerUUID, this);
-                return false;
+                this.scope.abortStart(this);
+            } else if(!this.takeLotAndStart(startTax)) {
+                this.scope.abortStart(this);
             }
-        }
+        }, economy.sync());
+        return true;
+    }
 
+    /**
+     * Takes the lot from the owner and starts the auction once the start tax is paid.
+     *
+     * @param preAuctionTax the start tax which was withdrawn, it is refunded if the owner lacks the items
+     * @return whether or not the auction start succeeded
+     */
+    private boolean takeLotAndStart(Money preAuctionTax) {
         if(!this.lot.addItems(this.quantity, true)) {
             this.messageManager.sendPlayerMessage("auction-fail-insufficient-supply", this.ownerUUID, this);
+            if(preAuctionTax.isPositive()) {
+                ObsidianAuctions.get().getEconomyBridge().depositOrLog(this.ownerName, preAuctionTax, "start tax refund of auction " + this.auctionId);
+            }
             return false;
         }
 
-        if(preAuctionTax > 0D) {
-            if(ObsidianAuctions.get().getEconomy().has(this.ownerName, preAuctionTax)) {
-                ObsidianAuctions.get().getEconomy().withdrawPlayer(this.ownerName, preAuctionTax);
-                this.extractedPreTax = preAuctionTax;
-                this.messageManager.sendPlayerMessage("auction-start-tax", this.ownerUUID, this);
-                String taxDestinationUser = AuctionConfig.getString("deposit-tax-to-user", scope);
-                if(!taxDestinationUser.isEmpty()) {
-                    ObsidianAuctions.get().getEconomy().depositPlayer(taxDestinationUser, preAuctionTax);
-                }
+        if(preAuctionTax.isPositive()) {
+            this.extractedPreTax = preAuctionTax.getMinorUnits();
+            ObsidianAuctions.get().getJournal().tax(this, this.ownerUUID, preAuctionTax.getMinorUnits(), 0);
+            this.messageManager.sendPlayerMessage("auction-start-tax", this.ownerUUID, this);
+            String taxDestinationUser = AuctionConfig.getString("deposit-tax-to-user", scope);
+            if(!taxDestinationUser.isEmpty()) {
+                ObsidianAuctions.get().getEconomyBridge().depositOrLog(taxDestinationUser, preAuctionTax, "start tax of auction " + this.auctionId);
             }
         }
 
@@ -203,48 +260,25 @@ public class Auction {
         }
 
         // Check to see if any other plugins have a reason...or they can forever hold their piece.
-        AuctionStartEvent auctionStartEvent = new AuctionStartEvent(owner, this);
+        AuctionStartEvent auctionStartEvent = new AuctionStartEvent(Bukkit.getServer().getPlayer(this.ownerUUID), this);
         Bukkit.getServer().getPluginManager().callEvent(auctionStartEvent);
 
         if(auctionStartEvent.isCancelled()) {
             this.messageManager.sendPlayerMessage("auction-fail-blocked-by-other-plugin", this.ownerUUID, this);
         } else {
-            this.active = true;
+            this.phase = AuctionPhase.RUNNING;
+            ObsidianAuctions.get().getJournal().start(this);
+            this.checkpoint();
             this.messageManager.broadcastAuctionMessage("auction-start", this);
 
             // Set timer:
-            final Auction thisAuction = this;
-            this.countdown = this.time;
-
-            this.countdownTimer = this.plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
-                if(thisAuction.nextTickTime > System.currentTimeMillis()) {
-                    return;
-                }
-                thisAuction.nextTickTime = thisAuction.nextTickTime + 1000;
-
-                thisAuction.countdown--;
-                if(thisAuction.countdown <= 0) {
-                    thisAuction.end();
-                    return;
-                }
-                if(!AuctionConfig.getBoolean("suppress-countdown", scope)) {
-                    if(thisAuction.countdown < 4) {
-                        messageManager.broadcastAuctionMessage("timer-countdown-notification", thisAuction);
-                        return;
-                    }
-                    if(thisAuction.time >= 20) {
-                        if(thisAuction.countdown == (thisAuction.time / 2)) {
-                            messageManager.broadcastAuctionMessage("timer-countdown-notification", thisAuction);
-                        }
-                    }
-                }
-            }, 1L, 1L);
-            this.nextTickTime = System.currentTimeMillis() + 1000;
+            this.endTime = System.currentTimeMillis() + this.time * 1000L;
+            this.scheduleDeadline(System.currentTimeMillis());
 
             info(null, true);
         }
 
-        return this.active;
+        return this.phase == AuctionPhase.RUNNING;
     }
 
     /**
@@ -267,7 +301,7 @@ public class Auction {
         if(enchantments == null || enchantments.size() == 0) {
             enchantments = Items.getStoredEnchantments(itemType);
         }
-        if(!this.active) {
+        if(this.phase == AuctionPhase.PENDING) {
             if(sender instanceof Player) {
                 this.messageManager.sendPlayerMessage("auction-info-no-auction", playerUUID, this);
             }
@@ -283,10 +317,17 @@ public class Auction {
     }
 
     /**
-     * Cancels the Auction instance and disposes of it normally.
+     * Cancels the Auction instance and disposes of it normally, an auction which did not start yet is dropped quietly.
      */
     public void cancel() {
+        if(!this.phase.isAnnounced()) {
+            if(this.phase.isDisposable()) {
+                this.dispose();
+            }
+            return;
+        }
         Bukkit.getServer().getPluginManager().callEvent(new AuctionEndEvent(this, true));
+        ObsidianAuctions.get().getJournal().cancel(this);
         this.messageManager.broadcastAuctionMessage("auction-cancel", this);
 
         if(this.lot != null) {
@@ -300,12 +341,19 @@ public class Auction {
 
     /**
      * Cancels the Auction instance redirecting all goods to an approved authority.
-     * If the authority is not approved, Auction instance will not be cancelled.
+     * If the authority is not approved, Auction instance will not be cancelled. An auction which did not start yet is dropped quietly.
      *
      * @param authority the name of a player authorized to confiscate auctions
      */
     public void confiscate(Player authority) {
+        if(!this.phase.isAnnounced()) {
+            if(this.phase.isDisposable()) {
+                this.dispose();
+            }
+            return;
+        }
         Bukkit.getServer().getPluginManager().callEvent(new AuctionEndEvent(this, true));
+        ObsidianAuctions.get().getJournal().confiscate(this, authority.getUniqueId());
         this.ownerName = authority.getName();
         this.messageManager.broadcastAuctionMessage("confiscate-success", this);
         if(this.lot != null) {
@@ -318,12 +366,19 @@ public class Auction {
     }
 
     /**
-     * Ends an auction normally sending money and goods to their earned destinations.
+     * Ends an auction normally sending money and goods to their earned destinations, an auction which did not start yet is dropped quietly.
      */
     public void end() {
+        if(!this.phase.isAnnounced()) {
+            if(this.phase.isDisposable()) {
+                this.dispose();
+            }
+            return;
+        }
         AuctionEndEvent auctionEndEvent = new AuctionEndEvent(this, false);
         Bukkit.getServer().getPluginManager().callEvent(auctionEndEvent);
         if(auctionEndEvent.isCancelled()) {
+            ObsidianAuctions.get().getJournal().cancel(this);
             this.messageManager.broadcastAuctionMessage("auction-cancel", this);
             if(this.lot != null) {
                 this.lot.cancelLot();
@@ -332,6 +387,8 @@ public class Auction {
                 this.currentBid.cancelBid();
             }
         } else {
+            ObsidianAuctions.get().getJournal().end(this);
+            this.recordHistory();
             if(this.currentBid == null || this.lot == null) {
                 this.messageManager.broadcastAuctionMessage("auction-end-nobids", this);
                 if(this.lot != null) {
@@ -350,17 +407,56 @@ public class Auction {
     }
 
     /**
-     * Disposes of the remains of a terminated auction, purging the timer, refunding sealed bid losers and removing self from host scope.
+     * Adds this auction to the auction history and price statistics, must be called before the lot is handed out.
+     */
+    private void recordHistory() {
+        ItemStack typeStack = this.getLotType();
+        if(typeStack == null) {
+            return;
+        }
+        AuctionBid winner = this.currentBid;
+        ObsidianAuctions.get().getHistoryStore().record(new AuctionHistoryEntry(this.auctionId,
+                System.currentTimeMillis(), this.scope.getScopeId(), this.ownerUUID, this.ownerName,
+                winner == null ? null : winner.getBidderUUID(), winner == null ? null : winner.getBidderName(),
+                typeStack.getType().name(), this.getLotFingerprint(), this.getLotQuantity(),
+                winner == null ? 0 : winner.getBidAmount()));
+        if(winner != null) {
+            ObsidianAuctions.get().getPriceStatistics().record(typeStack.getType().name(), this.getLotFingerprint(),
+                    winner.getBidAmount(), this.getLotQuantity());
+        }
+    }
+
+    /**
+     * Disposes of the remains of a terminated auction, purging the timer, settling the escrow and removing self from host scope.
      */
     private void dispose() {
-        this.plugin.getServer().getScheduler().cancelTask(countdownTimer);
-        this.sealed = false;
-        for(int i = 0; i < this.sealedBids.size(); i++) {
-            this.sealedBids.get(i).cancelBid();
+        ObsidianAuctions.get().getAuctionClock().remove(this);
+        for(BidRequest request : this.bidQueue) {
+            this.messageManager.sendPlayerMessage("bid-fail-no-auction", request.bidder.getUniqueId(), this);
         }
+        this.bidQueue.clear();
+        this.sealed = false;
+        this.escrow.settle();
+        this.phase = AuctionPhase.DISPOSED;
+        ObsidianAuctions.get().getCheckpoints().remove(this.auctionId);
         this.scope.setActiveAuction(null);
     }
 
+    /**
+     * Records the lot and reserves held by this auction so they can be returned if the server goes down before it ends.
+     */
+    private void checkpoint() {
+        if(this.phase != AuctionPhase.RUNNING) {
+            return;
+        }
+        List<AuctionCheckpoint.Reserve> reserves = this.escrow.getReserves();
+        ObsidianAuctions.get().getCheckpoints().put(new AuctionCheckpoint(this.auctionId, this.scope.getScopeId(),
+                this.ownerUUID, this.ownerName, this.lot, reserves,
+                this.currentBid == null ? null : this.currentBid.getBidderUUID(),
+                this.currentBid == null ? 0 : this.currentBid.getBidAmount(),
+                this.getRemainingTime(), System.currentTimeMillis()));
+    }
+
     /**
      * Checks all auction parameters and environment factors to determine if the Auction instance can legitimately start.
      *
@@ -394,64 +490,115 @@ public class Auction {
         if(bidder == null) {
             return;
         }
-        String playerName = bidder.getName();
+        this.bidQueue.add(new BidRequest(bidder, inputArgs));
+        this.processBids();
+    }
+
+    /**
+     * Places queued bids one at a time. While the funds of a bid are reserved the next ones wait, so every bid is
+     * weighed against the outcome of the one before it and the main thread never waits for the economy.
+     */
+    private void processBids() {
+        while(!this.reservingFunds && !this.bidQueue.isEmpty()) {
+            BidRequest request = this.bidQueue.poll();
+            if(this.phase != AuctionPhase.RUNNING) {
+                this.messageManager.sendPlayerMessage("bid-fail-no-auction", request.bidder.getUniqueId(), this);
+                continue;
+            }
+            AuctionBid bid = this.prepareBid(request);
+            if(bid == null) {
+                continue;
+            }
+            this.reservingFunds = true;
+            bid.reserveBidFunds().thenAccept(reserved -> {
+                this.reservingFunds = false;
+                if(this.phase == AuctionPhase.DISPOSED) {
+                    // Ended while the funds were reserved, the escrow hands them back
+                    this.messageManager.sendPlayerMessage("bid-fail-no-auction", bid.getBidderUUID(), this);
+                } else if(!reserved) {
+                    this.failBid(bid, bid.getError());
+                } else {
+                    this.placeBid(request, bid);
+                    // Every outcome may have moved reserves around
+                    this.checkpoint();
+                }
+                this.processBids();
+            }).exceptionally(e -> {
+                this.reservingFunds = false;
+                this.plugin.getLogger().log(Level.SEVERE, "Unable to place bid of " + bid.getBidderName() + " on auction " + this.auctionId, e);
+                this.processBids();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Checks a bid before its funds are reserved.
+     *
+     * @param request the queued bid
+     * @return the bid or null if it was refused
+     */
+    private AuctionBid prepareBid(BidRequest request) {
+        Player bidder = request.bidder;
+        String[] inputArgs = request.args;
         UUID playerUUID = bidder.getUniqueId();
 
         if(AreaManager.isInArena(bidder)) {
             this.messageManager.sendPlayerMessage("bid-fail-arena", playerUUID, this);
-            return;
+            return null;
         }
 
         // BuyNow
         if(AuctionConfig.getBoolean("allow-buynow", scope) && inputArgs.length > 0) {
             if(inputArgs[0].equalsIgnoreCase("buy")) {
-
                 if(this.buyNow == 0 || (this.currentBid != null && currentBid.getBidAmount() >= this.buyNow)) {
                     this.messageManager.sendPlayerMessage("bid-fail-buynow-expired", playerUUID, this);
-                } else {
-                    inputArgs[0] = Double.toString(Functions.getUnsafeMoney(this.buyNow));
-                    if(inputArgs[0].endsWith(".0")) {
-                        inputArgs[0] = inputArgs[0].substring(0, inputArgs[0].length() - 2);
-                    }
-                    AuctionBid bid = new AuctionBid(this, bidder, inputArgs);
-                    if(bid.getError() != null) {
-                        failBid(bid, bid.getError());
-                        return;
-                    } else {
-                        // raisOwnBid does nothing if it's not the current bidder.
-                        if(this.currentBid != null) {
-                            bid.raiseOwnBid(this.currentBid);
-                        }
-
-                        // Let other plugins figure out any reasons why this buy shouldn't happen.
-                        AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Functions.getUnsafeMoney(bid.getBidAmount()), Functions.getUnsafeMoney(bid.getMaxBidAmount()), true);
-                        Bukkit.getServer().getPluginManager().callEvent(auctionBidEvent);
-                        if(auctionBidEvent.isCancelled()) {
-                            this.failBid(bid, "bid-fail-blocked-by-other-plugin");
-                        } else {
-                            this.setNewBid(bid, null);
-                            this.end();
-                        }
-                    }
+                    return null;
                 }
-                return;
+                inputArgs[0] = Money.appendTo(new StringBuilder(), this.buyNow).toString();
+                request.buyNow = true;
             }
         }
 
-        // Normal bid
         AuctionBid bid = new AuctionBid(this, bidder, inputArgs);
         if(bid.getError() != null) {
             this.failBid(bid, bid.getError());
+            return null;
+        }
+        return bid;
+    }
+
+    private void placeBid(BidRequest request, AuctionBid bid) {
+        Player bidder = request.bidder;
+
+        // BuyNow
+        if(request.buyNow) {
+            // raisOwnBid does nothing if it's not the current bidder.
+            if(this.currentBid != null) {
+                bid.raiseOwnBid(this.currentBid);
+            }
+
+            // Let other plugins figure out any reasons why this buy shouldn't happen.
+            AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Money.toMajor(bid.getBidAmount()), Money.toMajor(bid.getMaxBidAmount()), true);
+            Bukkit.getServer().getPluginManager().callEvent(auctionBidEvent);
+            if(auctionBidEvent.isCancelled()) {
+                this.failBid(bid, "bid-fail-blocked-by-other-plugin");
+            } else {
+                this.setNewBid(bid, null);
+                ObsidianAuctions.get().getJournal().buyNow(this, bid);
+                this.end();
+            }
             return;
         }
 
+        // Normal bid
         if(this.currentBid == null) {
             if(bid.getBidAmount() < getStartingBid()) {
                 this.failBid(bid, "bid-fail-under-starting-bid");
                 return;
             }
             // Let other plugins figure out any reasons why this buy shouldn't happen.
-            AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Functions.getUnsafeMoney(bid.getBidAmount()), Functions.getUnsafeMoney(bid.getMaxBidAmount()), true);
+            AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Money.toMajor(bid.getBidAmount()), Money.toMajor(bid.getMaxBidAmount()), true);
             Bukkit.getServer().getPluginManager().callEvent(auctionBidEvent);
             if(auctionBidEvent.isCancelled()) {
                 failBid(bid, "bid-fail-blocked-by-other-plugin");
@@ -466,7 +613,7 @@ public class Auction {
         if(this.currentBid.getBidderName().equals(bidder.getName())) {
             if(bid.raiseOwnBid(this.currentBid)) {
                 // Let other plugins figure out any reasons why this buy shouldn't happen.
-                AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Functions.getUnsafeMoney(bid.getBidAmount()), Functions.getUnsafeMoney(bid.getMaxBidAmount()), true);
+                AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Money.toMajor(bid.getBidAmount()), Money.toMajor(bid.getMaxBidAmount()), true);
                 Bukkit.getServer().getPluginManager().callEvent(auctionBidEvent);
                 if(auctionBidEvent.isCancelled()) {
                     this.failBid(bid, "bid-fail-blocked-by-other-plugin");
@@ -522,7 +669,7 @@ public class Auction {
             // Did the new bid win?
             if(winner.equals(bid)) {
                 // Let other plugins figure out any reasons why this buy shouldn't happen.
-                AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Functions.getUnsafeMoney(bid.getBidAmount()), Functions.getUnsafeMoney(bid.getMaxBidAmount()), true);
+                AuctionBidEvent auctionBidEvent = new AuctionBidEvent(bidder, this, Money.toMajor(bid.getBidAmount()), Money.toMajor(bid.getMaxBidAmount()), true);
                 Bukkit.getServer().getPluginManager().callEvent(auctionBidEvent);
                 if(auctionBidEvent.isCancelled()) {
                     failBid(bid, "bid-fail-blocked-by-other-plugin");
@@ -532,6 +679,7 @@ public class Auction {
             } else {
                 // Did the old bid have to raise the bid to stay winner?
                 if(previousBidAmount < winner.getBidAmount()) {
+                    ObsidianAuctions.get().getJournal().outbid(this, bid, winner);
                     if(!this.sealed && !AuctionConfig.getBoolean("broadcast-bid-updates", scope)) {
                         this.messageManager.broadcastAuctionMessage("bid-auto-outbid", this);
                     }
@@ -581,6 +729,10 @@ public class Auction {
             this.currentBid.cancelBid();
         }
         this.currentBid = newBid;
+        ObsidianAuctions.get().getJournal().bid(this, newBid);
+        if(prevBid != null && !newBid.getBidderUUID().equals(prevBid.getBidderUUID())) {
+            ObsidianAuctions.get().getJournal().outbid(this, prevBid, newBid);
+        }
         if(this.sealed) {
             this.messageManager.sendPlayerMessage("bid-success-sealed", newBid.getBidderUUID(), this);
         } else if(AuctionConfig.getBoolean("broadcast-bid-updates", this.scope)) {
@@ -836,14 +988,7 @@ public class Auction {
         }
 
         if(this.args.length > 1) {
-            if(this.args[1].isEmpty()) {
-                this.messageManager.sendPlayerMessage("parse-error-invalid-starting-bid", this.ownerUUID, this);
-                return false;
-            } else if(!args[1].matches(ObsidianAuctions.decimalRegex)) {
-                this.messageManager.sendPlayerMessage("parse-error-invalid-starting-bid", this.ownerUUID, this);
-                return false;
-            }
-            this.startingBid = Functions.getSafeMoney(Double.parseDouble(args[1]));
+            this.startingBid = Money.parse(this.args[1]);
         } else {
             this.startingBid = AuctionConfig.getSafeMoneyFromDouble("default-starting-bid", this.scope);
         }
@@ -851,6 +996,14 @@ public class Auction {
             this.messageManager.sendPlayerMessage("parse-error-invalid-starting-bid", this.ownerUUID, this);
             return false;
         }
+        if(this.suggestStartingBid && this.lot != null) {
+            ItemStack typeStack = this.lot.getTypeStack();
+            long suggested = ObsidianAuctions.get().getPriceStatistics().suggestStartingBid(typeStack.getType().name(),
+                    this.getLotFingerprint(), this.quantity);
+            if(suggested > 0) {
+                this.startingBid = Math.min(suggested, AuctionConfig.getSafeMoneyFromDouble("max-starting-bid", this.scope));
+            }
+        }
         return true;
     }
 
@@ -865,12 +1018,7 @@ public class Auction {
         }
 
         if(this.args.length > 2) {
-            if(!this.args[2].isEmpty() && args[2].matches(ObsidianAuctions.decimalRegex)) {
-                this.minBidIncrement = Functions.getSafeMoney(Double.parseDouble(this.args[2]));
-            } else {
-                this.messageManager.sendPlayerMessage("parse-error-invalid-bid-increment", this.ownerUUID, this);
-                return false;
-            }
+            this.minBidIncrement = Money.parse(this.args[2]);
         } else {
             this.minBidIncrement = AuctionConfig.getSafeMoneyFromDouble("default-bid-increment", this.scope);
         }
@@ -925,12 +1073,7 @@ public class Auction {
         }
 
         if(this.args.length > 4) {
-            if(!this.args[4].isEmpty() && this.args[4].matches(ObsidianAuctions.decimalRegex)) {
-                this.buyNow = Functions.getSafeMoney(Double.parseDouble(args[4]));
-            } else {
-                this.messageManager.sendPlayerMessage("parse-error-invalid-buynow", this.ownerUUID, this);
-                return false;
-            }
+            this.buyNow = Money.parse(this.args[4]);
         } else {
             this.buyNow = 0;
         }
@@ -962,6 +1105,15 @@ public class Auction {
         return this.lot.getTypeStack();
     }
 
+    /**
+     * Gets the fingerprint of the items being auctioned.
+     *
+     * @return fingerprint of the lot type, zero if there is no lot
+     */
+    public long getLotFingerprint() {
+        return this.lot == null ? 0 : this.lot.getFingerprint();
+    }
+
     /**
      * Gets quantity of the auctioned lot.
      *
@@ -1020,7 +1172,11 @@ public class Auction {
      * @return number of seconds remaining in auction
      */
     public int getRemainingTime() {
-        return this.countdown;
+        if(this.phase == AuctionPhase.PENDING) {
+            return 0;
+        }
+        long remaining = this.endTime - System.currentTimeMillis();
+        return remaining <= 0 ? 0 : (int) ((remaining + 999) / 1000);
     }
 
     /**
@@ -1039,8 +1195,52 @@ public class Auction {
      * @return
      */
     public int addToRemainingTime(int secondsToAdd) {
-        this.countdown += secondsToAdd;
-        return this.countdown;
+        this.endTime += secondsToAdd * 1000L;
+        if(this.phase == AuctionPhase.RUNNING) {
+            this.scheduleDeadline(System.currentTimeMillis());
+        }
+        return this.getRemainingTime();
+    }
+
+    /**
+     * Called by the AuctionClock once the registered deadline has passed, ends the auction or sends the countdown notification.
+     *
+     * @param now the current time in milliseconds
+     */
+    void onDeadline(long now) {
+        if(this.phase != AuctionPhase.RUNNING) {
+            return;
+        }
+        if(now >= this.endTime) {
+            this.end();
+            return;
+        }
+        if(!AuctionConfig.getBoolean("suppress-countdown", this.scope)) {
+            this.messageManager.broadcastAuctionMessage("timer-countdown-notification", this);
+        }
+        this.scheduleDeadline(now);
+    }
+
+    /**
+     * Registers the next moment this auction has something to do, the next countdown notification or its end.
+     */
+    private void scheduleDeadline(long now) {
+        long deadline = this.endTime;
+        if(!AuctionConfig.getBoolean("suppress-countdown", this.scope)) {
+            long remaining = this.endTime - now;
+            // Notifications at half time and for the last three seconds
+            if(this.time >= 20 && (this.time / 2) * 1000L < remaining) {
+                deadline = this.endTime - (this.time / 2) * 1000L;
+            } else {
+                for(int seconds = 3; seconds > 0; seconds--) {
+                    if(seconds * 1000L < remaining) {
+                        deadline = this.endTime - seconds * 1000L;
+                        break;
+                    }
+                }
+            }
+        }
+        ObsidianAuctions.get().getAuctionClock().schedule(this, deadline);
     }
 
     /**
@@ -1065,4 +1265,15 @@ public class Auction {
         return this.guiItem;
     }
 
+    private static final class BidRequest {
+
+        private final Player bidder;
+        private final String[] args;
+        private boolean buyNow = false;
+
+        private BidRequest(Player bidder, String[] args) {
+            this.bidder = bidder;
+            this.args = args;
+        }
+    }
 }
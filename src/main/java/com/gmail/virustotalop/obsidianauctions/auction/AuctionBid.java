@@ -2,14 +2,16 @@ package com.gmail.virustotalop.obsidianauctions.auction;
 
 import com.gmail.virustotalop.obsidianauctions.AuctionConfig;
 import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
-import com.gmail.virustotalop.obsidianauctions.util.Functions;
+import com.gmail.virustotalop.obsidianauctions.economy.EconomyBridge;
 import com.gmail.virustotalop.obsidianauctions.util.Items;
+import com.gmail.virustotalop.obsidianauctions.util.Money;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Structure to handle auction bids.
@@ -25,10 +27,9 @@ public class AuctionBid {
     private long maxBidAmount = 0;
     private String error;
     private final String[] args;
-    private double reserve = 0;
 
     /**
-     * Constructor that validates bidder, parses arguments and reserves maximum bid funds.
+     * Constructor that validates bidder and parses arguments, funds are reserved by {@link #reserveBidFunds()}.
      *
      * @param auction   the auction being bid upon
      * @param player    the player doing the bidding
@@ -41,80 +42,56 @@ public class AuctionBid {
         this.args = inputArgs;
         if(!validateBidder()) return;
         if(!parseArgs()) return;
-        if(!reserveBidFunds()) return;
+        if(!checkFunds()) return;
     }
 
     /**
-     * Removes funds from bidder's account and stores them in the AuctionBid instance.
+     * Makes sure the auction's escrow holds the maximum bid of this bidder, only what is not held already is withdrawn.
+     * The economy is called off the main thread, the future completes on the main thread.
      *
-     * @return true if funds are reserved, false if an issue was encountered
+     * @return future of whether funds are reserved, the error is set if not
      */
-    private boolean reserveBidFunds() {
-        long amountToReserve = 0;
-        long previousSealedReserve = 0;
-        AuctionBid currentBid = this.auction.getCurrentBid();
-
-        for(int i = 0; i < this.auction.sealedBids.size(); i++) {
-            if(this.auction.sealedBids.get(i).getBidderName().equalsIgnoreCase(this.getBidderName())) {
-                previousSealedReserve += this.auction.sealedBids.get(i).getBidAmount();
-                this.auction.sealedBids.remove(i);
-                i--;
-            }
-        }
-
-        if(currentBid != null && currentBid.getBidderName().equalsIgnoreCase(bidderName)) {
-            // Same bidder: only reserve difference.
-            if(this.maxBidAmount > currentBid.getMaxBidAmount() + previousSealedReserve) {
-                amountToReserve = this.maxBidAmount - currentBid.getMaxBidAmount() - previousSealedReserve;
+    public CompletableFuture<Boolean> reserveBidFunds() {
+        return this.auction.getEscrow().hold(this.bidderUUID, this.bidderName, this.maxBidAmount).thenApply(reserved -> {
+            if(reserved) {
+                // Earlier sealed bids of this bidder are replaced, their funds stay in escrow
+                this.auction.sealedBids.removeIf(sealedBid -> sealedBid.getBidderName().equalsIgnoreCase(this.getBidderName()));
             } else {
-                // Nothing needing reservation.
-                return true;
+                this.error = "bid-fail-cant-allocate-funds";
             }
-        } else {
-            amountToReserve = this.maxBidAmount;
-        }
-        if(Functions.withdrawPlayer(this.bidderName, amountToReserve)) {
-            this.reserve = Functions.getUnsafeMoney(amountToReserve);
-            return true;
-        } else {
-            this.error = "bid-fail-cant-allocate-funds";
-            return false;
-        }
+            return reserved;
+        });
     }
 
     /**
-     * Refunds reserve for unsealed auctions or queues reserve refund for sealed auctions.
+     * Withdraws this bid, remembering sealed bids. The funds stay in escrow until the auction is settled.
      */
     public void cancelBid() {
         if(this.auction.sealed) {
-            // Queue reserve refund.
             this.auction.sealedBids.add(this);
             AuctionParticipant.addParticipant(this.getBidderUUID(), this.auction.getScope());
-        } else {
-            // Refund reserve.
-            Functions.depositPlayer(this.bidderName, this.reserve);
-            this.reserve = 0;
         }
-
     }
 
     /**
-     * Process winning bid, gives winnings to auction owner, returns the remainder of the reserve and appropriates end of auction taxes.
+     * Process winning bid, gives winnings to auction owner and appropriates end of auction taxes. The rest of the
+     * winner's escrow is returned when the auction is settled.
      */
     public void winBid() {
-        double unsafeBidAmount = Functions.getUnsafeMoney(this.bidAmount);
+        EconomyBridge economy = ObsidianAuctions.get().getEconomyBridge();
+        Money winnings = Money.ofMinor(this.bidAmount);
 
         // Extract taxes:
-        double taxes = 0D;
         double taxPercent = AuctionConfig.getDouble("auction-end-tax-percent", this.auction.getScope());
         ItemStack typeStack = this.auction.getLotType();
+        long fingerprint = this.auction.getLotFingerprint();
 
         // TODO: Check this line for possible NULL
         for(Map.Entry<String, String> entry : AuctionConfig.getStringStringMap("taxed-items", this.auction.getScope()).entrySet()) {
-            if(Items.isSameItem(typeStack, entry.getKey())) {
+            if(Items.isSameItem(typeStack, fingerprint, entry.getKey())) {
                 if(entry.getValue().endsWith("%")) {
                     try {
-                        taxPercent = Double.valueOf(entry.getValue().substring(0, entry.getValue().length() - 1));
+                        taxPercent = Double.parseDouble(entry.getValue().substring(0, entry.getValue().length() - 1));
                     } catch(Exception e) {
 						/* Clearly this isn't a valid number, just forget about it.
 						   taxPercent = AuctionConfig.getDouble("auction-end-tax-percent", auction.getScope());
@@ -128,23 +105,22 @@ public class AuctionBid {
 
 
         if(taxPercent > 0D) {
-            taxes = unsafeBidAmount * (taxPercent / 100D);
+            Money taxes = winnings.percent(taxPercent);
 
-            this.auction.extractedPostTax = taxes;
+            this.auction.extractedPostTax = taxes.getMinorUnits();
+            ObsidianAuctions.get().getJournal().tax(this.auction, this.auction.getOwnerUUID(), taxes.getMinorUnits(), this.bidAmount);
             this.auction.messageManager.sendPlayerMessage("auction-end-tax", this.auction.getOwnerUUID(), this.auction);
-            unsafeBidAmount -= taxes;
+            winnings = winnings.subtract(taxes);
             String taxDestinationUser = AuctionConfig.getString("deposit-tax-to-user", this.auction.getScope());
             if(!taxDestinationUser.isEmpty())
-                ObsidianAuctions.get().getEconomy().depositPlayer(taxDestinationUser, taxes);
+                economy.depositOrLog(taxDestinationUser, taxes, "end tax of auction " + this.auction.getAuctionId());
         }
 
         // Apply winnings to auction owner.
-        ObsidianAuctions.get().getEconomy().depositPlayer(this.auction.getOwnerName(), unsafeBidAmount);
-
-        // Refund remaining reserve.
-        ObsidianAuctions.get().getEconomy().depositPlayer(this.bidderName, this.reserve - unsafeBidAmount - taxes);
+        economy.depositOrLog(this.auction.getOwnerName(), winnings, "winnings of auction " + this.auction.getAuctionId());
 
-        this.reserve = 0;
+        // Taken from the winner's escrow.
+        this.auction.getEscrow().spend(this.bidderUUID, this.bidAmount);
     }
 
     /**
@@ -180,6 +156,21 @@ public class AuctionBid {
         } else return parseArgMaxBid();
     }
 
+    /**
+     * Refuses bids the bidder is known to be unable to pay from the last balance the economy reported, without calling
+     * it. Whether the bid can really be paid is settled by {@link #reserveBidFunds()}.
+     *
+     * @return whether the bid may be affordable
+     */
+    private boolean checkFunds() {
+        long needed = this.maxBidAmount - this.auction.getEscrow().getHeld(this.bidderUUID);
+        if(needed > 0 && !ObsidianAuctions.get().getEconomyBridge().canAfford(this.bidderName, Money.ofMinor(needed))) {
+            this.error = "bid-fail-cant-allocate-funds";
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Prepares two bids from the same player to compete against each other.
      *
@@ -188,25 +179,13 @@ public class AuctionBid {
      */
     public boolean raiseOwnBid(AuctionBid otherBid) {
         if(this.bidderName.equalsIgnoreCase(otherBid.bidderName)) {
-            // Move reserve money here.
-            this.reserve = this.reserve + otherBid.reserve;
-            otherBid.reserve = 0;
-
-            // Maxbid only updates up.
+            // Maxbid only updates up, the escrow holds the funds of both.
             this.maxBidAmount = Math.max(this.maxBidAmount, otherBid.maxBidAmount);
             otherBid.maxBidAmount = this.maxBidAmount;
 
-            if(this.bidAmount > otherBid.bidAmount) {
-                // The bid has been raised.
-                return true;
-            } else {
-                // Put the reserve on the other bid because we're cancelling this one.
-                otherBid.reserve = this.reserve;
-                this.reserve = 0;
-                return false;
-            }
+            // Whether the bid has been raised.
+            return this.bidAmount > otherBid.bidAmount;
         } else {
-            // Don't take reserve unless it's the same person's money.
             return false;
         }
     }
@@ -233,18 +212,9 @@ public class AuctionBid {
      */
     private boolean parseArgBid() {
         if(this.args.length > 0) {
-            if(!this.args[0].isEmpty() && args[0].matches(ObsidianAuctions.decimalRegex)) {
-                this.bidAmount = Functions.getSafeMoney(Double.parseDouble(this.args[0]));
-                /*Should fix the bug that allowed over-sized payments
-                 */
-                if(this.bidAmount > ObsidianAuctions.get().getEconomy().getBalance(this.bidderName)) {
-                    this.error = "bid-fail-cant-allocate-funds";
-                    return false;
-                } else if(this.bidAmount == 0) {
-                    this.error = "parse-error-invalid-bid";
-                    return false;
-                }
-            } else {
+            // Over-sized payments are refused when the funds are reserved
+            this.bidAmount = Money.parse(this.args[0]);
+            if(this.bidAmount <= 0) {
                 this.error = "parse-error-invalid-bid";
                 return false;
             }
@@ -293,9 +263,8 @@ public class AuctionBid {
             return true;
         }
         if(this.args.length > 1) {
-            if(!args[1].isEmpty() && args[1].matches(ObsidianAuctions.decimalRegex)) {
-                this.maxBidAmount = Functions.getSafeMoney(Double.parseDouble(this.args[1]));
-            } else {
+            this.maxBidAmount = Money.parse(this.args[1]);
+            if(this.maxBidAmount < 0) {
                 this.error = "parse-error-invalid-max-bid";
                 return false;
             }
@@ -0,0 +1,176 @@
+package com.gmail.virustotalop.obsidianauctions.auction;
+
+import com.gmail.virustotalop.obsidianauctions.util.Money;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Everything a running auction holds in custody, written whenever it changes. A checkpoint which is still around
+ * when the plugin starts belongs to an auction which was interrupted by a crash, its lot and reserves are handed back.
+ */
+public class AuctionCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 3418720569347092117L;
+
+    private final UUID auctionId;
+    private final String scopeId;
+    private final UUID ownerUUID;
+    private final String ownerName;
+    private final AuctionLot lot;
+    private final ArrayList<Reserve> reserves;
+    private final UUID currentBidderUUID;
+    private final long currentBidAmount;
+    private final int remainingTime;
+    private final long time;
+
+    /**
+     * @param auctionId         id of the auction
+     * @param scopeId           id of the hosting scope
+     * @param ownerUUID         uuid of the auction owner
+     * @param ownerName         name of the auction owner
+     * @param lot               the items being auctioned
+     * @param reserves          funds withdrawn from bidders
+     * @param currentBidderUUID uuid of the current bidder or null if nobody bid
+     * @param currentBidAmount  current bid in floAuction's proprietary "safe money"
+     * @param remainingTime     seconds left
+     * @param time              time the checkpoint was taken in milliseconds
+     */
+    public AuctionCheckpoint(UUID auctionId, String scopeId, UUID ownerUUID, String ownerName, AuctionLot lot,
+                             List<Reserve> reserves, UUID currentBidderUUID, long currentBidAmount, int remainingTime, long time) {
+        this.auctionId = auctionId;
+        this.scopeId = scopeId;
+        this.ownerUUID = ownerUUID;
+        this.ownerName = ownerName;
+        this.lot = lot;
+        this.reserves = new ArrayList<>(reserves);
+        this.currentBidderUUID = currentBidderUUID;
+        this.currentBidAmount = currentBidAmount;
+        this.remainingTime = remainingTime;
+        this.time = time;
+    }
+
+    public UUID getAuctionId() {
+        return this.auctionId;
+    }
+
+    public String getScopeId() {
+        return this.scopeId;
+    }
+
+    public UUID getOwnerUUID() {
+        return this.ownerUUID;
+    }
+
+    public String getOwnerName() {
+        return this.ownerName;
+    }
+
+    public AuctionLot getLot() {
+        return this.lot;
+    }
+
+    public List<Reserve> getReserves() {
+        return Collections.unmodifiableList(this.reserves);
+    }
+
+    public UUID getCurrentBidderUUID() {
+        return this.currentBidderUUID;
+    }
+
+    public long getCurrentBidAmount() {
+        return this.currentBidAmount;
+    }
+
+    public int getRemainingTime() {
+        return this.remainingTime;
+    }
+
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * @return a copy of this checkpoint whose lot has been handed back
+     */
+    public AuctionCheckpoint withoutLot() {
+        return new AuctionCheckpoint(this.auctionId, this.scopeId, this.ownerUUID, this.ownerName, null, this.reserves,
+                this.currentBidderUUID, this.currentBidAmount, this.remainingTime, this.time);
+    }
+
+    /**
+     * @param reserve a reserve which has been refunded
+     * @return a copy of this checkpoint without the reserve
+     */
+    public AuctionCheckpoint withoutReserve(Reserve reserve) {
+        List<Reserve> remaining = new ArrayList<>(this.reserves);
+        remaining.remove(reserve);
+        return new AuctionCheckpoint(this.auctionId, this.scopeId, this.ownerUUID, this.ownerName, this.lot, remaining,
+                this.currentBidderUUID, this.currentBidAmount, this.remainingTime, this.time);
+    }
+
+    /**
+     * @return whether nothing is held anymore
+     */
+    public boolean isSettled() {
+        return this.lot == null && this.reserves.isEmpty();
+    }
+
+    /**
+     * Funds withdrawn from a bidder which are held until the auction ends.
+     */
+    public static class Reserve implements Serializable {
+
+        private static final long serialVersionUID = -2205873940185521370L;
+
+        // Assigned by readObject, which converts checkpoints written while reserves were kept as doubles
+        private UUID bidderUUID;
+        private String bidderName;
+        private long minorUnits;
+        // Amount of such a checkpoint, converted once the decimal places of the economy are known
+        private transient double legacyAmount = -1D;
+
+        /**
+         * @param bidderUUID uuid of the bidder
+         * @param bidderName name of the bidder
+         * @param minorUnits reserved funds in floAuction's proprietary "safe money"
+         */
+        public Reserve(UUID bidderUUID, String bidderName, long minorUnits) {
+            this.bidderUUID = bidderUUID;
+            this.bidderName = bidderName;
+            this.minorUnits = minorUnits;
+        }
+
+        public UUID getBidderUUID() {
+            return this.bidderUUID;
+        }
+
+        public String getBidderName() {
+            return this.bidderName;
+        }
+
+        /**
+         * @return the reserved funds in floAuction's proprietary "safe money"
+         */
+        public long getAmount() {
+            return this.legacyAmount >= 0 ? Money.toMinor(this.legacyAmount) : this.minorUnits;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            ObjectInputStream.GetField fields = in.readFields();
+            this.bidderUUID = (UUID) fields.get("bidderUUID", null);
+            this.bidderName = (String) fields.get("bidderName", null);
+            this.legacyAmount = -1D;
+            if(fields.defaulted("minorUnits")) {
+                this.legacyAmount = fields.get("amount", 0D);
+            } else {
+                this.minorUnits = fields.get("minorUnits", 0L);
+            }
+        }
+    }
+}
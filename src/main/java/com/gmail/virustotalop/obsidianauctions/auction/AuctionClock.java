@@ -0,0 +1,86 @@
+package com.gmail.virustotalop.obsidianauctions.auction;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * One timer for every running auction. Auctions register the next moment they have something to do, a countdown
+ * notification or their end, and the clock only wakes those whose deadline has passed. Everything runs on the main thread.
+ */
+public class AuctionClock {
+
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(Comparator.comparingLong(deadline -> deadline.time));
+    private int timer = 0;
+
+    /**
+     * Starts the clock, the heap is checked once every resolution ticks.
+     *
+     * @param plugin          the plugin owning the timer
+     * @param resolutionTicks how often to check for due deadlines in ticks
+     */
+    public void start(Plugin plugin, long resolutionTicks) {
+        BukkitScheduler scheduler = plugin.getServer().getScheduler();
+        if(this.timer > 0) {
+            scheduler.cancelTask(this.timer);
+        }
+        long period = Math.max(resolutionTicks, 1L);
+        this.timer = scheduler.scheduleSyncRepeatingTask(plugin, this::tick, period, period);
+    }
+
+    /**
+     * Stops the clock, registered deadlines are dropped.
+     *
+     * @param plugin the plugin owning the timer
+     */
+    public void stop(Plugin plugin) {
+        if(this.timer > 0) {
+            plugin.getServer().getScheduler().cancelTask(this.timer);
+            this.timer = 0;
+        }
+        this.deadlines.clear();
+    }
+
+    /**
+     * Registers when an auction has to be woken next, replacing its previous deadline.
+     *
+     * @param auction the auction
+     * @param time    the deadline in milliseconds
+     */
+    void schedule(Auction auction, long time) {
+        this.remove(auction);
+        this.deadlines.add(new Deadline(auction, time));
+    }
+
+    /**
+     * Removes the deadline of an auction.
+     *
+     * @param auction the auction
+     */
+    void remove(Auction auction) {
+        this.deadlines.removeIf(deadline -> deadline.auction == auction);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        Deadline next;
+        while((next = this.deadlines.peek()) != null && next.time <= now) {
+            this.deadlines.poll();
+            // The auction registers its next deadline itself if it is still running
+            next.auction.onDeadline(now);
+        }
+    }
+
+    private static final class Deadline {
+
+        private final Auction auction;
+        private final long time;
+
+        private Deadline(Auction auction, long time) {
+            this.auction = auction;
+            this.time = time;
+        }
+    }
+}
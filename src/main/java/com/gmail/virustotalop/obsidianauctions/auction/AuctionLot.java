@@ -1,6 +1,8 @@
 package com.gmail.virustotalop.obsidianauctions.auction;
 
 import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
+import com.gmail.virustotalop.obsidianauctions.util.InventoryPlanner;
+import com.gmail.virustotalop.obsidianauctions.util.ItemFingerprint;
 import com.gmail.virustotalop.obsidianauctions.util.Items;
 import org.bukkit.Bukkit;
 import org.bukkit.FireworkEffect;
@@ -8,14 +10,19 @@ import org.bukkit.Material;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.enchantments.Enchantment;
 import org.bukkit.enchantments.EnchantmentWrapper;
-import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
@@ -29,26 +36,27 @@ public class AuctionLot implements Serializable {
 
     private static final long serialVersionUID = -1764290458703647129L;
 
+    /**
+     * Only the owner, quantity and encoded item are written. Lots written by older versions carry their own field
+     * descriptions, their fields are read by name when such a lot is loaded.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("ownerUUID", UUID.class),
+            new ObjectStreamField("ownerName", String.class),
+            new ObjectStreamField("quantity", int.class),
+            new ObjectStreamField("item", byte[].class)
+    };
+
     private UUID ownerUUID;
     private String ownerName;
 
     private int quantity = 0;
-    private Material lotType;
-    private short lotDurability;
-    private Map<Integer, Integer> lotEnchantments;
-    private Map<Integer, Integer> storedEnchantments;
-    private int sourceStackQuantity = 0;
-    private String displayName = "";
-    private String bookAuthor = "";
-    private String bookTitle = "";
-    private String[] bookPages = null;
-    private Integer repairCost = null;
-    private String headOwner = null;
-    private Integer power = 0;
-    private FireworkEffect[] effects = null;
-    private String[] lore = null;
-    private String itemSerialized = null;
-
+    // Encoded with the Bukkit object stream, written on demand
+    private byte[] item;
+    // Decoded on demand
+    private transient ItemStack template;
+    // Computed on demand, zero until then
+    private transient long fingerprint;
 
     /**
      * Constructor that sets owner and lot type.
@@ -72,10 +80,16 @@ public class AuctionLot implements Serializable {
      */
     public boolean addItems(int addQuantity, boolean removeFromOwner) {
         if(removeFromOwner) {
-            if(!Items.hasAmount(this.ownerName, addQuantity, getTypeStack())) {
+            Player owner = Bukkit.getPlayer(this.ownerName);
+            if(owner == null) {
+                return false;
+            }
+            InventoryPlanner planner = InventoryPlanner.scan(owner.getInventory(), getTypeStack());
+            if(planner.getAmount() < addQuantity) {
                 return false;
             }
-            Items.remove(this.ownerName, addQuantity, getTypeStack());
+            planner.remove(addQuantity);
+            planner.apply();
         }
         this.quantity += addQuantity;
         return true;
@@ -98,7 +112,7 @@ public class AuctionLot implements Serializable {
     }
 
     /**
-     * Gives the items to a player, drops excess on ground or saves all of it to orphanage if the player is offline.
+     * Gives the items to a player, keeps what doesn't fit in the mailbox or saves all of it to orphanage if the player is offline.
      *
      * @param playerUUID who receives the items
      */
@@ -112,138 +126,201 @@ public class AuctionLot implements Serializable {
         this.ownerUUID = playerUUID;
         this.ownerName = playerName;
 
-        int maxStackSize = lotTypeLock.getType().getMaxStackSize();
         if(player != null && player.isOnline()) {
-            int amountToGive = 0;
-            if(Items.hasSpace(player, this.quantity, lotTypeLock)) {
-                amountToGive = this.quantity;
-            } else {
-                amountToGive = Items.getSpaceForItem(player, lotTypeLock);
-            }
             // Give whatever items space permits at this time.
-            ItemStack typeStack = getTypeStack();
-            if(amountToGive > 0) {
+            InventoryPlanner planner = InventoryPlanner.scan(player.getInventory(), lotTypeLock);
+            int given = planner.give(this.quantity);
+            if(given > 0) {
+                planner.apply();
+                this.quantity -= given;
+                ObsidianAuctions.get().getJournal().lotDelivery(playerUUID, this.getFingerprint(), given);
                 ObsidianAuctions.get().getMessageManager().sendPlayerMessage("lot-give", playerUUID, (AuctionScope) null);
             }
-            while(amountToGive > 0) {
-                ItemStack givingItems = lotTypeLock.clone();
-                givingItems.setAmount(Math.min(maxStackSize, amountToGive));
-                this.quantity -= givingItems.getAmount();
-                Items.saferItemGive(player.getInventory(), givingItems);
-
-                amountToGive -= maxStackSize;
-            }
             if(this.quantity > 0) {
-                // Drop items at player's feet.
-
-                // Move items to drop lot.
-                while(this.quantity > 0) {
-                    ItemStack cloneStack = typeStack.clone();
-                    cloneStack.setAmount(Math.min(this.quantity, Items.getMaxStackSize(typeStack)));
-                    quantity -= cloneStack.getAmount();
-
-                    // Drop lot.
-                    Item drop = player.getWorld().dropItemNaturally(player.getLocation(), cloneStack);
-                    drop.setItemStack(cloneStack);
-                }
-                ObsidianAuctions.get().getMessageManager().sendPlayerMessage("lot-drop", playerUUID, (AuctionScope) null);
+                // Kept in the mailbox instead of dropping stacks at the player's feet, claimed with /auc claim.
+                ObsidianAuctions.saveOrphanLot(this.split());
+                ObsidianAuctions.get().getMessageManager().sendPlayerMessage("lot-mailbox", playerUUID, (AuctionScope) null);
             }
         } else {
             // Player is offline, queue lot for give on login.
-            // Create orphaned lot to try to give when inventory clears up.
-            final AuctionLot orphanLot = new AuctionLot(lotTypeLock, playerUUID, playerName);
+            // Queue for distribution on space availability.
+            ObsidianAuctions.saveOrphanLot(this.split());
+        }
+    }
 
-            // Move items to orphan lot
-            orphanLot.addItems(this.quantity, false);
-            this.quantity = 0;
+    /**
+     * Moves all items of this lot into a new lot with the same owner.
+     *
+     * @return the new lot
+     */
+    private AuctionLot split() {
+        AuctionLot lot = new AuctionLot(this.getTemplate(), this.ownerUUID, this.ownerName);
+        lot.quantity = this.quantity;
+        lot.fingerprint = this.fingerprint;
+        this.quantity = 0;
+        return lot;
+    }
 
-            // Queue for distribution on space availability.
-            ObsidianAuctions.saveOrphanLot(orphanLot);
+    /**
+     * Moves the items of another lot into this lot if both hold the same item for the same owner.
+     *
+     * @param other the lot to take the items from
+     * @return whether the items were moved
+     */
+    public boolean merge(AuctionLot other) {
+        if(!this.ownerUUID.equals(other.ownerUUID) || this.getFingerprint() != other.getFingerprint()
+                || !Items.isSameItem(this.getTemplate(), other.getTemplate())) {
+            return false;
         }
+        this.quantity += other.quantity;
+        other.quantity = 0;
+        return true;
     }
 
     /**
      * Gets a stack of a single item having the properties of all the items in this lot.
      *
-     * @return item stack of one item
+     * @return copy of the item stack, free to be modified
      */
-    @SuppressWarnings("deprecation")
     public ItemStack getTypeStack() {
-        ItemStack lotTypeLock = null;
-        if(this.itemSerialized != null) {
-//			lotTypeLock = ItemStack.deserialize(this.itemSerialized);
+        return this.getTemplate().clone();
+    }
+
+    /**
+     * Gets the fingerprint of the items in this lot, computed once.
+     *
+     * @return fingerprint of the lot type
+     */
+    public long getFingerprint() {
+        if(this.fingerprint == 0) {
+            this.fingerprint = ItemFingerprint.of(this.getTemplate());
+        }
+        return this.fingerprint;
+    }
+
+    private ItemStack getTemplate() {
+        if(this.template == null) {
+            this.template = decodeItem(this.item);
+        }
+        return this.template;
+    }
+
+    /**
+     * Sets the items in this lot to have the properties of the referenced item stack.
+     *
+     * @param lotType
+     */
+    private void setLotType(ItemStack lotType) {
+        this.template = lotType.clone();
+        this.item = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if(this.item == null) {
+            this.item = encodeItem(this.template);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("ownerUUID", this.ownerUUID);
+        fields.put("ownerName", this.ownerName);
+        fields.put("quantity", this.quantity);
+        fields.put("item", this.item);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.ownerUUID = (UUID) fields.get("ownerUUID", null);
+        this.ownerName = (String) fields.get("ownerName", null);
+        this.quantity = fields.get("quantity", 0);
+        this.item = (byte[]) fields.get("item", null);
+        if(this.item == null) {
+            // Written by an older version, the lot is stored in the new format the next time it is saved
+            this.template = readLegacyItem(fields);
+        }
+    }
+
+    private static byte[] encodeItem(ItemStack item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeObject(item);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ItemStack decodeItem(byte[] item) {
+        try(BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(item))) {
+            return (ItemStack) in.readObject();
+        } catch(IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to decode lot item", e);
+        }
+    }
+
+    @SuppressWarnings({"deprecation", "unchecked"})
+    private static ItemStack readLegacyItem(ObjectInputStream.GetField fields) throws IOException {
+        String itemSerialized = (String) legacyField(fields, "itemSerialized");
+        if(itemSerialized != null) {
             FileConfiguration tmpconfig = new YamlConfiguration();
             try {
-                tmpconfig.loadFromString(this.itemSerialized);
+                tmpconfig.loadFromString(itemSerialized);
                 if(tmpconfig.isItemStack("itemstack")) {
                     return tmpconfig.getItemStack("itemstack");
                 }
             } catch(InvalidConfigurationException e) {
-                // TODO Auto-generated catch block
                 e.printStackTrace();
             }
         }
 
-        // The rest of this remains for backward compatibility.
-        lotTypeLock = new ItemStack(this.lotType, 1, this.lotDurability);
-
-        for(Entry<Integer, Integer> enchantment : this.lotEnchantments.entrySet()) {
-            lotTypeLock.addUnsafeEnchantment(new EnchantmentWrapper(enchantment.getKey()), enchantment.getValue());
+        // Lots saved before items were serialized as a whole
+        short durability = 0;
+        try {
+            durability = fields.get("lotDurability", (short) 0);
+        } catch(IllegalArgumentException ignore) {
+            // Not written by that version
+        }
+        ItemStack lotTypeLock = new ItemStack((Material) legacyField(fields, "lotType"), 1, durability);
+        Map<Integer, Integer> lotEnchantments = (Map<Integer, Integer>) legacyField(fields, "lotEnchantments");
+        if(lotEnchantments != null) {
+            for(Entry<Integer, Integer> enchantment : lotEnchantments.entrySet()) {
+                lotTypeLock.addUnsafeEnchantment(new EnchantmentWrapper(enchantment.getKey()), enchantment.getValue());
+            }
+        }
+        Map<Integer, Integer> storedEnchantments = (Map<Integer, Integer>) legacyField(fields, "storedEnchantments");
+        if(storedEnchantments != null) {
+            for(Entry<Integer, Integer> enchantment : storedEnchantments.entrySet()) {
+                Items.addStoredEnchantment(lotTypeLock, enchantment.getKey(), enchantment.getValue(), true);
+            }
         }
-        for(Entry<Integer, Integer> enchantment : this.storedEnchantments.entrySet()) {
-            Items.addStoredEnchantment(lotTypeLock, enchantment.getKey(), enchantment.getValue(), true);
+        try {
+            lotTypeLock.setAmount(fields.get("sourceStackQuantity", 0));
+        } catch(IllegalArgumentException ignore) {
+            // Not written by that version
         }
-        lotTypeLock.setAmount(this.sourceStackQuantity);
-        Items.setDisplayName(lotTypeLock, this.displayName);
-        Items.setBookAuthor(lotTypeLock, this.bookAuthor);
-        Items.setBookTitle(lotTypeLock, this.bookTitle);
-        Items.setBookPages(lotTypeLock, this.bookPages);
-        Items.setRepairCost(lotTypeLock, this.repairCost);
-        Items.setHeadOwner(lotTypeLock, this.headOwner);
-        Items.setFireworkPower(lotTypeLock, this.power);
-        Items.setFireworkEffects(lotTypeLock, this.effects);
-        Items.setLore(lotTypeLock, this.lore);
+        Items.setDisplayName(lotTypeLock, (String) legacyField(fields, "displayName"));
+        Items.setBookAuthor(lotTypeLock, (String) legacyField(fields, "bookAuthor"));
+        Items.setBookTitle(lotTypeLock, (String) legacyField(fields, "bookTitle"));
+        Items.setBookPages(lotTypeLock, (String[]) legacyField(fields, "bookPages"));
+        Items.setRepairCost(lotTypeLock, (Integer) legacyField(fields, "repairCost"));
+        Items.setHeadOwner(lotTypeLock, (String) legacyField(fields, "headOwner"));
+        Items.setFireworkPower(lotTypeLock, (Integer) legacyField(fields, "power"));
+        Items.setFireworkEffects(lotTypeLock, (FireworkEffect[]) legacyField(fields, "effects"));
+        Items.setLore(lotTypeLock, (String[]) legacyField(fields, "lore"));
         return lotTypeLock;
     }
 
     /**
-     * Sets the items in this lot to have the properties of the referenced item stack.
+     * Reads a field which only lots written by some older versions have.
      *
-     * @param lotType
+     * @param fields the fields read from the stream
+     * @param name   name of the field
+     * @return the value, null if the lot was written without it
+     * @throws IOException if the stream is broken
      */
-    @SuppressWarnings("deprecation")
-    private void setLotType(ItemStack lotType) {
-//		this.itemSerialized = lotType.serialize();
-        FileConfiguration tmpconfig = new YamlConfiguration();
-        tmpconfig.set("itemstack", lotType);
-        this.itemSerialized = tmpconfig.saveToString();
-
-        // The rest of this remains for backward compatibility.
-        this.lotType = lotType.getType();
-        this.lotDurability = lotType.getDurability();
-        this.sourceStackQuantity = lotType.getAmount();
-        this.lotEnchantments = new HashMap<Integer, Integer>();
-        this.storedEnchantments = new HashMap<Integer, Integer>();
-        Map<Enchantment, Integer> enchantmentList = lotType.getEnchantments();
-
-        for(Entry<Enchantment, Integer> enchantment : enchantmentList.entrySet()) {
-            this.lotEnchantments.put(enchantment.getKey().getId(), enchantment.getValue());
-        }
-
-        enchantmentList = Items.getStoredEnchantments(lotType);
-        if(enchantmentList != null) for(Entry<Enchantment, Integer> enchantment : enchantmentList.entrySet()) {
-            this.storedEnchantments.put(enchantment.getKey().getId(), enchantment.getValue());
+    private static Object legacyField(ObjectInputStream.GetField fields, String name) throws IOException {
+        try {
+            return fields.get(name, null);
+        } catch(IllegalArgumentException e) {
+            return null;
         }
-
-        this.displayName = Items.getDisplayName(lotType);
-        this.bookAuthor = Items.getBookAuthor(lotType);
-        this.bookTitle = Items.getBookTitle(lotType);
-        this.bookPages = Items.getBookPages(lotType);
-        this.repairCost = Items.getRepairCost(lotType);
-        this.headOwner = Items.getHeadOwner(lotType);
-        this.power = Items.getFireworkPower(lotType);
-        this.effects = Items.getFireworkEffects(lotType);
-        this.lore = Items.getLore(lotType);
     }
 
     /**
@@ -255,6 +332,15 @@ public class AuctionLot implements Serializable {
         return this.ownerName;
     }
 
+    /**
+     * Gets the uuid of the owner of this lot.
+     *
+     * @return uuid of lot owner
+     */
+    public UUID getOwnerUUID() {
+        return this.ownerUUID;
+    }
+
     /**
      * Gets the quantity of items in this lot.
      *
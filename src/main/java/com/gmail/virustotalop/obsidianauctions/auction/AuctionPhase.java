@@ -0,0 +1,39 @@
+package com.gmail.virustotalop.obsidianauctions.auction;
+
+/**
+ * Where an auction is in its life.
+ */
+public enum AuctionPhase {
+
+    /**
+     * Holds its scope while the start tax is withdrawn, nobody has been told about it yet.
+     */
+    PENDING,
+    /**
+     * Started and announced, takes bids until it ends.
+     */
+    RUNNING,
+    /**
+     * Ended, cancelled or dropped before it started.
+     */
+    DISPOSED;
+
+    /**
+     * Whether ending the auction in this phase is announced, recorded in the history and hands out the lot.
+     * A pending auction is dropped quietly instead, the start tax callback refunds the owner.
+     *
+     * @return true if the auction is running
+     */
+    public boolean isAnnounced() {
+        return this == RUNNING;
+    }
+
+    /**
+     * Whether ending the auction in this phase has anything left to dispose of.
+     *
+     * @return false once the auction is disposed
+     */
+    public boolean isDisposable() {
+        return this != DISPOSED;
+    }
+}
@@ -21,9 +21,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Class to manage different auction areas or scopes.
@@ -40,6 +43,8 @@ public class AuctionScope {
     private String type = null;
     private final ArrayList<Auction> auctionQueue = new ArrayList<Auction>();
     private long lastAuctionDestroyTime = 0;
+    // Wakes the queue once the interval since the last auction has passed
+    private int queueTimer = 0;
 
     // Definitions
     private List<String> worlds = null;
@@ -135,11 +140,25 @@ public class AuctionScope {
     public void setActiveAuction(Auction auction) {
         if(this.activeAuction != null && auction == null) {
             this.lastAuctionDestroyTime = System.currentTimeMillis();
-            checkAuctionQueue();
+            this.activeAuction = null;
+            this.checkThisAuctionQueue();
+            return;
         }
         this.activeAuction = auction;
     }
 
+    /**
+     * Releases the scope when an auction which waited for its start tax could not start.
+     *
+     * @param auction the auction which failed to start
+     */
+    void abortStart(Auction auction) {
+        if(this.activeAuction == auction) {
+            this.activeAuction = null;
+            this.checkThisAuctionQueue();
+        }
+    }
+
     /**
      * Adds an auction instance to the auction queue for this scope.
      *
@@ -181,7 +200,7 @@ public class AuctionScope {
         if((this.auctionQueue.size() == 0 && System.currentTimeMillis() - this.lastAuctionDestroyTime >= AuctionConfig.getInt("min-auction-interval-secs", this) * 1000) || auctionToQueue.isValid()) {
             this.auctionQueue.add(auctionToQueue);
             AuctionParticipant.addParticipant(playerUUID, this);
-            AuctionScope.checkAuctionQueue();
+            this.checkThisAuctionQueue();
             if(this.auctionQueue.contains(auctionToQueue)) {
                 messageManager.sendPlayerMessage("auction-queue-enter", playerUUID, auctionToQueue);
             }
@@ -189,16 +208,37 @@ public class AuctionScope {
     }
 
     /**
-     * Checks the auction queue to see if the next auction is ready to start.
+     * Starts queued auctions while the scope is idle and the interval since the last auction has passed. If it has
+     * not passed yet the check is scheduled for the moment it does.
      */
     private void checkThisAuctionQueue() {
-        if(this.activeAuction != null) {
-            return;
-        } else if(System.currentTimeMillis() - this.lastAuctionDestroyTime < AuctionConfig.getInt("min-auction-interval-secs", this) * 1000) {
-            return;
-        } else if(this.auctionQueue.size() == 0) {
-            return;
+        this.cancelQueueTimer();
+        while(this.activeAuction == null && this.auctionQueue.size() > 0) {
+            long wait = this.lastAuctionDestroyTime + AuctionConfig.getInt("min-auction-interval-secs", this) * 1000L - System.currentTimeMillis();
+            if(wait > 0) {
+                // Starting an auction may have scheduled a check already
+                this.cancelQueueTimer();
+                this.queueTimer = Bukkit.getScheduler().scheduleSyncDelayedTask(ObsidianAuctions.get(), () -> {
+                    this.queueTimer = 0;
+                    this.checkThisAuctionQueue();
+                }, (wait + 49) / 50);
+                return;
+            }
+            this.startNextQueuedAuction();
         }
+    }
+
+    private void cancelQueueTimer() {
+        if(this.queueTimer > 0) {
+            Bukkit.getScheduler().cancelTask(this.queueTimer);
+            this.queueTimer = 0;
+        }
+    }
+
+    /**
+     * Takes the first auction off the queue and starts it, an auction which can no longer start is dropped.
+     */
+    private void startNextQueuedAuction() {
         Auction auction = this.auctionQueue.remove(0);
         if(auction == null) {
             return;
@@ -336,15 +376,6 @@ public class AuctionScope {
         return this.auctionQueue;
     }
 
-    /**
-     * Checks the auction queues for each scope, starting any auctions which are ready.
-     */
-    public static void checkAuctionQueue() {
-        for(Map.Entry<String, AuctionScope> auctionScopesEntry : auctionScopes.entrySet()) {
-            auctionScopesEntry.getValue().checkThisAuctionQueue();
-        }
-    }
-
     /**
      * Gets the position of the named player's auction in the queue or zero if not in queue.
      *
@@ -407,19 +438,24 @@ public class AuctionScope {
      * @param auctionScopesConfig
      * @param dataFolder
      */
-    public static void setupScopeList(ConfigurationSection auctionScopesConfig, File dataFolder) {
+    public static void setupScopeList(ConfigurationSection auctionScopesConfig, File dataFolder, Executor executor) {
+        for(AuctionScope auctionScope : AuctionScope.auctionScopes.values()) {
+            auctionScope.cancelQueueTimer();
+        }
         AuctionScope.auctionScopes.clear();
         AuctionScope.auctionScopesOrder.clear();
         if(auctionScopesConfig != null) {
+            // Language files of the scopes are loaded side by side
+            Map<String, CompletableFuture<Configuration>> scopeTextConfigs = new LinkedHashMap<>();
             for(String scopeName : auctionScopesConfig.getKeys()) {
+                File scopeTextConfigFile = new File(dataFolder, "language-" + scopeName + ".yml");
+                scopeTextConfigs.put(scopeName, CompletableFuture.supplyAsync(() -> scopeTextConfigFile.exists() ? Configuration.load(scopeTextConfigFile) : null, executor));
+            }
+            for(Map.Entry<String, CompletableFuture<Configuration>> entry : scopeTextConfigs.entrySet()) {
+                String scopeName = entry.getKey();
                 AuctionScope.auctionScopesOrder.add(scopeName);
                 ConfigurationSection auctionScopeConfig = auctionScopesConfig.getConfigurationSection(scopeName);
-                File scopeTextConfigFile = new File(dataFolder, "language-" + scopeName + ".yml");
-                Configuration scopeTextConfig = null;
-                if(scopeTextConfigFile.exists()) {
-                    scopeTextConfig = Configuration.load(scopeTextConfigFile);
-                }
-                AuctionScope auctionScope = new AuctionScope(scopeName, auctionScopeConfig, scopeTextConfig);
+                AuctionScope auctionScope = new AuctionScope(scopeName, auctionScopeConfig, entry.getValue().join());
                 AuctionScope.auctionScopes.put(scopeName, auctionScope);
             }
         }
@@ -432,6 +468,7 @@ public class AuctionScope {
         for(Map.Entry<String, AuctionScope> auctionScopesEntry : AuctionScope.auctionScopes.entrySet()) {
             AuctionScope auctionScope = auctionScopesEntry.getValue();
             auctionScope.auctionQueue.clear();
+            auctionScope.cancelQueueTimer();
             if(auctionScope.activeAuction != null) {
                 auctionScope.activeAuction.cancel();
             }
@@ -0,0 +1,125 @@
+package com.gmail.virustotalop.obsidianauctions.auction;
+
+import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
+import com.gmail.virustotalop.obsidianauctions.economy.EconomyBridge;
+import com.gmail.virustotalop.obsidianauctions.util.Money;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Funds held from the bidders of one auction in floAuction's proprietary "safe money". A bid only withdraws what its
+ * bidder does not have held already and being outbid keeps the funds held, so a bidding war costs one withdrawal per
+ * raise and every bidder gets a single deposit when the auction is settled. Only touched on the main thread.
+ */
+class EscrowLedger {
+
+    private final Auction auction;
+    private final Map<UUID, Holding> holdings = new LinkedHashMap<>();
+    private boolean settled = false;
+
+    EscrowLedger(Auction auction) {
+        this.auction = auction;
+    }
+
+    /**
+     * Makes sure a bidder has at least the given amount held, withdrawing the difference.
+     *
+     * @param bidderUUID uuid of the bidder
+     * @param bidderName name of the bidder
+     * @param amount     amount which has to be held
+     * @return future completing on the main thread with whether the amount is held
+     */
+    CompletableFuture<Boolean> hold(UUID bidderUUID, String bidderName, long amount) {
+        long delta = amount - this.getHeld(bidderUUID);
+        if(delta <= 0) {
+            return CompletableFuture.completedFuture(!this.settled);
+        }
+        EconomyBridge economy = ObsidianAuctions.get().getEconomyBridge();
+        return economy.withdraw(bidderName, Money.ofMinor(delta)).thenApplyAsync(withdrawn -> {
+            if(!withdrawn) {
+                return false;
+            } else if(this.settled) {
+                // The auction ended while the economy was busy
+                economy.depositOrLog(bidderName, Money.ofMinor(delta), "late escrow of auction " + this.auction.getAuctionId());
+                return false;
+            }
+            Holding holding = this.holdings.computeIfAbsent(bidderUUID, uuid -> new Holding(bidderName));
+            holding.amount += delta;
+            ObsidianAuctions.get().getJournal().escrow(this.auction, bidderUUID, holding.amount, delta);
+            return true;
+        }, economy.sync());
+    }
+
+    /**
+     * Gets the funds held from a bidder.
+     *
+     * @param bidderUUID uuid of the bidder
+     * @return the held funds
+     */
+    long getHeld(UUID bidderUUID) {
+        Holding holding = this.holdings.get(bidderUUID);
+        return holding == null ? 0 : holding.amount;
+    }
+
+    /**
+     * Takes the winning bid out of the winner's holding, it is paid out by the caller.
+     *
+     * @param bidderUUID uuid of the winner
+     * @param amount     the winning bid
+     */
+    void spend(UUID bidderUUID, long amount) {
+        Holding holding = this.holdings.get(bidderUUID);
+        if(holding != null) {
+            long spent = Math.min(holding.amount, amount);
+            holding.amount -= spent;
+            ObsidianAuctions.get().getJournal().escrow(this.auction, bidderUUID, holding.amount, -spent);
+        }
+    }
+
+    /**
+     * Returns everything still held, one deposit per bidder. Funds withdrawn after this are handed back right away.
+     */
+    void settle() {
+        if(this.settled) {
+            return;
+        }
+        this.settled = true;
+        EconomyBridge economy = ObsidianAuctions.get().getEconomyBridge();
+        for(Map.Entry<UUID, Holding> entry : this.holdings.entrySet()) {
+            Holding holding = entry.getValue();
+            if(holding.amount > 0) {
+                ObsidianAuctions.get().getJournal().escrow(this.auction, entry.getKey(), 0, -holding.amount);
+                economy.depositOrLog(holding.name, Money.ofMinor(holding.amount), "escrow refund of auction " + this.auction.getAuctionId());
+                holding.amount = 0;
+            }
+        }
+    }
+
+    /**
+     * @return the held funds for the auction checkpoint
+     */
+    List<AuctionCheckpoint.Reserve> getReserves() {
+        List<AuctionCheckpoint.Reserve> reserves = new ArrayList<>();
+        for(Map.Entry<UUID, Holding> entry : this.holdings.entrySet()) {
+            if(entry.getValue().amount > 0) {
+                reserves.add(new AuctionCheckpoint.Reserve(entry.getKey(), entry.getValue().name, entry.getValue().amount));
+            }
+        }
+        return reserves;
+    }
+
+    private static final class Holding {
+
+        private final String name;
+        private long amount = 0;
+
+        private Holding(String name) {
+            this.name = name;
+        }
+    }
+}
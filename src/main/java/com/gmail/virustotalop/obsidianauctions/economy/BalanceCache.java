@@ -0,0 +1,69 @@
+package com.gmail.virustotalop.obsidianauctions.economy;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last known balances in minor units, kept for a short while so bids which clearly can't be paid are refused without
+ * asking the economy. Only a hint, money is moved by the economy alone. Written on economy threads, read on the main thread.
+ */
+final class BalanceCache {
+
+    private final long ttlMillis;
+    private final Map<String, Balance> balances = new ConcurrentHashMap<>();
+
+    BalanceCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Gets the balance of a player if it is known and fresh.
+     *
+     * @param playerName name of the player
+     * @return the balance in minor units or -1 if unknown
+     */
+    long get(String playerName) {
+        String key = key(playerName);
+        Balance balance = this.balances.get(key);
+        if(balance == null) {
+            return -1;
+        } else if(System.currentTimeMillis() - balance.time > this.ttlMillis) {
+            this.balances.remove(key, balance);
+            return -1;
+        }
+        return balance.amount;
+    }
+
+    /**
+     * Records a balance read from the economy or returned by one of our transactions.
+     *
+     * @param playerName name of the player
+     * @param amount     the balance in minor units
+     */
+    void put(String playerName, long amount) {
+        if(this.ttlMillis > 0) {
+            // Overdrawn accounts can't afford anything either
+            this.balances.put(key(playerName), new Balance(Math.max(amount, 0), System.currentTimeMillis()));
+        }
+    }
+
+    void invalidate(String playerName) {
+        this.balances.remove(key(playerName));
+    }
+
+    private static String key(String playerName) {
+        return playerName.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Balance {
+
+        private final long amount;
+        private final long time;
+
+        private Balance(long amount, long time) {
+            this.amount = amount;
+            this.time = time;
+        }
+    }
+}
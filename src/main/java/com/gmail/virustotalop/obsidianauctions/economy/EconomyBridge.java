@@ -0,0 +1,224 @@
+package com.gmail.virustotalop.obsidianauctions.economy;
+
+import com.gmail.virustotalop.obsidianauctions.util.Money;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs Vault transactions off the main thread. Transactions of the same player run one after another in the order
+ * they were submitted, those of different players may run side by side. Futures complete on an economy thread,
+ * continuations which touch the server should be run on {@link #sync()}. Balances seen along the way are cached for
+ * {@link #canAfford(String, Money)}.
+ */
+public class EconomyBridge {
+
+    private final Plugin plugin;
+    private final Economy economy;
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final Executor economyThread;
+    private final Executor mainThread;
+    private final BalanceCache balances;
+    // Continuations waiting for the main thread, drained by a task or by close()
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    // Last transaction of every player with one in flight, guarded by itself
+    private final Map<String, CompletableFuture<Boolean>> tails = new HashMap<>();
+
+    /**
+     * @param plugin  the plugin, used to get back on the main thread
+     * @param economy the Vault economy
+     * @param threads amount of economy threads, 1 unless the economy is known to be thread safe
+     * @param balanceTtlMillis how long a seen balance is trusted by {@link #canAfford(String, Money)}, 0 to disable
+     */
+    public EconomyBridge(Plugin plugin, Economy economy, int threads, long balanceTtlMillis) {
+        this.plugin = plugin;
+        this.economy = economy;
+        this.logger = plugin.getLogger();
+        this.balances = new BalanceCache(balanceTtlMillis);
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "ObsidianAuctions-Economy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.economyThread = command -> {
+            try {
+                this.executor.execute(command);
+            } catch(RejectedExecutionException e) {
+                // Shutting down, money must still move
+                command.run();
+            }
+        };
+        this.mainThread = command -> {
+            if(Bukkit.isPrimaryThread()) {
+                command.run();
+                return;
+            }
+            this.pending.add(command);
+            if(this.plugin.isEnabled() && this.drainScheduled.compareAndSet(false, true)) {
+                try {
+                    Bukkit.getScheduler().runTask(this.plugin, this::drainPending);
+                } catch(IllegalPluginAccessException e) {
+                    // Disabled in the meantime, close() runs it
+                    this.drainScheduled.set(false);
+                }
+            }
+        };
+    }
+
+    /**
+     * Withdraws money if the player has enough of it.
+     *
+     * @param playerName name of the player
+     * @param amount     amount to withdraw
+     * @return future of whether the money was withdrawn
+     */
+    public CompletableFuture<Boolean> withdraw(String playerName, Money amount) {
+        double unsafeMoney = amount.toMajor();
+        return this.submit(playerName, () -> {
+            if(!this.economy.has(playerName, unsafeMoney)) {
+                // Refused bids tend to be retried right away
+                this.balances.put(playerName, Money.toMinor(this.economy.getBalance(playerName)));
+                return false;
+            }
+            return this.record(playerName, this.economy.withdrawPlayer(playerName, unsafeMoney));
+        });
+    }
+
+    /**
+     * Deposits money.
+     *
+     * @param playerName name of the player
+     * @param amount     amount to deposit
+     * @return future of whether the money was deposited
+     */
+    public CompletableFuture<Boolean> deposit(String playerName, Money amount) {
+        double unsafeMoney = amount.toMajor();
+        return this.submit(playerName, () -> this.record(playerName, this.economy.depositPlayer(playerName, unsafeMoney)));
+    }
+
+    /**
+     * Deposits money, failures are logged.
+     *
+     * @param playerName name of the player
+     * @param amount     amount to deposit
+     * @param reason     what the money is for, used in the log
+     */
+    public void depositOrLog(String playerName, Money amount, String reason) {
+        this.deposit(playerName, amount).thenAccept(success -> {
+            if(!success) {
+                this.logger.severe("Unable to deposit " + amount + " to " + playerName + " for " + reason);
+            }
+        });
+    }
+
+    /**
+     * Checks a player's last known balance without calling the economy. Only a pre-check, withdrawing may still fail.
+     *
+     * @param playerName name of the player
+     * @param amount     amount the player has to pay
+     * @return false if the player is known to lack the amount, true if they have it or the balance is not known
+     */
+    public boolean canAfford(String playerName, Money amount) {
+        long balance = this.balances.get(playerName);
+        return balance < 0 || balance >= amount.getMinorUnits();
+    }
+
+    /**
+     * Forgets the balance of a player, for when it changed outside of this plugin.
+     *
+     * @param playerName name of the player
+     */
+    public void invalidateBalance(String playerName) {
+        this.balances.invalidate(playerName);
+    }
+
+    /**
+     * @return executor running tasks on the main thread, directly if already on it and in {@link #close()} once the
+     * plugin is disabled
+     */
+    public Executor sync() {
+        return this.mainThread;
+    }
+
+    /**
+     * Waits for pending transactions and runs their continuations on the calling thread, which has to be the main
+     * thread. Transactions submitted afterwards run right away on the calling thread, so this has to be called before
+     * auctions are cancelled for their refunds to be complete when the plugin is gone.
+     */
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if(!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                this.logger.severe("Economy transactions are still pending after 30 seconds");
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The scheduler won't run them anymore
+        this.drainPending();
+    }
+
+    private void drainPending() {
+        this.drainScheduled.set(false);
+        Runnable command;
+        while((command = this.pending.poll()) != null) {
+            command.run();
+        }
+    }
+
+    private boolean record(String playerName, EconomyResponse response) {
+        if(response.transactionSuccess()) {
+            this.balances.put(playerName, Money.toMinor(response.balance));
+            return true;
+        }
+        this.balances.invalidate(playerName);
+        return false;
+    }
+
+    private CompletableFuture<Boolean> submit(String playerName, Supplier<Boolean> transaction) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        Supplier<Boolean> guarded = () -> {
+            try {
+                return transaction.get();
+            } catch(RuntimeException e) {
+                this.logger.log(Level.SEVERE, "Economy transaction of " + playerName + " failed", e);
+                return false;
+            }
+        };
+        CompletableFuture<Boolean> next;
+        synchronized(this.tails) {
+            CompletableFuture<Boolean> previous = this.tails.get(key);
+            next = previous == null
+                    ? CompletableFuture.supplyAsync(guarded, this.economyThread)
+                    : previous.handleAsync((result, error) -> guarded.get(), this.economyThread);
+            this.tails.put(key, next);
+        }
+        CompletableFuture<Boolean> submitted = next;
+        next.whenComplete((result, error) -> {
+            synchronized(this.tails) {
+                this.tails.remove(key, submitted);
+            }
+        });
+        return next;
+    }
+}
@@ -0,0 +1,153 @@
+package com.gmail.virustotalop.obsidianauctions.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Summary of a completed auction as kept by the {@link AuctionHistoryStore}.
+ */
+public final class AuctionHistoryEntry {
+
+    private static final int VERSION = 1;
+
+    private final UUID auctionId;
+    private final long endTime;
+    private final String scopeId;
+    private final UUID sellerUUID;
+    private final String sellerName;
+    private final UUID winnerUUID;
+    private final String winnerName;
+    private final String material;
+    private final long fingerprint;
+    private final int quantity;
+    private final long winningBid;
+
+    /**
+     * @param auctionId   id of the auction
+     * @param endTime     time the auction ended in milliseconds
+     * @param scopeId     id of the hosting scope
+     * @param sellerUUID  uuid of the auction owner
+     * @param sellerName  name of the auction owner
+     * @param winnerUUID  uuid of the winner or null if nobody bid
+     * @param winnerName  name of the winner or null if nobody bid
+     * @param material    material name of the lot
+     * @param fingerprint fingerprint of the lot
+     * @param quantity    amount of items sold
+     * @param winningBid  winning bid in floAuction's proprietary "safe money"
+     */
+    public AuctionHistoryEntry(UUID auctionId, long endTime, String scopeId, UUID sellerUUID, String sellerName,
+                               UUID winnerUUID, String winnerName, String material, long fingerprint,
+                               int quantity, long winningBid) {
+        this.auctionId = auctionId;
+        this.endTime = endTime;
+        this.scopeId = scopeId;
+        this.sellerUUID = sellerUUID;
+        this.sellerName = sellerName;
+        this.winnerUUID = winnerUUID;
+        this.winnerName = winnerName;
+        this.material = material;
+        this.fingerprint = fingerprint;
+        this.quantity = quantity;
+        this.winningBid = winningBid;
+    }
+
+    public UUID getAuctionId() {
+        return this.auctionId;
+    }
+
+    public long getEndTime() {
+        return this.endTime;
+    }
+
+    public String getScopeId() {
+        return this.scopeId;
+    }
+
+    public UUID getSellerUUID() {
+        return this.sellerUUID;
+    }
+
+    public String getSellerName() {
+        return this.sellerName;
+    }
+
+    public UUID getWinnerUUID() {
+        return this.winnerUUID;
+    }
+
+    public String getWinnerName() {
+        return this.winnerName;
+    }
+
+    public String getMaterial() {
+        return this.material;
+    }
+
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public int getQuantity() {
+        return this.quantity;
+    }
+
+    public long getWinningBid() {
+        return this.winningBid;
+    }
+
+    /**
+     * Whether the auction ended with a winner.
+     *
+     * @return true if the lot was sold
+     */
+    public boolean isSold() {
+        return this.winnerUUID != null;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeLong(this.auctionId.getMostSignificantBits());
+        out.writeLong(this.auctionId.getLeastSignificantBits());
+        out.writeLong(this.endTime);
+        out.writeUTF(this.scopeId == null ? "" : this.scopeId);
+        out.writeLong(this.sellerUUID.getMostSignificantBits());
+        out.writeLong(this.sellerUUID.getLeastSignificantBits());
+        out.writeUTF(this.sellerName == null ? "" : this.sellerName);
+        out.writeBoolean(this.winnerUUID != null);
+        if(this.winnerUUID != null) {
+            out.writeLong(this.winnerUUID.getMostSignificantBits());
+            out.writeLong(this.winnerUUID.getLeastSignificantBits());
+            out.writeUTF(this.winnerName == null ? "" : this.winnerName);
+        }
+        out.writeUTF(this.material);
+        out.writeLong(this.fingerprint);
+        out.writeInt(this.quantity);
+        out.writeLong(this.winningBid);
+    }
+
+    static AuctionHistoryEntry read(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if(version != VERSION) {
+            throw new IOException("Unsupported history entry version " + version);
+        }
+        UUID auctionId = new UUID(in.readLong(), in.readLong());
+        long endTime = in.readLong();
+        String scopeId = in.readUTF();
+        UUID sellerUUID = new UUID(in.readLong(), in.readLong());
+        String sellerName = in.readUTF();
+        UUID winnerUUID = null;
+        String winnerName = null;
+        if(in.readBoolean()) {
+            winnerUUID = new UUID(in.readLong(), in.readLong());
+            winnerName = in.readUTF();
+        }
+        String material = in.readUTF();
+        long fingerprint = in.readLong();
+        int quantity = in.readInt();
+        long winningBid = in.readLong();
+        return new AuctionHistoryEntry(auctionId, endTime, scopeId.isEmpty() ? null : scopeId, sellerUUID,
+                sellerName, winnerUUID, winnerName, material, fingerprint, quantity, winningBid);
+    }
+}
@@ -0,0 +1,266 @@
+package com.gmail.virustotalop.obsidianauctions.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent history of completed auctions. Entries are appended to segment files which are indexed by seller,
+ * winner, their names, material, fingerprint and time bucket so queries only read the records they return.
+ * All io happens on a single background thread, queries complete their future on that thread.
+ */
+public class AuctionHistoryStore {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String DATA_SUFFIX = ".dat";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final File directory;
+    private final Logger logger;
+    private final int segmentSize;
+    private final boolean enabled;
+    private final ExecutorService executor;
+
+    // Only touched by the executor thread
+    private final List<HistorySegment> segments = new ArrayList<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream payload = new DataOutputStream(this.buffer);
+
+    /**
+     * @param directory   directory holding the segment files
+     * @param logger      logger to report io problems to
+     * @param segmentSize amount of entries after which a segment is sealed
+     * @param enabled     whether history should be kept at all
+     */
+    public AuctionHistoryStore(File directory, Logger logger, int segmentSize, boolean enabled) {
+        this.directory = directory;
+        this.logger = logger;
+        this.segmentSize = Math.max(segmentSize, 1);
+        this.enabled = enabled;
+        this.executor = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ObsidianAuctions-History");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Opens the existing segments in the background.
+     */
+    public void start() {
+        if(this.enabled) {
+            this.executor.execute(this::load);
+        }
+    }
+
+    /**
+     * Waits for pending writes and closes all segments.
+     */
+    public void close() {
+        if(!this.enabled) {
+            return;
+        }
+        this.executor.execute(() -> {
+            for(HistorySegment segment : this.segments) {
+                try {
+                    segment.close();
+                } catch(IOException e) {
+                    this.logger.log(Level.SEVERE, "Unable to close history segment " + segment.getId(), e);
+                }
+            }
+            this.segments.clear();
+        });
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds a completed auction to the history.
+     *
+     * @param entry the completed auction
+     */
+    public void record(AuctionHistoryEntry entry) {
+        if(!this.enabled) {
+            return;
+        }
+        this.executor.execute(() -> {
+            try {
+                this.append(entry);
+            } catch(IOException e) {
+                this.logger.log(Level.SEVERE, "Unable to write auction history", e);
+            }
+        });
+    }
+
+    /**
+     * Finds auctions a player sold or won, newest first.
+     *
+     * @param playerUUID uuid of the player
+     * @param since      oldest end time to include in milliseconds
+     * @param limit      maximum amount of entries
+     * @return future of the matching entries
+     */
+    public CompletableFuture<List<AuctionHistoryEntry>> findByPlayer(UUID playerUUID, long since, int limit) {
+        long key = HistoryIndex.uuidKey(playerUUID);
+        return this.query(new HistoryIndex[]{HistoryIndex.SELLER, HistoryIndex.WINNER}, new long[]{key, key},
+                new long[]{key, key}, entry -> playerUUID.equals(entry.getSellerUUID())
+                        || playerUUID.equals(entry.getWinnerUUID()), since, limit);
+    }
+
+    /**
+     * Finds auctions a player sold or won under a name, newest first. Used for players who are not online, so their
+     * name doesn't have to be resolved to a uuid first.
+     *
+     * @param playerName name of the player, case insensitive
+     * @param since      oldest end time to include in milliseconds
+     * @param limit      maximum amount of entries
+     * @return future of the matching entries
+     */
+    public CompletableFuture<List<AuctionHistoryEntry>> findByPlayerName(String playerName, long since, int limit) {
+        long key = HistoryIndex.nameKey(playerName);
+        return this.query(new HistoryIndex[]{HistoryIndex.SELLER_NAME, HistoryIndex.WINNER_NAME}, new long[]{key, key},
+                new long[]{key, key}, entry -> playerName.equalsIgnoreCase(entry.getSellerName())
+                        || playerName.equalsIgnoreCase(entry.getWinnerName()), since, limit);
+    }
+
+    /**
+     * Finds auctions of a material, newest first.
+     *
+     * @param material material name
+     * @param since    oldest end time to include in milliseconds
+     * @param limit    maximum amount of entries
+     * @return future of the matching entries
+     */
+    public CompletableFuture<List<AuctionHistoryEntry>> findByMaterial(String material, long since, int limit) {
+        long key = HistoryIndex.materialKey(material);
+        return this.query(new HistoryIndex[]{HistoryIndex.MATERIAL}, new long[]{key}, new long[]{key},
+                entry -> entry.getMaterial().equalsIgnoreCase(material), since, limit);
+    }
+
+    /**
+     * Finds auctions of items with a fingerprint, newest first.
+     *
+     * @param fingerprint the item fingerprint
+     * @param since       oldest end time to include in milliseconds
+     * @param limit       maximum amount of entries
+     * @return future of the matching entries
+     */
+    public CompletableFuture<List<AuctionHistoryEntry>> findByFingerprint(long fingerprint, long since, int limit) {
+        return this.query(new HistoryIndex[]{HistoryIndex.FINGERPRINT}, new long[]{fingerprint}, new long[]{fingerprint},
+                entry -> entry.getFingerprint() == fingerprint, since, limit);
+    }
+
+    /**
+     * Finds all auctions which ended after a point in time, newest first.
+     *
+     * @param since oldest end time to include in milliseconds
+     * @param limit maximum amount of entries
+     * @return future of the matching entries
+     */
+    public CompletableFuture<List<AuctionHistoryEntry>> findSince(long since, int limit) {
+        return this.query(new HistoryIndex[]{HistoryIndex.TIME_BUCKET}, new long[]{HistoryIndex.timeKey(since)},
+                new long[]{Long.MAX_VALUE}, entry -> true, since, limit);
+    }
+
+    private CompletableFuture<List<AuctionHistoryEntry>> query(HistoryIndex[] indexes, long[] fromKeys, long[] toKeys,
+                                                               Predicate<AuctionHistoryEntry> filter, long since, int limit) {
+        if(!this.enabled) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            List<AuctionHistoryEntry> results = new ArrayList<>();
+            OffsetBuffer offsets = new OffsetBuffer();
+            for(int i = this.segments.size() - 1; i >= 0 && results.size() < limit; i--) {
+                HistorySegment segment = this.segments.get(i);
+                if(segment.getCount() == 0) {
+                    continue;
+                } else if(segment.getMaxTime() < since) { // Segments are written in time order
+                    break;
+                }
+                offsets.clear();
+                for(int j = 0; j < indexes.length; j++) {
+                    segment.collect(indexes[j], fromKeys[j], toKeys[j], offsets);
+                }
+                offsets.sortDistinct();
+                try {
+                    for(int j = offsets.size() - 1; j >= 0 && results.size() < limit; j--) {
+                        AuctionHistoryEntry entry = segment.read(offsets.get(j));
+                        if(entry.getEndTime() >= since && filter.test(entry)) {
+                            results.add(entry);
+                        }
+                    }
+                } catch(IOException e) {
+                    this.logger.log(Level.SEVERE, "Unable to read history segment " + segment.getId(), e);
+                }
+            }
+            return results;
+        }, this.executor);
+    }
+
+    private void load() {
+        if(!this.directory.exists()) {
+            this.directory.mkdirs();
+        }
+        File[] files = this.directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(DATA_SUFFIX));
+        List<Integer> ids = new ArrayList<>();
+        if(files != null) {
+            for(File file : files) {
+                String name = file.getName();
+                try {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - DATA_SUFFIX.length())));
+                } catch(NumberFormatException ignore) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(ids);
+        for(int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            try {
+                HistorySegment segment = this.openSegment(id);
+                // Only the newest segment may stay active, an older one was interrupted while sealing
+                if(i < ids.size() - 1) {
+                    segment.seal();
+                }
+                this.segments.add(segment);
+            } catch(IOException e) {
+                this.logger.log(Level.SEVERE, "Unable to load history segment " + id, e);
+            }
+        }
+    }
+
+    private void append(AuctionHistoryEntry entry) throws IOException {
+        HistorySegment active = this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+        if(active == null || active.isSealed()) {
+            active = this.openSegment(active == null ? 1 : active.getId() + 1);
+            this.segments.add(active);
+        }
+        this.buffer.reset();
+        entry.write(this.payload);
+        active.append(entry, this.buffer.toByteArray(), this.buffer.size());
+        if(active.getCount() >= this.segmentSize) {
+            active.seal();
+        }
+    }
+
+    private HistorySegment openSegment(int id) throws IOException {
+        String name = SEGMENT_PREFIX + String.format("%06d", id);
+        return HistorySegment.open(id, new File(this.directory, name + DATA_SUFFIX), new File(this.directory, name + INDEX_SUFFIX));
+    }
+}
@@ -0,0 +1,118 @@
+package com.gmail.virustotalop.obsidianauctions.history;
+
+import java.util.UUID;
+
+/**
+ * Secondary indexes kept for every history segment. Keys are hashes, so a match
+ * has to be confirmed against the entry itself.
+ */
+public enum HistoryIndex {
+
+    SELLER {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return true;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return uuidKey(entry.getSellerUUID());
+        }
+    },
+    WINNER {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return entry.getWinnerUUID() != null;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return uuidKey(entry.getWinnerUUID());
+        }
+    },
+    MATERIAL {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return true;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return materialKey(entry.getMaterial());
+        }
+    },
+    FINGERPRINT {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return true;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return entry.getFingerprint();
+        }
+    },
+    SELLER_NAME {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return entry.getSellerName() != null;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return nameKey(entry.getSellerName());
+        }
+    },
+    WINNER_NAME {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return entry.getWinnerName() != null;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return nameKey(entry.getWinnerName());
+        }
+    },
+    TIME_BUCKET {
+        @Override
+        boolean hasKey(AuctionHistoryEntry entry) {
+            return true;
+        }
+
+        @Override
+        long key(AuctionHistoryEntry entry) {
+            return timeKey(entry.getEndTime());
+        }
+    };
+
+    /**
+     * Width of a time bucket, one hour.
+     */
+    public static final long TIME_BUCKET_MILLIS = 60L * 60L * 1000L;
+
+    abstract boolean hasKey(AuctionHistoryEntry entry);
+
+    abstract long key(AuctionHistoryEntry entry);
+
+    static long uuidKey(UUID uuid) {
+        return uuid.getMostSignificantBits() * 31L + uuid.getLeastSignificantBits();
+    }
+
+    static long materialKey(String material) {
+        long hash = 1125899906842597L;
+        for(int i = 0; i < material.length(); i++) {
+            hash = 31 * hash + Character.toUpperCase(material.charAt(i));
+        }
+        return hash;
+    }
+
+    static long nameKey(String name) {
+        // Same hash as materials, names are case insensitive too
+        return materialKey(name);
+    }
+
+    static long timeKey(long time) {
+        return time / TIME_BUCKET_MILLIS;
+    }
+}
@@ -0,0 +1,329 @@
+package com.gmail.virustotalop.obsidianauctions.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * One append only file of history entries. While a segment is active its indexes are kept in memory,
+ * once it is sealed they are written to a sorted index file next to it and memory mapped.
+ */
+final class HistorySegment {
+
+    private static final int INDEX_MAGIC = 0x4F414849; // OAHI
+    private static final int INDEX_VERSION = 2;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final HistoryIndex[] INDEXES = HistoryIndex.values();
+    private static final int INDEX_HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + (4 * INDEXES.length);
+
+    private final int id;
+    private final File dataFile;
+    private final File indexFile;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+    private long size;
+    private int count = 0;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+
+    // Active segments
+    private ActiveIndex[] activeIndexes;
+
+    // Sealed segments
+    private MappedByteBuffer sealedIndex;
+    private int[] sectionStarts;
+    private int[] sectionCounts;
+
+    private HistorySegment(int id, File dataFile, File indexFile) throws IOException {
+        this.id = id;
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.file = new RandomAccessFile(dataFile, "rw");
+        this.channel = this.file.getChannel();
+        this.size = this.channel.size();
+    }
+
+    /**
+     * Opens a segment, sealed segments map their index file while active ones are scanned
+     * to rebuild their indexes. A partially written record at the end of the file is cut off.
+     *
+     * @param id        segment id
+     * @param dataFile  file holding the entries
+     * @param indexFile file holding the sorted index once sealed
+     * @return the opened segment
+     * @throws IOException if the segment can't be read
+     */
+    static HistorySegment open(int id, File dataFile, File indexFile) throws IOException {
+        HistorySegment segment = new HistorySegment(id, dataFile, indexFile);
+        if(!indexFile.exists() || !segment.mapIndex()) {
+            segment.rebuild();
+        }
+        return segment;
+    }
+
+    private boolean mapIndex() throws IOException {
+        try(FileChannel indexChannel = FileChannel.open(this.indexFile.toPath())) {
+            if(indexChannel.size() < INDEX_HEADER_SIZE) {
+                return false;
+            }
+            MappedByteBuffer buffer = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            if(buffer.getInt(0) != INDEX_MAGIC || buffer.getInt(4) != INDEX_VERSION) {
+                return false;
+            }
+            int[] starts = new int[INDEXES.length];
+            int[] counts = new int[INDEXES.length];
+            int position = INDEX_HEADER_SIZE;
+            for(int i = 0; i < INDEXES.length; i++) {
+                counts[i] = buffer.getInt(28 + (i * 4));
+                starts[i] = position;
+                position += counts[i] * INDEX_ENTRY_SIZE;
+            }
+            if(position != buffer.capacity()) {
+                return false;
+            }
+            this.count = buffer.getInt(8);
+            this.minTime = buffer.getLong(12);
+            this.maxTime = buffer.getLong(20);
+            this.sectionStarts = starts;
+            this.sectionCounts = counts;
+            this.sealedIndex = buffer;
+            return true;
+        }
+    }
+
+    private void rebuild() throws IOException {
+        this.activeIndexes = new ActiveIndex[INDEXES.length];
+        for(int i = 0; i < INDEXES.length; i++) {
+            this.activeIndexes[i] = new ActiveIndex();
+        }
+        long position = 0;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.dataFile), 1 << 16))) {
+            byte[] payload = new byte[256];
+            while(true) {
+                int length = in.readInt();
+                if(length <= 0) {
+                    break;
+                }
+                if(length > payload.length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+                AuctionHistoryEntry entry = AuctionHistoryEntry.read(new DataInputStream(new ByteArrayInputStream(payload, 0, length)));
+                this.index(entry, position);
+                position += 4 + length;
+            }
+        } catch(EOFException ignore) {
+            // End of the segment or a record that was cut off while being written
+        }
+        if(position != this.size) {
+            this.channel.truncate(position);
+            this.size = position;
+        }
+    }
+
+    private void index(AuctionHistoryEntry entry, long offset) {
+        for(int i = 0; i < INDEXES.length; i++) {
+            HistoryIndex index = INDEXES[i];
+            if(index.hasKey(entry)) {
+                this.activeIndexes[i].add(index.key(entry), offset);
+            }
+        }
+        this.minTime = Math.min(this.minTime, entry.getEndTime());
+        this.maxTime = Math.max(this.maxTime, entry.getEndTime());
+        this.count++;
+    }
+
+    /**
+     * Appends an entry to this segment, only valid while the segment is active.
+     *
+     * @param entry   the entry to add
+     * @param payload the serialized entry
+     * @param length  length of the serialized entry
+     * @throws IOException if the entry can't be written
+     */
+    void append(AuctionHistoryEntry entry, byte[] payload, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length);
+        buffer.put(payload, 0, length);
+        buffer.flip();
+        long offset = this.size;
+        while(buffer.hasRemaining()) {
+            this.channel.write(buffer, this.size + buffer.position());
+        }
+        this.size += 4 + length;
+        this.index(entry, offset);
+    }
+
+    /**
+     * Writes the sorted index file of this segment and switches it to read only lookups.
+     *
+     * @throws IOException if the index can't be written
+     */
+    void seal() throws IOException {
+        if(this.isSealed()) {
+            return;
+        }
+        this.channel.force(false);
+        File tempFile = new File(this.indexFile.getPath() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(this.count);
+            out.writeLong(this.minTime);
+            out.writeLong(this.maxTime);
+            for(ActiveIndex index : this.activeIndexes) {
+                out.writeInt(index.size);
+            }
+            for(ActiveIndex index : this.activeIndexes) {
+                index.sort();
+                for(int i = 0; i < index.size; i++) {
+                    out.writeLong(index.keys[i]);
+                    out.writeLong(index.offsets[i]);
+                }
+            }
+        }
+        Files.move(tempFile.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if(!this.mapIndex()) {
+            throw new IOException("Unable to map " + this.indexFile.getName());
+        }
+        this.activeIndexes = null;
+    }
+
+    /**
+     * Adds the offsets of every entry whose key for the index lies between fromKey and toKey, inclusive.
+     *
+     * @param index   the index to search
+     * @param fromKey lowest key
+     * @param toKey   highest key
+     * @param out     receives the offsets
+     */
+    void collect(HistoryIndex index, long fromKey, long toKey, OffsetBuffer out) {
+        int ordinal = index.ordinal();
+        if(!this.isSealed()) {
+            this.activeIndexes[ordinal].collect(fromKey, toKey, out);
+            return;
+        }
+        int start = this.sectionStarts[ordinal];
+        int low = 0;
+        int high = this.sectionCounts[ordinal];
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(this.sealedIndex.getLong(start + mid * INDEX_ENTRY_SIZE) < fromKey) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for(int i = low; i < this.sectionCounts[ordinal]; i++) {
+            int position = start + i * INDEX_ENTRY_SIZE;
+            if(this.sealedIndex.getLong(position) > toKey) {
+                break;
+            }
+            out.add(this.sealedIndex.getLong(position + 8));
+        }
+    }
+
+    /**
+     * Reads the entry stored at an offset.
+     *
+     * @param offset offset of the record
+     * @return the entry
+     * @throws IOException if the entry can't be read
+     */
+    AuctionHistoryEntry read(long offset) throws IOException {
+        this.lengthBuffer.clear();
+        this.readFully(this.lengthBuffer, offset);
+        ByteBuffer payload = ByteBuffer.allocate(this.lengthBuffer.getInt(0));
+        this.readFully(payload, offset + 4);
+        return AuctionHistoryEntry.read(new DataInputStream(new ByteArrayInputStream(payload.array())));
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    void close() throws IOException {
+        this.channel.close();
+        this.file.close();
+    }
+
+    int getId() {
+        return this.id;
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    long getMaxTime() {
+        return this.maxTime;
+    }
+
+    boolean isSealed() {
+        return this.sealedIndex != null;
+    }
+
+    private static final class ActiveIndex {
+
+        private long[] keys = new long[256];
+        private long[] offsets = new long[256];
+        private int size = 0;
+
+        private void add(long key, long offset) {
+            if(this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+                this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+            }
+            this.keys[this.size] = key;
+            this.offsets[this.size] = offset;
+            this.size++;
+        }
+
+        private void collect(long fromKey, long toKey, OffsetBuffer out) {
+            for(int i = 0; i < this.size; i++) {
+                long key = this.keys[i];
+                if(key >= fromKey && key <= toKey) {
+                    out.add(this.offsets[i]);
+                }
+            }
+        }
+
+        /**
+         * Sorts by key then offset, offsets are appended in ascending order so a stable sort on the key is enough.
+         */
+        private void sort() {
+            Integer[] order = new Integer[this.size];
+            for(int i = 0; i < this.size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(this.keys[a], this.keys[b]));
+            long[] sortedKeys = new long[this.size];
+            long[] sortedOffsets = new long[this.size];
+            for(int i = 0; i < this.size; i++) {
+                sortedKeys[i] = this.keys[order[i]];
+                sortedOffsets[i] = this.offsets[order[i]];
+            }
+            this.keys = sortedKeys;
+            this.offsets = sortedOffsets;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.gmail.virustotalop.obsidianauctions.history;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of record offsets which avoids boxing while collecting index matches.
+ */
+final class OffsetBuffer {
+
+    private long[] offsets = new long[64];
+    private int size = 0;
+
+    void add(long offset) {
+        if(this.size == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+        }
+        this.offsets[this.size++] = offset;
+    }
+
+    /**
+     * Sorts the offsets ascending and removes duplicates.
+     */
+    void sortDistinct() {
+        if(this.size < 2) {
+            return;
+        }
+        Arrays.sort(this.offsets, 0, this.size);
+        int unique = 1;
+        for(int i = 1; i < this.size; i++) {
+            if(this.offsets[i] != this.offsets[unique - 1]) {
+                this.offsets[unique++] = this.offsets[i];
+            }
+        }
+        this.size = unique;
+    }
+
+    long get(int index) {
+        return this.offsets[index];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void clear() {
+        this.size = 0;
+    }
+}
@@ -1,10 +1,9 @@
 package com.gmail.virustotalop.obsidianauctions.inject;
 
-import com.clubobsidian.wrappy.Configuration;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionProhibitionManager;
-import com.gmail.virustotalop.obsidianauctions.inject.annotation.I18nItemConfig;
 import com.gmail.virustotalop.obsidianauctions.language.I18nTranslationFactory;
 import com.gmail.virustotalop.obsidianauctions.language.TranslationFactory;
+import com.gmail.virustotalop.obsidianauctions.language.TranslationIndex;
 import com.gmail.virustotalop.obsidianauctions.listener.InventoryClickListener;
 import com.gmail.virustotalop.obsidianauctions.listener.PlayerListener;
 import com.gmail.virustotalop.obsidianauctions.message.ActionBarManager;
@@ -13,28 +12,31 @@ import com.gmail.virustotalop.obsidianauctions.message.AuctionMessageParser;
 import com.gmail.virustotalop.obsidianauctions.message.MessageManager;
 import com.google.inject.Binder;
 import com.google.inject.Module;
+import com.google.inject.multibindings.Multibinder;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import org.bukkit.event.Listener;
 
 public class AuctionModule implements Module {
 
     private final BukkitAudiences adventure;
-    private final Configuration i18nItemConfig;
+    private final TranslationIndex translationIndex;
 
-    public AuctionModule(BukkitAudiences adventure, Configuration i18nItemConfig) {
+    public AuctionModule(BukkitAudiences adventure, TranslationIndex translationIndex) {
         this.adventure = adventure;
-        this.i18nItemConfig = i18nItemConfig;
+        this.translationIndex = translationIndex;
     }
 
     @Override
     public void configure(Binder binder) {
         binder.bind(BukkitAudiences.class).toInstance(this.adventure);
-        binder.bind(Configuration.class).annotatedWith(I18nItemConfig.class).toInstance(this.i18nItemConfig);
+        binder.bind(TranslationIndex.class).toInstance(this.translationIndex);
         binder.bind(TranslationFactory.class).to(I18nTranslationFactory.class).asEagerSingleton();
         binder.bind(ActionBarManager.class).asEagerSingleton();
         binder.bind(AuctionMessageParser.class).asEagerSingleton();
         binder.bind(MessageManager.class).to(AuctionMessageManager.class);
         binder.bind(AuctionProhibitionManager.class).asEagerSingleton();
-        binder.bind(InventoryClickListener.class).asEagerSingleton();
-        binder.bind(PlayerListener.class).asEagerSingleton();
+        Multibinder<Listener> listeners = Multibinder.newSetBinder(binder, Listener.class);
+        listeners.addBinding().to(InventoryClickListener.class).asEagerSingleton();
+        listeners.addBinding().to(PlayerListener.class).asEagerSingleton();
     }
 }
@@ -1,11 +0,0 @@
-package com.gmail.virustotalop.obsidianauctions.inject.annotation;
-
-import com.google.inject.BindingAnnotation;
-
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-
-@BindingAnnotation
-@Retention(RetentionPolicy.RUNTIME)
-public @interface I18nItemConfig {
-}
@@ -0,0 +1,265 @@
+package com.gmail.virustotalop.obsidianauctions.journal;
+
+import com.gmail.virustotalop.obsidianauctions.auction.Auction;
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionBid;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Structured, append only journal of auction events. Records are queued by the caller and appended
+ * by a background thread in a length-prefixed, checksummed binary format which can be read back with {@link JournalReader}.
+ * Before appending, whatever a crash left after the last complete record is cut off.
+ */
+public class AuctionJournal {
+
+    static final int MAGIC = 0x4F414A31; // OAJ1
+    static final int VERSION = 2;
+    static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private static final JournalRecord STOP = new JournalRecord(JournalRecordType.END, 0, null, null,
+            null, null, 0, 0, 0, 0);
+
+    private final File journalFile;
+    private final Logger logger;
+    private final boolean enabled;
+    private final BlockingQueue<JournalRecord> queue = new LinkedBlockingQueue<>();
+    private Thread thread;
+    // Set by the appender when it gave up, records are dropped from then on
+    private volatile boolean failed = false;
+
+    /**
+     * @param journalFile the journal file to append to
+     * @param logger      logger to report io problems to
+     * @param enabled     whether records should be written at all
+     */
+    public AuctionJournal(File journalFile, Logger logger, boolean enabled) {
+        this.journalFile = journalFile;
+        this.logger = logger;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts the appender thread.
+     */
+    public void start() {
+        if(!this.enabled || this.thread != null) {
+            return;
+        }
+        this.failed = false;
+        this.thread = new Thread(this::run, "ObsidianAuctions-Journal");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stops the appender thread after everything queued so far has been written.
+     */
+    public void close() {
+        if(this.thread == null) {
+            return;
+        }
+        this.queue.add(STOP);
+        try {
+            this.thread.join(10000L);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.thread = null;
+    }
+
+    /**
+     * Queues a record to be appended.
+     *
+     * @param record the record
+     */
+    public void record(JournalRecord record) {
+        if(this.isWriting()) {
+            this.queue.add(record);
+        }
+    }
+
+    public void start(Auction auction) {
+        this.record(auction, JournalRecordType.START, auction.getOwnerUUID(), null,
+                auction.getStartingBid(), auction.getBuyNow());
+    }
+
+    public void bid(Auction auction, AuctionBid bid) {
+        this.record(auction, JournalRecordType.BID, bid.getBidderUUID(), null,
+                bid.getBidAmount(), bid.getMaxBidAmount());
+    }
+
+    public void outbid(Auction auction, AuctionBid loser, AuctionBid winner) {
+        this.record(auction, JournalRecordType.OUTBID, loser.getBidderUUID(), winner.getBidderUUID(),
+                winner.getBidAmount(), 0);
+    }
+
+    public void buyNow(Auction auction, AuctionBid bid) {
+        this.record(auction, JournalRecordType.BUY_NOW, bid.getBidderUUID(), null, bid.getBidAmount(), 0);
+    }
+
+    public void end(Auction auction) {
+        AuctionBid winner = auction.getCurrentBid();
+        this.record(auction, JournalRecordType.END, auction.getOwnerUUID(),
+                winner == null ? null : winner.getBidderUUID(),
+                winner == null ? 0 : winner.getBidAmount(), 0);
+    }
+
+    public void cancel(Auction auction) {
+        this.record(auction, JournalRecordType.CANCEL, auction.getOwnerUUID(), null, 0, 0);
+    }
+
+    public void confiscate(Auction auction, UUID authority) {
+        this.record(auction, JournalRecordType.CONFISCATE, authority, auction.getOwnerUUID(), 0, 0);
+    }
+
+    public void tax(Auction auction, UUID payer, long tax, long taxedAmount) {
+        this.record(auction, JournalRecordType.TAX, payer, null, tax, taxedAmount);
+    }
+
+    /**
+     * Records a change of the funds an auction holds from a bidder.
+     *
+     * @param auction the auction
+     * @param bidder  uuid of the bidder
+     * @param held    funds held after the change
+     * @param delta   the change, negative when funds left the escrow
+     */
+    public void escrow(Auction auction, UUID bidder, long held, long delta) {
+        this.record(auction, JournalRecordType.ESCROW, bidder, null, held, delta);
+    }
+
+    public void lotDelivery(UUID recipient, long fingerprint, int quantity) {
+        if(!this.isWriting()) {
+            return;
+        }
+        this.record(new JournalRecord(JournalRecordType.LOT_DELIVERY, System.currentTimeMillis(), null, null,
+                recipient, null, 0, 0, fingerprint, quantity));
+    }
+
+    private void record(Auction auction, JournalRecordType type, UUID actor, UUID subject,
+                        long amount, long secondaryAmount) {
+        if(!this.isWriting()) {
+            return;
+        }
+        this.record(new JournalRecord(type, System.currentTimeMillis(), auction.getAuctionId(),
+                auction.getScope().getScopeId(), actor, subject, amount, secondaryAmount,
+                auction.getLotFingerprint(), auction.getLotQuantity()));
+    }
+
+    private boolean isWriting() {
+        return this.thread != null && !this.failed;
+    }
+
+    private void run() {
+        List<JournalRecord> batch = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream payload = new DataOutputStream(buffer);
+        CRC32 crc = new CRC32();
+        boolean newFile;
+        try {
+            newFile = !this.repair();
+        } catch(IOException e) {
+            this.fail(e);
+            return;
+        }
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.journalFile, true), 1 << 16))) {
+            if(newFile) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.flush();
+            }
+            boolean running = true;
+            while(running) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch);
+                for(JournalRecord record : batch) {
+                    if(record == STOP) {
+                        running = false;
+                        continue;
+                    }
+                    buffer.reset();
+                    record.write(payload);
+                    crc.reset();
+                    crc.update(buffer.toByteArray(), 0, buffer.size());
+                    out.writeInt(buffer.size());
+                    buffer.writeTo(out);
+                    out.writeInt((int) crc.getValue());
+                }
+                batch.clear();
+                out.flush();
+            }
+        } catch(IOException e) {
+            this.fail(e);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cuts off a record which was only partially written when the server went down, so new records follow the
+     * last complete one. Journals of an older version are moved aside, they can still be read.
+     *
+     * @return whether the journal exists and can be appended to
+     * @throws IOException if the journal can't be repaired
+     */
+    private boolean repair() throws IOException {
+        if(!this.journalFile.exists() || this.journalFile.length() == 0) {
+            return false;
+        }
+        JournalReader opened;
+        try {
+            opened = new JournalReader(this.journalFile);
+        } catch(IOException e) {
+            // Cut off within the header or not a journal at all
+            File broken = new File(this.journalFile.getPath() + ".broken");
+            this.logger.log(Level.WARNING, "Unable to read " + this.journalFile.getName() + ", moving it to " + broken.getName(), e);
+            Files.move(this.journalFile.toPath(), broken.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return false;
+        }
+        long validLength;
+        try(JournalReader reader = opened) {
+            if(reader.getVersion() != VERSION) {
+                File old = new File(this.journalFile.getPath() + ".v" + reader.getVersion());
+                reader.close();
+                Files.move(this.journalFile.toPath(), old.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                this.logger.info("Moved the old " + this.journalFile.getName() + " to " + old.getName());
+                return false;
+            }
+            while(reader.next() != null) {
+                // Skip to the last complete record
+            }
+            validLength = reader.getPosition();
+        }
+        if(validLength < this.journalFile.length()) {
+            this.logger.warning("Cutting off " + (this.journalFile.length() - validLength)
+                    + " bytes of an incomplete record at the end of " + this.journalFile.getName());
+            try(FileChannel channel = FileChannel.open(this.journalFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        return true;
+    }
+
+    private void fail(IOException e) {
+        this.failed = true;
+        this.queue.clear();
+        this.logger.log(Level.SEVERE, "Unable to write to " + this.journalFile.getName() + ", auction events are no longer journaled", e);
+    }
+}
@@ -0,0 +1,149 @@
+package com.gmail.virustotalop.obsidianauctions.journal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads records back from an auction journal. A record that was only partially written,
+ * for instance because the server crashed, ends the journal instead of failing the read.
+ */
+public class JournalReader implements Closeable {
+
+    private static final int HEADER_SIZE = 4 + 4;
+
+    private final DataInputStream in;
+    private final int version;
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[128];
+    private long position = HEADER_SIZE;
+    private boolean ended = false;
+
+    /**
+     * Opens a journal for reading.
+     *
+     * @param journalFile the journal file
+     * @throws IOException if the file can't be opened or is not a journal
+     */
+    public JournalReader(File journalFile) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), 1 << 16));
+        try {
+            if(this.in.readInt() != AuctionJournal.MAGIC) {
+                throw new IOException(journalFile.getName() + " is not an auction journal");
+            }
+            this.version = this.in.readInt();
+            if(this.version > AuctionJournal.VERSION) {
+                throw new IOException("Unsupported journal version " + this.version);
+            }
+        } catch(IOException e) {
+            this.in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next record, records of unknown types are skipped.
+     *
+     * @return the next record or null at the end of the journal
+     * @throws IOException if the journal can't be read
+     */
+    public JournalRecord next() throws IOException {
+        while(!this.ended) {
+            int length;
+            try {
+                length = this.in.readInt();
+                if(length <= 0 || length > AuctionJournal.MAX_RECORD_SIZE) {
+                    break;
+                }
+                if(length > this.buffer.length) {
+                    this.buffer = new byte[Math.max(length, this.buffer.length * 2)];
+                }
+                this.in.readFully(this.buffer, 0, length);
+                if(this.version >= 2) {
+                    int checksum = this.in.readInt();
+                    this.crc.reset();
+                    this.crc.update(this.buffer, 0, length);
+                    if((int) this.crc.getValue() != checksum) {
+                        break;
+                    }
+                }
+            } catch(EOFException e) {
+                break;
+            }
+            this.position += 4 + length + (this.version >= 2 ? 4 : 0);
+            JournalRecord record = JournalRecord.read(new DataInputStream(new ByteArrayInputStream(this.buffer, 0, length)));
+            if(record != null) {
+                return record;
+            }
+        }
+        this.ended = true;
+        return null;
+    }
+
+    /**
+     * @return the format version of the journal
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Gets the length of the journal up to the end of the last complete record read so far, anything after it
+     * is what a crash left behind once {@link #next()} returned null.
+     *
+     * @return the position in bytes
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Replays every record of a journal in the order they were written.
+     *
+     * @param journalFile the journal file
+     * @param consumer    receives each record
+     * @return the amount of records replayed
+     * @throws IOException if the journal can't be read
+     */
+    public static int replay(File journalFile, Consumer<JournalRecord> consumer) throws IOException {
+        if(!journalFile.exists() || journalFile.length() == 0) {
+            return 0;
+        }
+        int count = 0;
+        try(JournalReader reader = new JournalReader(journalFile)) {
+            JournalRecord record;
+            while((record = reader.next()) != null) {
+                consumer.accept(record);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Prints a journal in a human readable form, usage: JournalReader &lt;journal file&gt;
+     *
+     * @param args command line arguments
+     * @throws IOException if the journal can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) {
+            System.out.println("Usage: JournalReader <journal file>");
+            return;
+        }
+        int count = replay(new File(args[0]), System.out::println);
+        System.out.println(count + " records");
+    }
+}
@@ -0,0 +1,153 @@
+package com.gmail.virustotalop.obsidianauctions.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A single immutable entry of the auction journal. Money is stored in "safe money".
+ *
+ * <ul>
+ *     <li>START: actor is the owner, amount is the starting bid and secondary amount the buy now price</li>
+ *     <li>BID: actor is the bidder, amount is the bid and secondary amount the max bid</li>
+ *     <li>OUTBID: actor is the outbid player, subject the new leader and amount the leading bid</li>
+ *     <li>BUY_NOW: actor is the buyer and amount the buy now price</li>
+ *     <li>END: actor is the owner, subject the winner if any and amount the winning bid</li>
+ *     <li>CANCEL: actor is the owner</li>
+ *     <li>CONFISCATE: actor is the confiscating authority and subject the owner</li>
+ *     <li>TAX: actor is the payer, amount is the tax and secondary amount the taxed bid, zero for start taxes</li>
+ *     <li>LOT_DELIVERY: actor is the recipient and quantity the amount of items delivered</li>
+ * </ul>
+ */
+public final class JournalRecord {
+
+    private final JournalRecordType type;
+    private final long timestamp;
+    private final UUID auctionId;
+    private final String scopeId;
+    private final UUID actor;
+    private final UUID subject;
+    private final long amount;
+    private final long secondaryAmount;
+    private final long fingerprint;
+    private final int quantity;
+
+    public JournalRecord(JournalRecordType type, long timestamp, UUID auctionId, String scopeId, UUID actor,
+                         UUID subject, long amount, long secondaryAmount, long fingerprint, int quantity) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.auctionId = auctionId;
+        this.scopeId = scopeId;
+        this.actor = actor;
+        this.subject = subject;
+        this.amount = amount;
+        this.secondaryAmount = secondaryAmount;
+        this.fingerprint = fingerprint;
+        this.quantity = quantity;
+    }
+
+    public JournalRecordType getType() {
+        return this.type;
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public UUID getAuctionId() {
+        return this.auctionId;
+    }
+
+    public String getScopeId() {
+        return this.scopeId;
+    }
+
+    public UUID getActor() {
+        return this.actor;
+    }
+
+    public UUID getSubject() {
+        return this.subject;
+    }
+
+    public long getAmount() {
+        return this.amount;
+    }
+
+    public long getSecondaryAmount() {
+        return this.secondaryAmount;
+    }
+
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public int getQuantity() {
+        return this.quantity;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(this.type.getId());
+        out.writeLong(this.timestamp);
+        writeUUID(out, this.auctionId);
+        out.writeUTF(this.scopeId == null ? "" : this.scopeId);
+        writeUUID(out, this.actor);
+        writeUUID(out, this.subject);
+        out.writeLong(this.amount);
+        out.writeLong(this.secondaryAmount);
+        out.writeLong(this.fingerprint);
+        out.writeInt(this.quantity);
+    }
+
+    static JournalRecord read(DataInput in) throws IOException {
+        JournalRecordType type = JournalRecordType.fromId(in.readUnsignedByte());
+        if(type == null) {
+            return null;
+        }
+        long timestamp = in.readLong();
+        UUID auctionId = readUUID(in);
+        String scopeId = in.readUTF();
+        UUID actor = readUUID(in);
+        UUID subject = readUUID(in);
+        long amount = in.readLong();
+        long secondaryAmount = in.readLong();
+        long fingerprint = in.readLong();
+        int quantity = in.readInt();
+        return new JournalRecord(type, timestamp, auctionId, scopeId.isEmpty() ? null : scopeId,
+                actor, subject, amount, secondaryAmount, fingerprint, quantity);
+    }
+
+    private static void writeUUID(DataOutput out, UUID uuid) throws IOException {
+        if(uuid == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInput in) throws IOException {
+        if(!in.readBoolean()) {
+            return null;
+        }
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "type=" + this.type +
+                ", timestamp=" + this.timestamp +
+                ", auctionId=" + this.auctionId +
+                ", scopeId=" + this.scopeId +
+                ", actor=" + this.actor +
+                ", subject=" + this.subject +
+                ", amount=" + this.amount +
+                ", secondaryAmount=" + this.secondaryAmount +
+                ", fingerprint=" + Long.toHexString(this.fingerprint) +
+                ", quantity=" + this.quantity +
+                '}';
+    }
+}
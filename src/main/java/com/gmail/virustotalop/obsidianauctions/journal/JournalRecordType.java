@@ -0,0 +1,54 @@
+package com.gmail.virustotalop.obsidianauctions.journal;
+
+/**
+ * The kinds of records written to the auction journal, ids are part of the file format and must never change.
+ */
+public enum JournalRecordType {
+
+    START(0),
+    BID(1),
+    OUTBID(2),
+    BUY_NOW(3),
+    END(4),
+    CANCEL(5),
+    CONFISCATE(6),
+    TAX(7),
+    LOT_DELIVERY(8),
+    ESCROW(9);
+
+    private static final JournalRecordType[] BY_ID = new JournalRecordType[values().length];
+
+    static {
+        for(JournalRecordType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    private final int id;
+
+    JournalRecordType(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the id written to disk for this type.
+     *
+     * @return the type id
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Gets a type by the id written to disk.
+     *
+     * @param id the type id
+     * @return the type or null if the id is unknown
+     */
+    public static JournalRecordType fromId(int id) {
+        if(id < 0 || id >= BY_ID.length) {
+            return null;
+        }
+        return BY_ID[id];
+    }
+}
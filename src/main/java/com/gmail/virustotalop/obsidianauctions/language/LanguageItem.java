@@ -1,21 +1,31 @@
 package com.gmail.virustotalop.obsidianauctions.language;
 
+import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
 import com.gmail.virustotalop.obsidianauctions.nbt.NBTCompound;
-import com.gmail.virustotalop.obsidianauctions.util.LegacyUtil;
 import org.bukkit.Material;
-import org.bukkit.inventory.ItemStack;
+
+import java.util.logging.Level;
 
 public class LanguageItem {
 
     private final Material type;
     private final short durability;
-    private final NBTCompound compound;
+    private final String nbt;
     private final String translation;
+    // Compiled on first use
+    private NBTCompound compound;
+    private boolean compiled = false;
 
-    public LanguageItem(Material type, short durability, NBTCompound compound, String translation) {
+    /**
+     * @param type        material of the item
+     * @param durability  durability of the item
+     * @param nbt         nbt the item must have in Mojangson, null to match any
+     * @param translation the translated name
+     */
+    public LanguageItem(Material type, short durability, String nbt, String translation) {
         this.type = type;
         this.durability = durability;
-        this.compound = compound;
+        this.nbt = nbt;
         this.translation = translation;
     }
 
@@ -23,24 +33,33 @@ public class LanguageItem {
         return this.type;
     }
 
+    public short getDurability() {
+        return this.durability;
+    }
+
+    public String getNbt() {
+        return this.nbt;
+    }
+
     public String getTranslation() {
         return this.translation;
     }
 
-    public boolean matches(ItemStack itemStack) {
-        if(this.type != itemStack.getType()) {
-            return false;
-        } else if(this.durability != LegacyUtil.getDurability(itemStack)) {
-            return false;
-        }
-        if(this.compound != null) {
-            NBTCompound stackComp = new NBTCompound(itemStack);
-            for(String key : this.compound.getKeys()) {
-                Object tag = stackComp.get(key);
+    /**
+     * Checks an item which has the type and durability of this translation.
+     *
+     * @param itemTag tag of the item, only needed if {@link #getNbt()} is not null
+     * @return whether the item has all nbt of this translation
+     */
+    public boolean matches(NBTCompound itemTag) {
+        NBTCompound compound = this.getCompound();
+        if(compound != null) {
+            for(String key : compound.getKeys()) {
+                Object tag = itemTag.get(key);
                 if(tag == null) {
                     return false;
                 }
-                if(!tag.equals(this.compound.get(key))) {
+                if(!tag.equals(compound.get(key))) {
                     return false;
                 }
             }
@@ -48,12 +67,26 @@ public class LanguageItem {
         return true;
     }
 
+    private NBTCompound getCompound() {
+        if(!this.compiled) {
+            this.compiled = true;
+            if(this.nbt != null) {
+                try {
+                    this.compound = new NBTCompound(this.nbt);
+                } catch(Exception ex) {
+                    ObsidianAuctions.get().getLogger().log(Level.SEVERE, "Invalid nbt: " + this.nbt, ex);
+                }
+            }
+        }
+        return this.compound;
+    }
+
     @Override
     public String toString() {
         return "LanguageItem{" +
                 "type=" + this.type +
                 ", durability=" + this.durability +
-                ", compound=" + this.compound +
+                ", nbt=" + this.nbt +
                 ", translation='" + this.translation + '\'' +
                 '}';
     }
@@ -0,0 +1,233 @@
+package com.gmail.virustotalop.obsidianauctions.language;
+
+import com.clubobsidian.wrappy.Configuration;
+import com.gmail.virustotalop.obsidianauctions.nbt.NBTCompound;
+import com.gmail.virustotalop.obsidianauctions.util.VersionUtil;
+import org.bukkit.Material;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Item translations of an item language file. Parsing the yaml is slow, so the parsed entries are cached in a binary
+ * index next to it. The index is keyed by a hash of the yaml and the server version and rebuilt when either changes.
+ */
+public class TranslationIndex {
+
+    private static final int MAGIC = 0x4F414C49; // OALI
+    private static final int VERSION = 1;
+    private static final String SEPARATOR = "<sep>";
+
+    // By material and durability, in file order
+    private final Map<Material, Map<Short, List<LanguageItem>>> items;
+
+    private TranslationIndex(Map<Material, Map<Short, List<LanguageItem>>> items) {
+        this.items = items;
+    }
+
+    /**
+     * Whether there are translations for a material.
+     *
+     * @param type the material
+     * @return true if any translation has the material
+     */
+    public boolean hasItems(Material type) {
+        return this.items.containsKey(type);
+    }
+
+    /**
+     * Gets the translations for a material and durability.
+     *
+     * @param type       the material
+     * @param durability the durability
+     * @return the translations in file order, empty if there are none
+     */
+    public Collection<LanguageItem> getItems(Material type, short durability) {
+        Map<Short, List<LanguageItem>> byDurability = this.items.get(type);
+        if(byDurability == null) {
+            return Collections.emptyList();
+        }
+        List<LanguageItem> items = byDurability.get(durability);
+        return items == null ? Collections.emptyList() : items;
+    }
+
+    /**
+     * Loads the translations of an item language file, from its index if it is up to date.
+     *
+     * @param file   the yaml file
+     * @param logger logger to report problems to
+     * @return the translations
+     */
+    public static TranslationIndex load(File file, Logger logger) {
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        File indexFile = new File(file.getParentFile(), (extension > 0 ? name.substring(0, extension) : name) + ".idx");
+        byte[] hash;
+        try {
+            hash = hash(file);
+        } catch(IOException e) {
+            logger.log(Level.SEVERE, "Unable to read " + name, e);
+            return new TranslationIndex(Collections.emptyMap());
+        }
+        if(indexFile.exists()) {
+            try {
+                TranslationIndex index = read(indexFile, hash);
+                if(index != null) {
+                    return index;
+                }
+            } catch(IOException e) {
+                logger.log(Level.WARNING, "Unable to read " + indexFile.getName() + ", rebuilding it", e);
+            }
+        }
+        List<LanguageItem> parsed = parse(Configuration.load(file), logger);
+        try {
+            write(indexFile, hash, parsed);
+        } catch(IOException e) {
+            logger.log(Level.SEVERE, "Unable to save " + indexFile.getName(), e);
+        }
+        return new TranslationIndex(group(parsed));
+    }
+
+    private static byte[] hash(File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Files.readAllBytes(file.toPath()));
+            // Which materials exist depends on the server version
+            String version = VersionUtil.getVersion();
+            digest.update((version == null ? "" : version).getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch(NoSuchAlgorithmException e) {
+            // Every java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TranslationIndex read(File indexFile, byte[] hash) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexFile.toPath())));
+        if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return null;
+        }
+        byte[] indexHash = new byte[in.readUnsignedByte()];
+        in.readFully(indexHash);
+        if(!Arrays.equals(hash, indexHash)) {
+            return null;
+        }
+        int count = in.readInt();
+        List<LanguageItem> items = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            Material material = Material.getMaterial(in.readUTF());
+            short durability = in.readShort();
+            String nbt = in.readBoolean() ? in.readUTF() : null;
+            String translation = in.readUTF();
+            if(material == null) {
+                return null;
+            }
+            items.add(new LanguageItem(material, durability, nbt, translation));
+        }
+        return new TranslationIndex(group(items));
+    }
+
+    private static void write(File indexFile, byte[] hash, List<LanguageItem> items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(hash.length);
+            out.write(hash);
+            out.writeInt(items.size());
+            for(LanguageItem item : items) {
+                out.writeUTF(item.getType().name());
+                out.writeShort(item.getDurability());
+                out.writeBoolean(item.getNbt() != null);
+                if(item.getNbt() != null) {
+                    out.writeUTF(item.getNbt());
+                }
+                out.writeUTF(item.getTranslation());
+            }
+        }
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        Files.write(tempFile.toPath(), bytes.toByteArray());
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<Material, Map<Short, List<LanguageItem>>> group(List<LanguageItem> items) {
+        Map<Material, Map<Short, List<LanguageItem>>> map = new HashMap<>();
+        for(LanguageItem item : items) {
+            map.computeIfAbsent(item.getType(), type -> new HashMap<>())
+                    .computeIfAbsent(item.getDurability(), durability -> new ArrayList<>()).add(item);
+        }
+        return map;
+    }
+
+    private static List<LanguageItem> parse(Configuration config, Logger logger) {
+        List<LanguageItem> items = new ArrayList<>();
+        for(String key : config.getKeys()) {
+            LanguageItem item = parseItem(key, config.getString(key), logger);
+            if(item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private static LanguageItem parseItem(String key, String translation, Logger logger) {
+        int separator = key.indexOf(SEPARATOR);
+        String materialName = separator == -1 ? key : key.substring(0, separator);
+        Material material = Material.getMaterial(materialName);
+        if(material == null) {
+            logger.log(Level.SEVERE, "No material found for: " + key);
+            return null;
+        }
+        if(separator == -1) {
+            return new LanguageItem(material, (short) 0, null, translation);
+        }
+        String data = key.substring(separator + SEPARATOR.length());
+        if(data.contains(SEPARATOR)) {
+            logger.log(Level.SEVERE, "Invalid length for: " + key);
+            return null;
+        }
+        if(isShort(data)) {
+            return new LanguageItem(material, Short.parseShort(data), null, translation);
+        }
+        try {
+            // Validated once here, the index only holds nbt which parses
+            new NBTCompound(data);
+            return new LanguageItem(material, (short) 0, data, translation);
+        } catch(Exception ex) {
+            logger.log(Level.SEVERE, "Invalid nbt: " + data, ex);
+            return new LanguageItem(material, (short) 0, null, translation);
+        }
+    }
+
+    private static boolean isShort(String parse) {
+        int length = parse.length();
+        if(length == 0 || length > 6) {
+            return false;
+        }
+        for(int i = parse.charAt(0) == '-' ? 1 : 0; i < length; i++) {
+            if(!Character.isDigit(parse.charAt(i))) {
+                return false;
+            }
+        }
+        int value = Integer.parseInt(parse);
+        return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+    }
+}
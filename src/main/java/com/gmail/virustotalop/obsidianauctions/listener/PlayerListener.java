@@ -11,12 +11,15 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerPortalEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 
 import java.util.List;
@@ -38,6 +41,28 @@ public class PlayerListener implements Listener {
         AuctionScope.sendWelcomeMessage(player, true);
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerPreLogin(AsyncPlayerPreLoginEvent event) {
+        ObsidianAuctions plugin = ObsidianAuctions.get();
+        if(plugin != null && event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            // Off the main thread, so the record is ready by the time the player joins
+            plugin.getPlayerData().load(event.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerLogin(PlayerLoginEvent event) {
+        if(event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            ObsidianAuctions.get().getPlayerData().unload(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerQuit(PlayerQuitEvent event) {
+        ObsidianAuctions.get().getPlayerData().unload(event.getPlayer().getUniqueId());
+        ObsidianAuctions.get().getEconomyBridge().invalidateBalance(event.getPlayer().getName());
+    }
+
     @EventHandler(priority = EventPriority.LOWEST)
     public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
         // Hopefully the teleport and portal things I just added will make this obsolete, but I figure I'll keep it just to make sure.
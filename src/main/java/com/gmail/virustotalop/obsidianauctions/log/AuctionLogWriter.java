@@ -0,0 +1,353 @@
+package com.gmail.virustotalop.obsidianauctions.log;
+
+import org.bukkit.ChatColor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Background writer for auctions.log. Lines are claimed into a preallocated ring buffer on the
+ * calling thread and formatted, written and rotated on a single writer thread which keeps the log
+ * file open between batches.
+ */
+public class AuctionLogWriter {
+
+    private static final String DATE_PATTERN = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+    private final File logFile;
+    private final Logger logger;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+    private final long maxFileSize;
+    private final boolean rotateDaily;
+    private final boolean compressRotated;
+
+    private final Object lock = new Object();
+    private final Entry[] ring;
+    private final int mask;
+    private long head = 0;
+    private long tail = 0;
+    private long dropped = 0;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // Only touched by the writer thread
+    private final StringBuilder builder = new StringBuilder(256);
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN, Locale.US);
+    private long lastDateSecond = -1;
+    private String lastDate = null;
+    private FileOutputStream fileStream;
+    private FileChannel channel;
+    private Writer writer;
+    private LocalDate openedOn;
+
+    /**
+     * @param logFile             the active log file
+     * @param logger              logger to report io problems to
+     * @param capacity            amount of lines the ring buffer can hold, rounded up to a power of two
+     * @param flushIntervalMillis max time a line waits before being written
+     * @param flushBatchSize      amount of pending lines that triggers an early flush
+     * @param maxFileSize         size in bytes that triggers a rotation, zero or less disables it
+     * @param rotateDaily         whether to rotate when the date changes
+     * @param compressRotated     whether to gzip rotated files
+     */
+    public AuctionLogWriter(File logFile, Logger logger, int capacity, long flushIntervalMillis,
+                            int flushBatchSize, long maxFileSize, boolean rotateDaily, boolean compressRotated) {
+        this.logFile = logFile;
+        this.logger = logger;
+        this.flushIntervalMillis = Math.max(flushIntervalMillis, 1);
+        this.flushBatchSize = Math.max(flushBatchSize, 1);
+        this.maxFileSize = maxFileSize;
+        this.rotateDaily = rotateDaily;
+        this.compressRotated = compressRotated;
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.ring = new Entry[size];
+        for(int i = 0; i < size; i++) {
+            this.ring[i] = new Entry();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public void start() {
+        if(this.running) {
+            return;
+        }
+        this.running = true;
+        this.thread = new Thread(this::run, "ObsidianAuctions-Log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a line to be logged, this never blocks on io.
+     *
+     * @param playerName who is initiating the logged event
+     * @param scopeId    the scope id
+     * @param message    message to save
+     * @return false if the buffer was full and the line was dropped
+     */
+    public boolean log(String playerName, String scopeId, String message) {
+        long now = System.currentTimeMillis();
+        synchronized(this.lock) {
+            if(!this.claim(now, playerName, scopeId, message)) {
+                return false;
+            }
+            if(this.head - this.tail >= this.flushBatchSize) {
+                this.lock.notify();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queues several lines which share a player and scope, for instance the lines of one broadcast.
+     *
+     * @param playerName who is initiating the logged event
+     * @param scopeId    the scope id
+     * @param messages   messages to save
+     * @return false if any line was dropped
+     */
+    public boolean log(String playerName, String scopeId, List<String> messages) {
+        long now = System.currentTimeMillis();
+        boolean queuedAll = true;
+        synchronized(this.lock) {
+            for(int i = 0; i < messages.size(); i++) {
+                queuedAll &= this.claim(now, playerName, scopeId, messages.get(i));
+            }
+            if(this.head - this.tail >= this.flushBatchSize) {
+                this.lock.notify();
+            }
+        }
+        return queuedAll;
+    }
+
+    private boolean claim(long now, String playerName, String scopeId, String message) {
+        if(this.head - this.tail >= this.ring.length) {
+            this.dropped++;
+            return false;
+        }
+        Entry entry = this.ring[(int) (this.head & this.mask)];
+        entry.time = now;
+        entry.playerName = playerName;
+        entry.scopeId = scopeId;
+        entry.message = message;
+        this.head++;
+        return true;
+    }
+
+    /**
+     * Stops the writer thread after it has written everything queued so far.
+     */
+    public void close() {
+        if(!this.running) {
+            return;
+        }
+        synchronized(this.lock) {
+            this.running = false;
+            this.lock.notify();
+        }
+        try {
+            this.thread.join(10000L);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            this.open();
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to open " + this.logFile.getName(), e);
+        }
+        long nextFlush = System.currentTimeMillis() + this.flushIntervalMillis;
+        while(true) {
+            long end;
+            long droppedLines;
+            boolean stopping;
+            synchronized(this.lock) {
+                while(this.running && this.head - this.tail < this.flushBatchSize) {
+                    long wait = nextFlush - System.currentTimeMillis();
+                    if(wait <= 0) {
+                        break;
+                    }
+                    try {
+                        this.lock.wait(wait);
+                    } catch(InterruptedException e) {
+                        this.running = false;
+                    }
+                }
+                end = this.head;
+                droppedLines = this.dropped;
+                this.dropped = 0;
+                stopping = !this.running;
+            }
+            this.writeBatch(end, droppedLines);
+            nextFlush = System.currentTimeMillis() + this.flushIntervalMillis;
+            if(stopping) {
+                synchronized(this.lock) {
+                    if(this.head == this.tail) {
+                        break;
+                    }
+                }
+            }
+        }
+        this.closeWriter();
+    }
+
+    private void writeBatch(long end, long droppedLines) {
+        long start = this.tail;
+        if(start == end && droppedLines == 0) {
+            return;
+        }
+        try {
+            if(this.writer == null) {
+                this.open();
+            }
+            if(this.rotateDaily && !LocalDate.now().equals(this.openedOn)) {
+                this.rotate();
+            }
+            if(droppedLines > 0) {
+                this.appendLine(System.currentTimeMillis(), "ObsidianAuctions", "NOSCOPE",
+                        droppedLines + " log lines were dropped because the log buffer was full");
+            }
+            for(long seq = start; seq < end; seq++) {
+                Entry entry = this.ring[(int) (seq & this.mask)];
+                this.appendLine(entry.time, entry.playerName, entry.scopeId, entry.message);
+                entry.playerName = null;
+                entry.scopeId = null;
+                entry.message = null;
+            }
+            this.writer.flush();
+            if(this.maxFileSize > 0 && this.channel.size() >= this.maxFileSize) {
+                this.rotate();
+            }
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to write to " + this.logFile.getName(), e);
+            this.closeWriter();
+        } finally {
+            synchronized(this.lock) {
+                this.tail = end;
+            }
+        }
+    }
+
+    private void appendLine(long time, String playerName, String scopeId, String message) throws IOException {
+        StringBuilder line = this.builder;
+        line.setLength(0);
+        line.append(this.formatDate(time))
+                .append(" (")
+                .append(playerName)
+                .append(", ")
+                .append(scopeId)
+                .append("): ")
+                .append(ChatColor.stripColor(message))
+                .append(System.lineSeparator());
+        this.writer.append(line);
+    }
+
+    private String formatDate(long time) {
+        long second = time / 1000L;
+        if(second != this.lastDateSecond) {
+            this.lastDateSecond = second;
+            this.lastDate = this.dateFormat.format(new Date(time));
+        }
+        return this.lastDate;
+    }
+
+    private void open() throws IOException {
+        File parent = this.logFile.getParentFile();
+        if(parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.fileStream = new FileOutputStream(this.logFile, true);
+        this.channel = this.fileStream.getChannel();
+        this.writer = new BufferedWriter(new OutputStreamWriter(this.fileStream, StandardCharsets.UTF_8), 1 << 16);
+        this.openedOn = this.logFile.length() > 0 ?
+                Instant.ofEpochMilli(this.logFile.lastModified()).atZone(ZoneId.systemDefault()).toLocalDate() :
+                LocalDate.now();
+    }
+
+    private void rotate() throws IOException {
+        LocalDate date = this.openedOn == null ? LocalDate.now() : this.openedOn;
+        this.closeWriter();
+        if(this.logFile.length() > 0) {
+            String baseName = this.logFile.getName();
+            int dot = baseName.lastIndexOf('.');
+            String prefix = dot == -1 ? baseName : baseName.substring(0, dot);
+            String suffix = dot == -1 ? "" : baseName.substring(dot);
+            File rotated;
+            int index = 1;
+            do {
+                rotated = new File(this.logFile.getParentFile(), prefix + "-" + date + "-" + index + suffix);
+                index++;
+            } while(rotated.exists() || new File(rotated.getPath() + ".gz").exists());
+
+            if(this.logFile.renameTo(rotated) && this.compressRotated) {
+                this.compress(rotated);
+            }
+        }
+        this.open();
+        this.openedOn = LocalDate.now();
+    }
+
+    private void compress(File file) {
+        File compressed = new File(file.getPath() + ".gz");
+        byte[] buffer = new byte[1 << 16];
+        try(InputStream in = new FileInputStream(file);
+            OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed), buffer.length)) {
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch(IOException e) {
+            this.logger.log(Level.WARNING, "Unable to compress " + file.getName(), e);
+            compressed.delete();
+            return;
+        }
+        file.delete();
+    }
+
+    private void closeWriter() {
+        if(this.writer == null) {
+            return;
+        }
+        try {
+            this.writer.close();
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to close " + this.logFile.getName(), e);
+        }
+        this.writer = null;
+        this.channel = null;
+        this.fileStream = null;
+    }
+
+    private static final class Entry {
+
+        private long time;
+        private String playerName;
+        private String scopeId;
+        private String message;
+    }
+}
@@ -15,7 +15,9 @@ import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class AuctionMessageManager extends MessageManager {
@@ -77,6 +79,21 @@ public class AuctionMessageManager extends MessageManager {
         this.sendMessage(messageKeys, recipient, auctionScope, false);
     }
 
+    @Override
+    public void sendPlayerMessage(String messageKey, UUID playerUUID, Map<String, String> replacements) {
+        CommandSender recipient = null;
+        if(playerUUID == null) {
+            recipient = Bukkit.getConsoleSender();
+        } else {
+            recipient = Bukkit.getPlayer(playerUUID);
+        }
+        AuctionScope auctionScope = null;
+        if(recipient instanceof Player) {
+            auctionScope = AuctionScope.getPlayerScope((Player) recipient);
+        }
+        this.sendMessage(Collections.singletonList(messageKey), recipient, auctionScope, false, replacements);
+    }
+
     @Override
     public void broadcastAuctionMessage(String messageKey, Auction auction) {
         List<String> messageKeys = new ArrayList<>();
@@ -114,6 +131,19 @@ public class AuctionMessageManager extends MessageManager {
      * @param fullBroadcast whether to broadcast or send to player
      */
     private void sendMessage(List<String> messageKeys, CommandSender sender, AuctionScope auctionScope, boolean fullBroadcast) {
+        this.sendMessage(messageKeys, sender, auctionScope, fullBroadcast, Collections.emptyMap());
+    }
+
+    /**
+     * Sends a message to a player or scope.
+     *
+     * @param messageKeys   keys to message in language.yml
+     * @param sender        focused player
+     * @param auctionScope  focused scope
+     * @param fullBroadcast whether to broadcast or send to player
+     * @param replacements  additional tokens to replace
+     */
+    private void sendMessage(List<String> messageKeys, CommandSender sender, AuctionScope auctionScope, boolean fullBroadcast, Map<String, String> replacements) {
         Auction auction = null;
         Player player = null;
 
@@ -131,27 +161,25 @@ public class AuctionMessageManager extends MessageManager {
             }
         }
 
-        List<String> messages = this.parser.parseMessages(messageKeys, auctionScope, auction, player, fullBroadcast);
+        List<String> messages = this.parser.parseMessages(messageKeys, auctionScope, auction, player, fullBroadcast, replacements);
 
         if(fullBroadcast) {
             broadcastMessage(messages, auctionScope);
         } else if(player != null) {
             for(String message : messages) {
                 this.adventure.player(player).sendMessage(MiniMessage.get().parse(message));
-                ObsidianAuctions.get().log(player.getName(), message, auctionScope);
             }
+            ObsidianAuctions.get().log(player.getName(), messages, auctionScope);
         } else if(sender != null) {
             ConsoleCommandSender console = Bukkit.getConsoleSender();
             for(String message : messages) {
                 console.sendMessage(ChatColor.stripColor(GsonComponentSerializer
                         .gson()
                         .serialize(MiniMessage.get().parse(message))));
-                ObsidianAuctions.get().log("CONSOLE", message, auctionScope);
             }
+            ObsidianAuctions.get().log("CONSOLE", messages, auctionScope);
         } else {
-            for(String message : messages) {
-                ObsidianAuctions.get().log("NO TARGET!", message, auctionScope);
-            }
+            ObsidianAuctions.get().log("NO TARGET!", messages, auctionScope);
         }
     }
 
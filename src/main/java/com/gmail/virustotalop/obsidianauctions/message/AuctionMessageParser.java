@@ -20,14 +20,25 @@ import org.bukkit.inventory.ItemStack;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 public class AuctionMessageParser {
 
+    private static final int MAX_DESCRIPTIONS = 64;
+
     private final TranslationFactory translation;
+    // Rendered item placeholders by lot fingerprint and scope, guarded by itself
+    private final Map<String, ItemDescription> descriptions = new LinkedHashMap<String, ItemDescription>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ItemDescription> eldest) {
+            return this.size() > MAX_DESCRIPTIONS;
+        }
+    };
 
     @Inject
     private AuctionMessageParser(TranslationFactory translation) {
@@ -42,6 +53,18 @@ public class AuctionMessageParser {
      * @return List of actual messages to send
      */
     public List<String> parseMessages(List<String> messageKeys, AuctionScope auctionScope, Auction auction, Player player, boolean isBroadcast) {
+        return this.parseMessages(messageKeys, auctionScope, auction, player, isBroadcast, Collections.emptyMap());
+    }
+
+    /**
+     * Gets the messages from the language.yml file based on the keys passed in.
+     *
+     * @param messageKeys       Keys specified in the language.yml file
+     * @param auctionScope      A scope to check for local messages
+     * @param extraReplacements Additional tokens to replace
+     * @return List of actual messages to send
+     */
+    public List<String> parseMessages(List<String> messageKeys, AuctionScope auctionScope, Auction auction, Player player, boolean isBroadcast, Map<String, String> extraReplacements) {
         List<String> messageList = new ArrayList<>();
 
         for(int l = 0; l < messageKeys.size(); l++) {
@@ -64,13 +87,26 @@ public class AuctionMessageParser {
             }
             messageList.addAll(partialMessageList);
         }
-        return parseMessageTokens(messageList, auctionScope, auction, player, isBroadcast);
+        return parseMessageTokens(messageList, auctionScope, auction, player, isBroadcast, extraReplacements);
     }
 
-    private List<String> parseMessageTokens(List<String> messageList, AuctionScope auctionScope, Auction auction, Player player, boolean isBroadcast) {
+    private ItemDescription describe(Auction auction, ItemStack lot, AuctionScope auctionScope) {
+        String key = auction.getLotFingerprint() + ":" + (auctionScope == null ? "" : auctionScope.getScopeId());
+        synchronized(this.descriptions) {
+            ItemDescription description = this.descriptions.get(key);
+            if(description == null || !description.isCurrent(auctionScope)) {
+                description = new ItemDescription(lot, auctionScope, this.translation);
+                this.descriptions.put(key, description);
+            }
+            return description;
+        }
+    }
+
+    private List<String> parseMessageTokens(List<String> messageList, AuctionScope auctionScope, Auction auction, Player player, boolean isBroadcast, Map<String, String> extraReplacements) {
         List<String> newMessageList = new ArrayList<>();
-        Map<String, String> replacements = new HashMap<>();
+        Map<String, String> replacements = new HashMap<>(extraReplacements);
         ItemStack lot = null;
+        ItemDescription description = null;
 
         if(auction == null && auctionScope != null) {
             auction = auctionScope.getActiveAuction();
@@ -130,39 +166,8 @@ public class AuctionMessageParser {
                 if(auction != null) {
                     lot = auction.getLotType();
                     if(lot != null) {
-                        replacements.put("%item-material-name%", this.translation.getTranslation(lot)); //%L1
-                        replacements.put("%item-display-name%", Items.getDisplayName(lot)); //%L2
-                        if(replacements.get("%item-display-name%") == null || replacements.get("%item-display-name%").isEmpty()) {
-                            replacements.put("%item-display-name%", replacements.get("%item-material-name%"));
-                        }
-                        if(Items.getFireworkPower(lot) != null) {
-                            replacements.put("%item-firework-power%", Integer.toString(Items.getFireworkPower(lot))); //%L3
-                        }
-                        if(Items.getBookAuthor(lot) != null) {
-                            replacements.put("%item-book-author%", Items.getBookAuthor(lot)); //%L4
-                        }
-                        if(Items.getBookTitle(lot) != null) {
-                            replacements.put("%item-book-title%", Items.getBookTitle(lot)); //%L5
-                        }
-                        if(lot.getType().getMaxDurability() > 0) {
-                            DecimalFormat decimalFormat = new DecimalFormat("#%");
-                            replacements.put("%item-durability-left%", decimalFormat.format((1 - ((double) lot.getDurability() / (double) lot.getType().getMaxDurability())))); //%L6
-                        }
-                        Map<Enchantment, Integer> enchantments = lot.getEnchantments();
-                        if(enchantments == null || enchantments.size() == 0) {
-                            enchantments = Items.getStoredEnchantments(lot);
-                        }
-                        if(enchantments != null) {
-                            String enchantmentList = "";
-                            String enchantmentSeparator = ChatColor.translateAlternateColorCodes('&', AuctionConfig.getLanguageString("auction-info-enchantment-separator", auctionScope));
-                            for(Map.Entry<Enchantment, Integer> enchantment : enchantments.entrySet()) {
-                                if(!enchantmentList.isEmpty()) enchantmentList += enchantmentSeparator;
-                                enchantmentList += Items.getEnchantmentName(enchantment);
-                            }
-                            if(enchantmentList.isEmpty())
-                                enchantmentList = ChatColor.translateAlternateColorCodes('&', AuctionConfig.getLanguageString("auction-info-enchantment-none", auctionScope));
-                            replacements.put("%item-enchantments%", enchantmentList); //%L7
-                        }
+                        description = this.describe(auction, lot, auctionScope);
+                        description.addReplacements(replacements);
                     }
                 }
                 break;
@@ -227,6 +232,7 @@ public class AuctionMessageParser {
                 conditionals.put("is-admin", player != null && ObsidianAuctions.get().getPermission().has(player, "auction.admin")); //1
                 conditionals.put("can-start", player != null && ObsidianAuctions.get().getPermission().has(player, "auction.start")); //2
                 conditionals.put("can-bid", player != null && ObsidianAuctions.get().getPermission().has(player, "auction.bid")); //3
+                conditionals.put("can-view-history", player != null && ObsidianAuctions.get().getPermission().has(player, "auction.history"));
                 conditionals.put("has-display-name", lot != null && ObsidianAuctions.allowRenamedItems && lot.getItemMeta() != null && lot.getItemMeta().hasDisplayName());
                 conditionals.put("has-enchantment", lot != null && lot.getEnchantments() != null && lot.getEnchantments().size() > 0); //5
                 conditionals.put("is-sealed", auction != null && auction.sealed); //6
@@ -272,80 +278,18 @@ public class AuctionMessageParser {
 
             // Only one repeatable can be processed per line.
             if(message.contains("%repeatable")) {
-                // Mental note: I'm not caching these because there is no reason to use them more than once per message.
                 if(message.contains("%repeatable-enchantments%")) // Enchantments
                 {
-                    if(lot != null) {
-                        // Stored enchantments and regular ones are treated identically.
-                        Map<Enchantment, Integer> enchantments = lot.getEnchantments();
-                        if(enchantments == null) {
-                            enchantments = Items.getStoredEnchantments(lot);
-                        } else {
-                            Map<Enchantment, Integer> storedEnchantments = Items.getStoredEnchantments(lot);
-                            if(storedEnchantments != null) {
-                                enchantments.putAll(storedEnchantments);
-                            }
-                        }
-                        if(enchantments != null && enchantments.size() > 0) {
-                            for(Map.Entry<Enchantment, Integer> enchantmentEntry : enchantments.entrySet()) {
-                                if(message.length() > 0) {
-                                    newMessageList.add(chatPrep(message, auctionScope).replace("%repeatable-enchantment%", Items.getEnchantmentName(enchantmentEntry)));
-                                }
-                            }
+                    if(description != null) {
+                        for(String enchantment : description.getEnchantmentLines()) {
+                            newMessageList.add(chatPrep(message, auctionScope).replace("%repeatable-enchantment%", enchantment));
                         }
                     }
                 } else if(message.contains("%repeatable-firework-payload%")) { // Firework aspects
-                    FireworkEffect[] payloads = Items.getFireworkEffects(lot);
-                    if(payloads != null && payloads.length > 0) {
-                        for(int j = 0; j < payloads.length; j++) {
-                            FireworkEffect payload = payloads[j];
-                            // %A lists all aspects of the payload
-
-                            String payloadAspects = "";
-                            String payloadSeparator = ChatColor.translateAlternateColorCodes('&', AuctionConfig.getLanguageString("auction-info-payload-separator", auctionScope));
-
-                            FireworkEffect.Type type = payload.getType();
-                            if(type != null) {
-                                if(!payloadAspects.isEmpty()) payloadAspects += payloadSeparator;
-                                String fireworkShape = AuctionConfig.getLanguageString("firework-shapes." + type.toString(), auctionScope);
-                                if(fireworkShape == null) {
-                                    payloadAspects += type.toString();
-                                } else {
-                                    payloadAspects += ChatColor.translateAlternateColorCodes('&', fireworkShape);
-                                }
-                            }
-                            List<Color> colors = payload.getColors();
-                            for(int k = 0; k < colors.size(); k++) {
-                                if(!payloadAspects.isEmpty()) {
-                                    payloadAspects += payloadSeparator;
-                                }
-                                Color color = colors.get(k);
-                                String colorRGB = color.toString().replace("Color:[rgb0x", "").replace("]", "");
-                                String fireworkColor = AuctionConfig.getLanguageString("firework-colors." + colorRGB, auctionScope);
-                                if(fireworkColor == null) {
-                                    payloadAspects += "#" + colorRGB;
-                                } else {
-                                    payloadAspects += ChatColor.translateAlternateColorCodes('&', fireworkColor);
-                                }
-                            }
-                            if(payload.hasFlicker()) {
-                                if(!payloadAspects.isEmpty()) {
-                                    payloadAspects += payloadSeparator;
-                                }
-
-                                payloadAspects += ChatColor.translateAlternateColorCodes('&', AuctionConfig.getLanguageString("firework-twinkle", auctionScope));
-                            }
-                            if(payload.hasTrail()) {
-                                if(!payloadAspects.isEmpty()) {
-                                    payloadAspects += payloadSeparator;
-                                }
-                                payloadAspects += ChatColor.translateAlternateColorCodes('&', AuctionConfig.getLanguageString("firework-trail", auctionScope));
-                            }
-                            if(message.length() > 0) {
-                                newMessageList.add(chatPrep(message, auctionScope).replace("%repeatable-firework-payload%", payloadAspects));
-                            }
+                    if(description != null) {
+                        for(String payload : description.getPayloadLines()) {
+                            newMessageList.add(chatPrep(message, auctionScope).replace("%repeatable-firework-payload%", payload));
                         }
-                        continue;
                     }
                 } else if(message.contains("%repeatable-lore%")) {
                     if(auction != null) {
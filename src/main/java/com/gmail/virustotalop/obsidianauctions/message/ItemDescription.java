@@ -0,0 +1,157 @@
+package com.gmail.virustotalop.obsidianauctions.message;
+
+import com.clubobsidian.wrappy.Configuration;
+import com.gmail.virustotalop.obsidianauctions.AuctionConfig;
+import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionScope;
+import com.gmail.virustotalop.obsidianauctions.language.TranslationFactory;
+import com.gmail.virustotalop.obsidianauctions.util.Items;
+import org.bukkit.ChatColor;
+import org.bukkit.Color;
+import org.bukkit.FireworkEffect;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item placeholders of a lot rendered for a scope. None of it changes while the lot is auctioned, so it is built once
+ * and reused for every message until the language is reloaded.
+ */
+final class ItemDescription {
+
+    private final AuctionScope scope;
+    private final Configuration textConfig;
+    private final Map<String, String> replacements = new HashMap<>();
+    private final List<String> enchantmentLines;
+    private final List<String> payloadLines;
+
+    ItemDescription(ItemStack lot, AuctionScope scope, TranslationFactory translation) {
+        this.scope = scope;
+        this.textConfig = ObsidianAuctions.textConfig;
+        this.replacements.put("%item-material-name%", translation.getTranslation(lot)); //%L1
+        String displayName = Items.getDisplayName(lot);
+        this.replacements.put("%item-display-name%", displayName == null || displayName.isEmpty() ? this.replacements.get("%item-material-name%") : displayName); //%L2
+        Integer fireworkPower = Items.getFireworkPower(lot);
+        if(fireworkPower != null) {
+            this.replacements.put("%item-firework-power%", Integer.toString(fireworkPower)); //%L3
+        }
+        String bookAuthor = Items.getBookAuthor(lot);
+        if(bookAuthor != null) {
+            this.replacements.put("%item-book-author%", bookAuthor); //%L4
+        }
+        String bookTitle = Items.getBookTitle(lot);
+        if(bookTitle != null) {
+            this.replacements.put("%item-book-title%", bookTitle); //%L5
+        }
+        if(lot.getType().getMaxDurability() > 0) {
+            DecimalFormat decimalFormat = new DecimalFormat("#%");
+            this.replacements.put("%item-durability-left%", decimalFormat.format((1 - ((double) lot.getDurability() / (double) lot.getType().getMaxDurability())))); //%L6
+        }
+
+        Map<Enchantment, Integer> enchantments = lot.getEnchantments();
+        Map<Enchantment, Integer> storedEnchantments = Items.getStoredEnchantments(lot);
+        Map<Enchantment, Integer> listed = enchantments == null || enchantments.isEmpty() ? storedEnchantments : enchantments;
+        if(listed != null) {
+            StringBuilder enchantmentList = new StringBuilder();
+            String enchantmentSeparator = this.language("auction-info-enchantment-separator");
+            for(Map.Entry<Enchantment, Integer> enchantment : listed.entrySet()) {
+                if(enchantmentList.length() > 0) {
+                    enchantmentList.append(enchantmentSeparator);
+                }
+                enchantmentList.append(Items.getEnchantmentName(enchantment));
+            }
+            this.replacements.put("%item-enchantments%", enchantmentList.length() > 0 ? enchantmentList.toString() : this.language("auction-info-enchantment-none")); //%L7
+        }
+
+        // Stored enchantments and regular ones are treated identically.
+        Map<Enchantment, Integer> allEnchantments = new LinkedHashMap<>();
+        if(enchantments != null) {
+            allEnchantments.putAll(enchantments);
+        }
+        if(storedEnchantments != null) {
+            allEnchantments.putAll(storedEnchantments);
+        }
+        List<String> enchantmentLines = new ArrayList<>();
+        for(Map.Entry<Enchantment, Integer> enchantment : allEnchantments.entrySet()) {
+            enchantmentLines.add(Items.getEnchantmentName(enchantment));
+        }
+        this.enchantmentLines = Collections.unmodifiableList(enchantmentLines);
+        this.payloadLines = Collections.unmodifiableList(this.renderPayloads(Items.getFireworkEffects(lot)));
+    }
+
+    /**
+     * Whether this description was rendered for the scope with the currently loaded language.
+     *
+     * @param scope the scope
+     * @return false if it has to be rendered again
+     */
+    boolean isCurrent(AuctionScope scope) {
+        return this.scope == scope && this.textConfig == ObsidianAuctions.textConfig;
+    }
+
+    void addReplacements(Map<String, String> replacements) {
+        replacements.putAll(this.replacements);
+    }
+
+    /**
+     * @return one line per enchantment for %repeatable-enchantments%
+     */
+    List<String> getEnchantmentLines() {
+        return this.enchantmentLines;
+    }
+
+    /**
+     * @return one line per firework payload for %repeatable-firework-payload%
+     */
+    List<String> getPayloadLines() {
+        return this.payloadLines;
+    }
+
+    private List<String> renderPayloads(FireworkEffect[] payloads) {
+        List<String> lines = new ArrayList<>();
+        if(payloads == null) {
+            return lines;
+        }
+        String payloadSeparator = this.language("auction-info-payload-separator");
+        for(FireworkEffect payload : payloads) {
+            // Lists all aspects of the payload
+            List<String> aspects = new ArrayList<>();
+            FireworkEffect.Type type = payload.getType();
+            if(type != null) {
+                String fireworkShape = AuctionConfig.getLanguageString("firework-shapes." + type.toString(), this.scope);
+                aspects.add(fireworkShape == null ? type.toString() : ChatColor.translateAlternateColorCodes('&', fireworkShape));
+            }
+            for(Color color : payload.getColors()) {
+                String colorRGB = toHex(color);
+                String fireworkColor = AuctionConfig.getLanguageString("firework-colors." + colorRGB, this.scope);
+                aspects.add(fireworkColor == null ? "#" + colorRGB : ChatColor.translateAlternateColorCodes('&', fireworkColor));
+            }
+            if(payload.hasFlicker()) {
+                aspects.add(this.language("firework-twinkle"));
+            }
+            if(payload.hasTrail()) {
+                aspects.add(this.language("firework-trail"));
+            }
+            lines.add(String.join(payloadSeparator, aspects));
+        }
+        return lines;
+    }
+
+    private String language(String key) {
+        return ChatColor.translateAlternateColorCodes('&', AuctionConfig.getLanguageString(key, this.scope));
+    }
+
+    /**
+     * Same digits as Color.toString() without the prefix, which is how the firework-colors keys are written.
+     */
+    private static String toHex(Color color) {
+        return (Integer.toHexString(color.getRed()) + Integer.toHexString(color.getGreen()) + Integer.toHexString(color.getBlue())).toUpperCase();
+    }
+}
@@ -4,6 +4,7 @@ import com.gmail.virustotalop.obsidianauctions.auction.Auction;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionScope;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public abstract class MessageManager {
@@ -44,6 +45,15 @@ public abstract class MessageManager {
      */
     public abstract void sendPlayerMessage(List<String> messageKeys, UUID playerUUID, AuctionScope auctionScope);
 
+    /**
+     * Sends a message to a player with additional tokens which are not tied to an auction.
+     *
+     * @param messageKey   message key used by floAuction
+     * @param playerUUID   uuid of player or null for console
+     * @param replacements tokens including their percent signs mapped to their values
+     */
+    public abstract void sendPlayerMessage(String messageKey, UUID playerUUID, Map<String, String> replacements);
+
     /**
      * Sends a message to anyone in the scope of a given auction.
      *
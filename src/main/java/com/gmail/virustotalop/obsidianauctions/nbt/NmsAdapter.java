@@ -0,0 +1,33 @@
+package com.gmail.virustotalop.obsidianauctions.nbt;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Set;
+
+/**
+ * Access to the server internals needed for nbt, selected once for the running server version by {@link NmsAdapters}.
+ * Compounds are passed around as the server's own NBTTagCompound objects.
+ */
+public interface NmsAdapter {
+
+    /**
+     * Parses a compound from Mojangson.
+     *
+     * @param mojangson the compound in Mojangson
+     * @return the compound, null if nbt is not supported on this server version
+     * @throws Exception if the Mojangson is invalid
+     */
+    Object parseCompound(String mojangson) throws Exception;
+
+    /**
+     * Gets the tag of an item.
+     *
+     * @param itemStack the item
+     * @return the compound, null if the item has no tag
+     */
+    Object getTag(ItemStack itemStack);
+
+    Set<String> getKeys(Object compound);
+
+    Object get(Object compound, String key);
+}
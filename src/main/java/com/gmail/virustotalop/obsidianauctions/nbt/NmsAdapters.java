@@ -0,0 +1,75 @@
+package com.gmail.virustotalop.obsidianauctions.nbt;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selects the {@link NmsAdapter} for the running server once.
+ */
+public final class NmsAdapters {
+
+    private static final NmsAdapter ADAPTER;
+    private static final Throwable FAILURE;
+
+    static {
+        NmsAdapter adapter;
+        Throwable failure = null;
+        try {
+            adapter = new ReflectionNmsAdapter();
+        } catch(ExceptionInInitializerError | NoClassDefFoundError e) {
+            adapter = new UnsupportedNmsAdapter();
+            failure = e instanceof ExceptionInInitializerError ? e.getCause() : e;
+        }
+        ADAPTER = adapter;
+        FAILURE = failure;
+    }
+
+    /**
+     * @return the adapter for the running server
+     */
+    public static NmsAdapter get() {
+        return ADAPTER;
+    }
+
+    /**
+     * Selects the adapter, called on startup so the lookups aren't paid for by the first item which needs them.
+     *
+     * @param logger logger to report an unsupported server to
+     */
+    public static void load(Logger logger) {
+        if(FAILURE != null) {
+            logger.log(Level.WARNING, "Unable to access nbt on this server version, the nbt of item translations will be ignored", FAILURE);
+        }
+    }
+
+    private NmsAdapters() {
+    }
+
+    private static final class UnsupportedNmsAdapter implements NmsAdapter {
+
+        @Override
+        public Object parseCompound(String mojangson) {
+            // Already reported on startup, the compound has no keys so the nbt is ignored
+            return null;
+        }
+
+        @Override
+        public Object getTag(ItemStack itemStack) {
+            return null;
+        }
+
+        @Override
+        public Set<String> getKeys(Object compound) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Object get(Object compound, String key) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gmail.virustotalop.obsidianauctions.nbt;
+
+import com.gmail.virustotalop.obsidianauctions.util.VersionUtil;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * Adapter for servers which keep their internals in versioned net.minecraft.server and craftbukkit packages.
+ * The methods are looked up once into static method handles, which the JIT treats as constants and inlines.
+ */
+final class ReflectionNmsAdapter implements NmsAdapter {
+
+    private static final MethodHandle PARSE;
+    private static final MethodHandle GET_KEYS;
+    private static final MethodHandle GET;
+    private static final MethodHandle AS_NMS_COPY;
+    private static final MethodHandle GET_TAG;
+
+    static {
+        String version = VersionUtil.getVersion();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            Class<?> parser = Class.forName("net.minecraft.server." + version + ".MojangsonParser");
+            PARSE = lookup.unreflect(parser.getDeclaredMethod("parse", String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            Class<?> compound = Class.forName("net.minecraft.server." + version + ".NBTTagCompound");
+            Method keys = null;
+            for(Method method : compound.getDeclaredMethods()) {
+                if(method.getReturnType().equals(Set.class) && method.getParameterCount() == 0) {
+                    keys = method;
+                    break;
+                }
+            }
+            if(keys == null) {
+                throw new NoSuchMethodException(compound.getName() + " has no key set");
+            }
+            GET_KEYS = lookup.unreflect(keys).asType(MethodType.methodType(Set.class, Object.class));
+            GET = lookup.unreflect(compound.getDeclaredMethod("get", String.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, String.class));
+            Class<?> craftItemStack = Class.forName("org.bukkit.craftbukkit." + version + ".inventory.CraftItemStack");
+            Method asNMSCopy = craftItemStack.getMethod("asNMSCopy", ItemStack.class);
+            AS_NMS_COPY = lookup.unreflect(asNMSCopy).asType(MethodType.methodType(Object.class, ItemStack.class));
+            GET_TAG = lookup.unreflect(asNMSCopy.getReturnType().getMethod("getTag"))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch(ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public Object parseCompound(String mojangson) throws Exception {
+        try {
+            return (Object) PARSE.invokeExact(mojangson);
+        } catch(Exception | Error e) {
+            throw e;
+        } catch(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public Object getTag(ItemStack itemStack) {
+        try {
+            // asNMSCopy takes any bukkit stack
+            Object nmsStack = (Object) AS_NMS_COPY.invokeExact(itemStack);
+            return (Object) GET_TAG.invokeExact(nmsStack);
+        } catch(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getKeys(Object compound) {
+        try {
+            return (Set<String>) GET_KEYS.invokeExact(compound);
+        } catch(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public Object get(Object compound, String key) {
+        try {
+            return (Object) GET.invokeExact(compound, key);
+        } catch(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.gmail.virustotalop.obsidianauctions.price;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps streaming sale statistics per material and per item fingerprint. Statistics are updated as auctions end
+ * so lookups never have to read the auction history. Fingerprints are kept in a bounded least recently used map.
+ */
+public class PriceStatistics {
+
+    private static final int MAGIC = 0x4F415053; // OAPS
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Logger logger;
+    private final double alpha;
+    private final int compression;
+    private final int suggestPercent;
+    private final int suggestMinSales;
+    private final Map<String, PriceStats> materials = new HashMap<>();
+    private final Map<Long, PriceStats> fingerprints;
+    private boolean dirty = false;
+
+    /**
+     * @param file            file the statistics are persisted to
+     * @param logger          logger to report io problems to
+     * @param alpha           weight of a new sale in the recent price, between 0 and 1
+     * @param compression     accuracy of the quantile sketches
+     * @param maxFingerprints maximum amount of fingerprints to keep statistics for
+     * @param suggestPercent  percentage of the median price to suggest as starting bid, zero disables suggestions
+     * @param suggestMinSales amount of sales needed before a starting bid is suggested
+     */
+    public PriceStatistics(File file, Logger logger, double alpha, int compression, int maxFingerprints,
+                           int suggestPercent, int suggestMinSales) {
+        this.file = file;
+        this.logger = logger;
+        this.alpha = alpha;
+        this.compression = compression;
+        this.suggestPercent = suggestPercent;
+        this.suggestMinSales = suggestMinSales;
+        this.fingerprints = new LinkedHashMap<Long, PriceStats>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PriceStats> eldest) {
+                return this.size() > maxFingerprints;
+            }
+        };
+    }
+
+    /**
+     * Records a sale.
+     *
+     * @param material    material name of the sold items
+     * @param fingerprint fingerprint of the sold items
+     * @param winningBid  winning bid in floAuction's proprietary "safe money"
+     * @param quantity    amount of items sold
+     */
+    public void record(String material, long fingerprint, long winningBid, int quantity) {
+        if(quantity <= 0) {
+            return;
+        }
+        double unitPrice = (double) winningBid / quantity;
+        this.materials.computeIfAbsent(material.toUpperCase(), key -> new PriceStats(this.compression)).add(unitPrice, this.alpha);
+        this.fingerprints.computeIfAbsent(fingerprint, key -> new PriceStats(this.compression)).add(unitPrice, this.alpha);
+        this.dirty = true;
+    }
+
+    /**
+     * Gets the statistics of a material.
+     *
+     * @param material material name
+     * @return the statistics or null if none were sold
+     */
+    public PriceStats getMaterialStats(String material) {
+        return this.materials.get(material.toUpperCase());
+    }
+
+    /**
+     * Gets the statistics of an item fingerprint.
+     *
+     * @param fingerprint the item fingerprint
+     * @return the statistics or null if none were sold recently enough to be tracked
+     */
+    public PriceStats getFingerprintStats(long fingerprint) {
+        return this.fingerprints.get(fingerprint);
+    }
+
+    /**
+     * Gets the statistics for an item, preferring the exact fingerprint if it has enough sales.
+     *
+     * @param material    material name
+     * @param fingerprint the item fingerprint
+     * @param minSales    amount of sales needed before statistics are trusted
+     * @return the statistics or null if there are not enough sales
+     */
+    public PriceStats getStats(String material, long fingerprint, int minSales) {
+        PriceStats stats = this.getFingerprintStats(fingerprint);
+        if(stats != null && stats.getCount() >= minSales) {
+            return stats;
+        }
+        stats = this.getMaterialStats(material);
+        if(stats != null && stats.getCount() >= minSales) {
+            return stats;
+        }
+        return null;
+    }
+
+    /**
+     * Suggests a starting bid based on the median price previous sales of an item reached.
+     *
+     * @param material    material name
+     * @param fingerprint the item fingerprint
+     * @param quantity    amount of items being auctioned
+     * @return suggested starting bid in floAuction's proprietary "safe money", zero if there is no suggestion
+     */
+    public long suggestStartingBid(String material, long fingerprint, int quantity) {
+        if(this.suggestPercent <= 0) {
+            return 0;
+        }
+        PriceStats stats = this.getStats(material, fingerprint, Math.max(this.suggestMinSales, 1));
+        if(stats == null) {
+            return 0;
+        }
+        double median = stats.getQuantile(0.5);
+        return Double.isNaN(median) ? 0 : Math.round(median * quantity * this.suggestPercent / 100D);
+    }
+
+    /**
+     * Whether there are changes which have not been persisted.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Serializes the current statistics and clears the dirty flag, the result can be written with {@link #write(byte[])}.
+     *
+     * @return the encoded statistics
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.materials.size());
+            for(Map.Entry<String, PriceStats> entry : this.materials.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+            out.writeInt(this.fingerprints.size());
+            for(Map.Entry<Long, PriceStats> entry : this.fingerprints.entrySet()) {
+                out.writeLong(entry.getKey());
+                entry.getValue().write(out);
+            }
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.dirty = false;
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Atomically replaces the statistics file, safe to call from any thread.
+     *
+     * @param encoded statistics from {@link #encode()}
+     */
+    public synchronized void write(byte[] encoded) {
+        File tempFile = new File(this.file.getPath() + ".tmp");
+        try(OutputStream out = new FileOutputStream(tempFile)) {
+            out.write(encoded);
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to save " + this.file.getName(), e);
+            return;
+        }
+        try {
+            Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to save " + this.file.getName(), e);
+        }
+    }
+
+    /**
+     * Loads persisted statistics, replacing any in memory.
+     */
+    public void load() {
+        this.materials.clear();
+        this.fingerprints.clear();
+        if(!this.file.exists()) {
+            return;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                this.logger.log(Level.WARNING, this.file.getName() + " is not a supported price statistics file");
+                return;
+            }
+            int materialCount = in.readInt();
+            for(int i = 0; i < materialCount; i++) {
+                this.materials.put(in.readUTF(), PriceStats.read(in));
+            }
+            int fingerprintCount = in.readInt();
+            for(int i = 0; i < fingerprintCount; i++) {
+                this.fingerprints.put(in.readLong(), PriceStats.read(in));
+            }
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to load " + this.file.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.gmail.virustotalop.obsidianauctions.price;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Running sale statistics of a single item type, prices are per item in floAuction's proprietary "safe money".
+ */
+public final class PriceStats {
+
+    private long count = 0;
+    private double mean = 0;
+    private double ewma = 0;
+    private final QuantileSketch sketch;
+
+    PriceStats(int compression) {
+        this(new QuantileSketch(compression));
+    }
+
+    private PriceStats(QuantileSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    void add(double unitPrice, double alpha) {
+        this.count++;
+        this.mean += (unitPrice - this.mean) / this.count;
+        this.ewma = this.count == 1 ? unitPrice : this.ewma + alpha * (unitPrice - this.ewma);
+        this.sketch.add(unitPrice);
+    }
+
+    /**
+     * Gets the amount of recorded sales.
+     *
+     * @return amount of sales
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Gets the mean price per item over all sales.
+     *
+     * @return mean price per item
+     */
+    public double getMean() {
+        return this.mean;
+    }
+
+    /**
+     * Gets the exponentially weighted mean price per item, which favours recent sales.
+     *
+     * @return recent price per item
+     */
+    public double getRecent() {
+        return this.ewma;
+    }
+
+    /**
+     * Gets an approximate quantile of the price per item.
+     *
+     * @param quantile the quantile between 0 and 1
+     * @return approximate price per item
+     */
+    public double getQuantile(double quantile) {
+        return this.sketch.quantile(quantile);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(this.count);
+        out.writeDouble(this.mean);
+        out.writeDouble(this.ewma);
+        this.sketch.write(out);
+    }
+
+    static PriceStats read(DataInput in) throws IOException {
+        long count = in.readLong();
+        double mean = in.readDouble();
+        double ewma = in.readDouble();
+        PriceStats stats = new PriceStats(QuantileSketch.read(in));
+        stats.count = count;
+        stats.mean = mean;
+        stats.ewma = ewma;
+        return stats;
+    }
+}
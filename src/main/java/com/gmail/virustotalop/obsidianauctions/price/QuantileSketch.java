@@ -0,0 +1,176 @@
+package com.gmail.virustotalop.obsidianauctions.price;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Small merging t-digest. Values are buffered and periodically merged into a bounded amount of
+ * weighted centroids, centroids near the tails are kept small so extreme quantiles stay accurate.
+ */
+public final class QuantileSketch {
+
+    private static final int BUFFER_SIZE = 32;
+
+    private final int compression;
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int size = 0;
+    private double totalWeight = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private final double[] buffer = new double[BUFFER_SIZE];
+    private int buffered = 0;
+
+    /**
+     * @param compression roughly the amount of centroids kept, higher is more accurate
+     */
+    public QuantileSketch(int compression) {
+        this.compression = Math.max(compression, 10);
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        if(Double.isNaN(value)) {
+            return;
+        }
+        if(this.buffered == BUFFER_SIZE) {
+            this.compress();
+        }
+        this.buffer[this.buffered++] = value;
+        this.min = Double.isNaN(this.min) ? value : Math.min(this.min, value);
+        this.max = Double.isNaN(this.max) ? value : Math.max(this.max, value);
+    }
+
+    /**
+     * Gets an approximate quantile.
+     *
+     * @param quantile the quantile between 0 and 1
+     * @return the approximate value or NaN if the sketch is empty
+     */
+    public double quantile(double quantile) {
+        this.compress();
+        if(this.size == 0) {
+            return Double.NaN;
+        } else if(this.size == 1 || quantile <= 0) {
+            return quantile <= 0 ? this.min : this.means[0];
+        } else if(quantile >= 1) {
+            return this.max;
+        }
+
+        double target = quantile * this.totalWeight;
+        double cumulative = 0;
+        double previousCenter = 0;
+        double previousMean = this.min;
+        for(int i = 0; i < this.size; i++) {
+            double center = cumulative + (this.weights[i] / 2);
+            if(target < center) {
+                double span = center - previousCenter;
+                double fraction = span <= 0 ? 1 : (target - previousCenter) / span;
+                return previousMean + fraction * (this.means[i] - previousMean);
+            }
+            cumulative += this.weights[i];
+            previousCenter = center;
+            previousMean = this.means[i];
+        }
+        double span = this.totalWeight - previousCenter;
+        double fraction = span <= 0 ? 1 : (target - previousCenter) / span;
+        return previousMean + fraction * (this.max - previousMean);
+    }
+
+    /**
+     * Gets the amount of values added.
+     *
+     * @return total weight of the sketch
+     */
+    public long getCount() {
+        return (long) (this.totalWeight + this.buffered);
+    }
+
+    /**
+     * Gets the amount of centroids currently kept, mostly useful for checking memory use.
+     *
+     * @return amount of centroids
+     */
+    public int getCentroidCount() {
+        this.compress();
+        return this.size;
+    }
+
+    private void compress() {
+        if(this.buffered == 0) {
+            return;
+        }
+        Arrays.sort(this.buffer, 0, this.buffered);
+        int incoming = this.size + this.buffered;
+        double[] mergedMeans = new double[incoming];
+        double[] mergedWeights = new double[incoming];
+        int centroid = 0;
+        int value = 0;
+        for(int i = 0; i < incoming; i++) {
+            if(value >= this.buffered || (centroid < this.size && this.means[centroid] <= this.buffer[value])) {
+                mergedMeans[i] = this.means[centroid];
+                mergedWeights[i] = this.weights[centroid];
+                centroid++;
+            } else {
+                mergedMeans[i] = this.buffer[value];
+                mergedWeights[i] = 1;
+                value++;
+            }
+        }
+        this.totalWeight += this.buffered;
+        this.buffered = 0;
+
+        int out = 0;
+        double soFar = 0;
+        for(int i = 1; i < incoming; i++) {
+            double proposed = mergedWeights[out] + mergedWeights[i];
+            double quantile = (soFar + proposed / 2) / this.totalWeight;
+            double limit = 4 * this.totalWeight * quantile * (1 - quantile) / this.compression;
+            if(proposed <= Math.max(1, limit)) {
+                mergedMeans[out] += (mergedMeans[i] - mergedMeans[out]) * mergedWeights[i] / proposed;
+                mergedWeights[out] = proposed;
+            } else {
+                soFar += mergedWeights[out];
+                out++;
+                mergedMeans[out] = mergedMeans[i];
+                mergedWeights[out] = mergedWeights[i];
+            }
+        }
+        this.size = out + 1;
+        this.means = Arrays.copyOf(mergedMeans, this.size);
+        this.weights = Arrays.copyOf(mergedWeights, this.size);
+    }
+
+    void write(DataOutput out) throws IOException {
+        this.compress();
+        out.writeShort(this.compression);
+        out.writeDouble(this.min);
+        out.writeDouble(this.max);
+        out.writeShort(this.size);
+        for(int i = 0; i < this.size; i++) {
+            out.writeDouble(this.means[i]);
+            out.writeDouble(this.weights[i]);
+        }
+    }
+
+    static QuantileSketch read(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(in.readUnsignedShort());
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        sketch.size = in.readUnsignedShort();
+        sketch.means = new double[sketch.size];
+        sketch.weights = new double[sketch.size];
+        for(int i = 0; i < sketch.size; i++) {
+            sketch.means[i] = in.readDouble();
+            sketch.weights[i] = in.readDouble();
+            sketch.totalWeight += sketch.weights[i];
+        }
+        return sketch;
+    }
+}
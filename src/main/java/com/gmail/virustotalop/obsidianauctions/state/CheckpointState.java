@@ -0,0 +1,85 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionCheckpoint;
+import com.gmail.virustotalop.obsidianauctions.storage.CheckpointStore;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Auction checkpoints kept in a snapshot file plus write ahead log, changes are written right away.
+ */
+public class CheckpointState extends StateLog<LinkedHashMap<UUID, AuctionCheckpoint>> implements CheckpointStore {
+
+    private static final int PUT = 1;
+    private static final int REMOVE = 2;
+
+    public CheckpointState(File snapshotFile, Logger logger, int compactThreshold, PersistenceService persistence) {
+        super(snapshotFile, logger, compactThreshold, persistence);
+    }
+
+    @Override
+    public Collection<AuctionCheckpoint> getAll() {
+        return Collections.unmodifiableCollection(this.state.values());
+    }
+
+    @Override
+    public void put(AuctionCheckpoint checkpoint) {
+        this.state.put(checkpoint.getAuctionId(), checkpoint);
+        this.append(PUT, out -> {
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(checkpoint);
+            objects.flush();
+        });
+    }
+
+    @Override
+    public void remove(UUID auctionId) {
+        if(this.state.remove(auctionId) == null) {
+            return;
+        }
+        this.append(REMOVE, out -> {
+            out.writeLong(auctionId.getMostSignificantBits());
+            out.writeLong(auctionId.getLeastSignificantBits());
+        });
+    }
+
+    @Override
+    protected boolean isUrgent() {
+        return true;
+    }
+
+    @Override
+    protected LinkedHashMap<UUID, AuctionCheckpoint> createEmpty() {
+        return new LinkedHashMap<>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected LinkedHashMap<UUID, AuctionCheckpoint> fromSnapshot(Object snapshot) {
+        return new LinkedHashMap<>((Map<UUID, AuctionCheckpoint>) snapshot);
+    }
+
+    @Override
+    protected void apply(int op, DataInputStream in) throws IOException {
+        if(op == PUT) {
+            try {
+                AuctionCheckpoint checkpoint = (AuctionCheckpoint) new ObjectInputStream(in).readObject();
+                this.state.put(checkpoint.getAuctionId(), checkpoint);
+            } catch(ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        } else if(op == REMOVE) {
+            this.state.remove(new UUID(in.readLong(), in.readLong()));
+        }
+    }
+}
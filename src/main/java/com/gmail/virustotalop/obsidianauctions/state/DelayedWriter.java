@@ -0,0 +1,138 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the flushes of a store on a single background thread. Changes are coalesced, the first change schedules a flush
+ * after the flush delay which writes every change made in the meantime. A flush which could not write everything is
+ * retried with a growing delay. Other tasks of the store run on the same thread, so they are ordered with the flushes.
+ */
+public final class DelayedWriter {
+
+    private static final long MIN_RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 60000;
+
+    private final long flushDelay;
+    private final BooleanSupplier flush;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // Guarded by this
+    private boolean scheduled = false;
+    private boolean closed = false;
+
+    // Writer thread
+    private long retryDelay = 0;
+
+    /**
+     * @param threadName name of the background thread
+     * @param flushDelay milliseconds changes are collected for before they are written
+     * @param flush      writes the pending changes, returns false if some of them were kept to be retried
+     */
+    public DelayedWriter(String threadName, long flushDelay, BooleanSupplier flush) {
+        this.flushDelay = Math.max(flushDelay, 0);
+        this.flush = flush;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Schedules a flush after the flush delay unless one is scheduled already.
+     */
+    public void schedule() {
+        synchronized(this) {
+            if(this.scheduled || this.closed) {
+                return;
+            }
+            this.scheduled = true;
+        }
+        this.executor.schedule(this::runFlush, this.flushDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flushes right away, taking along whatever else is waiting.
+     */
+    public void flushNow() {
+        synchronized(this) {
+            if(this.closed) {
+                return;
+            }
+            this.scheduled = true;
+        }
+        this.executor.execute(this::runFlush);
+    }
+
+    /**
+     * Runs a task on the background thread.
+     *
+     * @param task the task
+     * @throws java.util.concurrent.RejectedExecutionException if the writer was closed
+     */
+    public void execute(Runnable task) {
+        this.executor.execute(task);
+    }
+
+    /**
+     * Runs a task on the background thread.
+     *
+     * @param task the task
+     * @param <T>  type of the result
+     * @return the result of the task
+     * @throws java.util.concurrent.RejectedExecutionException if the writer was closed
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return this.executor.submit(task);
+    }
+
+    /**
+     * Flushes once more, runs a last task and stops the background thread. Blocks until everything is written.
+     *
+     * @param last task run after the final flush, closing files for example, may be null
+     */
+    public void close(Runnable last) {
+        synchronized(this) {
+            if(this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        this.executor.execute(() -> {
+            this.flush.getAsBoolean();
+            if(last != null) {
+                last.run();
+            }
+        });
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runFlush() {
+        synchronized(this) {
+            // Changes made from now on need another flush
+            this.scheduled = false;
+        }
+        if(this.flush.getAsBoolean()) {
+            this.retryDelay = 0;
+            return;
+        }
+        this.retryDelay = this.retryDelay == 0 ? MIN_RETRY_DELAY : Math.min(this.retryDelay * 2, MAX_RETRY_DELAY);
+        synchronized(this) {
+            if(this.scheduled || this.closed) {
+                return;
+            }
+            this.scheduled = true;
+        }
+        this.executor.schedule(this::runFlush, this.retryDelay, TimeUnit.MILLISECONDS);
+    }
+}
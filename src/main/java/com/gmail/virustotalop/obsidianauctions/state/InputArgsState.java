@@ -0,0 +1,73 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Auction argument presets kept in a snapshot file plus write ahead log, only read to migrate them to per player records.
+ */
+public class InputArgsState extends StateLog<HashMap<UUID, String[]>> {
+
+    private static final int PUT = 1;
+
+    private Map<UUID, String[]> view;
+
+    public InputArgsState(File snapshotFile, Logger logger, int compactThreshold, PersistenceService persistence) {
+        super(snapshotFile, logger, compactThreshold, persistence);
+    }
+
+    public Map<UUID, String[]> getView() {
+        if(this.view == null) {
+            this.view = Collections.unmodifiableMap(this.state);
+        }
+        return this.view;
+    }
+
+    public void put(UUID uuid, String[] args) {
+        this.state.put(uuid, args);
+        this.append(PUT, out -> {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            out.writeByte(args.length);
+            for(String arg : args) {
+                out.writeUTF(arg);
+            }
+        });
+    }
+
+    @Override
+    public void load() {
+        super.load();
+        this.view = null;
+    }
+
+    @Override
+    protected HashMap<UUID, String[]> createEmpty() {
+        return new HashMap<>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected HashMap<UUID, String[]> fromSnapshot(Object snapshot) {
+        return new HashMap<>((Map<UUID, String[]>) snapshot);
+    }
+
+    @Override
+    protected void apply(int op, DataInputStream in) throws IOException {
+        if(op != PUT) {
+            return;
+        }
+        UUID uuid = new UUID(in.readLong(), in.readLong());
+        String[] args = new String[in.readUnsignedByte()];
+        for(int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        this.state.put(uuid, args);
+    }
+}
@@ -0,0 +1,88 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Orphaned lots kept in a snapshot file plus write ahead log, only read to migrate them to per player records.
+ */
+public class OrphanLotState extends StateLog<HashMap<UUID, ArrayList<AuctionLot>>> {
+
+    private static final int ADD = 1;
+    private static final int REMOVE_OWNER = 2;
+
+    public OrphanLotState(File snapshotFile, Logger logger, int compactThreshold, PersistenceService persistence) {
+        super(snapshotFile, logger, compactThreshold, persistence);
+    }
+
+    public void add(AuctionLot lot) {
+        this.state.computeIfAbsent(lot.getOwnerUUID(), uuid -> new ArrayList<>()).add(lot);
+        this.append(ADD, out -> {
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(lot);
+            objects.flush();
+        });
+    }
+
+    public List<AuctionLot> removeOwnedBy(UUID ownerUUID) {
+        List<AuctionLot> removed = this.state.remove(ownerUUID);
+        if(removed == null) {
+            return Collections.emptyList();
+        }
+        this.append(REMOVE_OWNER, out -> {
+            out.writeLong(ownerUUID.getMostSignificantBits());
+            out.writeLong(ownerUUID.getLeastSignificantBits());
+        });
+        return removed;
+    }
+
+    public Map<UUID, ? extends List<AuctionLot>> getView() {
+        return Collections.unmodifiableMap(this.state);
+    }
+
+    @Override
+    protected HashMap<UUID, ArrayList<AuctionLot>> createEmpty() {
+        return new HashMap<>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected HashMap<UUID, ArrayList<AuctionLot>> fromSnapshot(Object snapshot) {
+        if(snapshot instanceof Map) {
+            return new HashMap<>((Map<UUID, ArrayList<AuctionLot>>) snapshot);
+        }
+        // Older versions kept a plain list
+        HashMap<UUID, ArrayList<AuctionLot>> lots = new HashMap<>();
+        for(AuctionLot lot : (Collection<AuctionLot>) snapshot) {
+            lots.computeIfAbsent(lot.getOwnerUUID(), uuid -> new ArrayList<>()).add(lot);
+        }
+        return lots;
+    }
+
+    @Override
+    protected void apply(int op, DataInputStream in) throws IOException {
+        if(op == ADD) {
+            try {
+                AuctionLot lot = (AuctionLot) new ObjectInputStream(in).readObject();
+                this.state.computeIfAbsent(lot.getOwnerUUID(), uuid -> new ArrayList<>()).add(lot);
+            } catch(ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        } else if(op == REMOVE_OWNER) {
+            this.state.remove(new UUID(in.readLong(), in.readLong()));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Writes changed state logs on a single background thread. Changes are coalesced, once a log is marked
+ * dirty it is flushed after the flush delay together with every change made to it in the meantime.
+ * Urgent logs are flushed right away.
+ */
+public class PersistenceService {
+
+    private final DelayedWriter writer;
+    private final List<StateLog<?>> logs = new CopyOnWriteArrayList<>();
+    // Guarded by this
+    private final Set<StateLog<?>> dirty = new LinkedHashSet<>();
+
+    /**
+     * @param flushDelay milliseconds changes are collected for before they are written
+     */
+    public PersistenceService(long flushDelay) {
+        this.writer = new DelayedWriter("ObsidianAuctions-Persistence", flushDelay, this::flushDirty);
+    }
+
+    void register(StateLog<?> log) {
+        if(!this.logs.contains(log)) {
+            this.logs.add(log);
+        }
+    }
+
+    void markDirty(StateLog<?> log) {
+        synchronized(this) {
+            this.dirty.add(log);
+        }
+        if(log.isUrgent()) {
+            this.writer.flushNow();
+        } else {
+            this.writer.schedule();
+        }
+    }
+
+    private boolean flushDirty() {
+        List<StateLog<?>> flushing;
+        synchronized(this) {
+            flushing = new ArrayList<>(this.dirty);
+            this.dirty.clear();
+        }
+        for(StateLog<?> log : flushing) {
+            log.flush();
+        }
+        // A log which failed starts over from a snapshot with its next change
+        return true;
+    }
+
+    /**
+     * Writes all pending changes, closes the logs and stops the background thread. Blocks until everything is written.
+     */
+    public void close() {
+        this.writer.close(() -> {
+            for(StateLog<?> log : this.logs) {
+                log.closeChannel();
+            }
+        });
+    }
+}
@@ -0,0 +1,362 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * State which is persisted as a snapshot plus a write ahead log of the changes made since. Every change appends
+ * one small record to the log, once enough records piled up they are folded into a new snapshot.
+ * The log carries the generation of the snapshot it applies to, so a log which was already folded into a
+ * snapshot is never replayed twice. Snapshots written by older versions, plain serialized objects, are still read.
+ * <p>
+ * Changes are encoded on the calling thread and written by the {@link PersistenceService}, so callers never wait on the disk.
+ *
+ * @param <T> type of the state
+ */
+public abstract class StateLog<T extends Serializable> {
+
+    private static final int SNAPSHOT_MAGIC = 0x4F415353; // OASS
+    private static final int LOG_MAGIC = 0x4F41574C; // OAWL
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 4 + 4 + 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final short JAVA_SERIALIZATION_MAGIC = (short) 0xACED;
+
+    private final File snapshotFile;
+    private final File logFile;
+    private final Logger logger;
+    private final int compactThreshold;
+    private final PersistenceService persistence;
+
+    // Owning thread
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+    private final DataOutputStream payload = new DataOutputStream(this.buffer);
+    private final CRC32 crc = new CRC32();
+    private long generation = 0;
+    private int records = 0;
+    protected T state;
+
+    // Handed to the persistence thread, guarded by this
+    private final ByteArrayOutputStream pendingRecords = new ByteArrayOutputStream(256);
+    private byte[] pendingSnapshot;
+    private long pendingGeneration;
+
+    // Persistence thread
+    private FileChannel channel;
+    private long logSize = 0;
+    private volatile boolean failed = false;
+
+    /**
+     * @param snapshotFile     file holding the snapshot, the log is kept next to it with a .wal extension
+     * @param logger           logger to report io problems to
+     * @param compactThreshold amount of logged changes after which a new snapshot is written
+     * @param persistence      service writing the changes in the background
+     */
+    protected StateLog(File snapshotFile, Logger logger, int compactThreshold, PersistenceService persistence) {
+        String name = snapshotFile.getName();
+        int extension = name.lastIndexOf('.');
+        this.snapshotFile = snapshotFile;
+        this.logFile = new File(snapshotFile.getParentFile(), (extension > 0 ? name.substring(0, extension) : name) + ".wal");
+        this.logger = logger;
+        this.compactThreshold = Math.max(compactThreshold, 1);
+        this.persistence = persistence;
+        this.state = this.createEmpty();
+    }
+
+    /**
+     * Creates the state used when nothing was persisted yet.
+     *
+     * @return empty state
+     */
+    protected abstract T createEmpty();
+
+    /**
+     * Converts a deserialized snapshot to the state, snapshots written by older versions may use other collection types.
+     *
+     * @param snapshot the deserialized snapshot
+     * @return the state
+     */
+    protected abstract T fromSnapshot(Object snapshot);
+
+    /**
+     * Applies a logged change to the state while replaying the log.
+     *
+     * @param op the operation which was logged
+     * @param in payload of the record
+     * @throws IOException if the payload can't be read
+     */
+    protected abstract void apply(int op, DataInputStream in) throws IOException;
+
+    /**
+     * Whether changes should be written and synced right away instead of after the flush delay.
+     *
+     * @return true for state which must survive a crash
+     */
+    protected boolean isUrgent() {
+        return false;
+    }
+
+    /**
+     * Loads the snapshot, replays the log on top of it and folds the result into a new snapshot.
+     * Runs on the calling thread and must happen before any changes are made.
+     */
+    public void load() {
+        this.state = this.readSnapshot();
+        this.replayLog();
+        // Folding the log in right away also drops a record which was cut off while being written
+        this.prepareSnapshot();
+        this.flush();
+        this.persistence.register(this);
+    }
+
+    /**
+     * Logs a change which was already applied to the state.
+     *
+     * @param op     the operation
+     * @param writer writes the payload of the record
+     */
+    protected void append(int op, RecordWriter writer) {
+        this.records++;
+        if(this.failed || this.records >= this.compactThreshold) {
+            this.compact();
+            return;
+        }
+        this.buffer.reset();
+        try {
+            this.payload.writeByte(op);
+            writer.write(this.payload);
+        } catch(IOException e) {
+            // Writing to memory
+            throw new IllegalStateException(e);
+        }
+        int length = this.buffer.size();
+        this.crc.reset();
+        this.crc.update(this.buffer.toByteArray(), 0, length);
+        synchronized(this) {
+            DataOutputStream out = new DataOutputStream(this.pendingRecords);
+            try {
+                out.writeInt(length);
+                this.buffer.writeTo(out);
+                out.writeInt((int) this.crc.getValue());
+            } catch(IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        this.persistence.markDirty(this);
+    }
+
+    /**
+     * Folds the state into a new snapshot, which replaces all changes waiting to be written.
+     */
+    public void compact() {
+        if(this.prepareSnapshot()) {
+            this.persistence.markDirty(this);
+        }
+    }
+
+    /**
+     * Folds changes made since the last snapshot into a new one, it is written by the final flush of the persistence service.
+     */
+    public void close() {
+        if(this.records > 0 || this.failed) {
+            this.compact();
+        }
+    }
+
+    private boolean prepareSnapshot() {
+        long nextGeneration = this.generation + 1;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextGeneration);
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(this.state);
+            objects.flush();
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to serialize " + this.snapshotFile.getName(), e);
+            return false;
+        }
+        this.generation = nextGeneration;
+        this.records = 0;
+        this.failed = false;
+        synchronized(this) {
+            this.pendingSnapshot = bytes.toByteArray();
+            this.pendingGeneration = nextGeneration;
+            this.pendingRecords.reset();
+        }
+        return true;
+    }
+
+    /**
+     * Writes pending snapshots and changes, called by the persistence thread.
+     */
+    void flush() {
+        byte[] snapshot;
+        long snapshotGeneration;
+        byte[] records;
+        synchronized(this) {
+            snapshot = this.pendingSnapshot;
+            snapshotGeneration = this.pendingGeneration;
+            records = this.pendingRecords.size() > 0 ? this.pendingRecords.toByteArray() : null;
+            this.pendingSnapshot = null;
+            this.pendingRecords.reset();
+        }
+        if(snapshot != null) {
+            try {
+                this.writeSnapshot(snapshot);
+                this.openLog(snapshotGeneration);
+            } catch(IOException e) {
+                // Changes made since belong to the new snapshot, retry it with the next change
+                this.logger.log(Level.SEVERE, "Unable to save " + this.snapshotFile.getName(), e);
+                this.closeChannel();
+                this.failed = true;
+                return;
+            }
+        }
+        if(records == null || this.channel == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        try {
+            while(buffer.hasRemaining()) {
+                this.logSize += this.channel.write(buffer, this.logSize);
+            }
+            if(this.isUrgent()) {
+                this.channel.force(false);
+            }
+        } catch(IOException e) {
+            // The log may now end in a partial record, start over from a snapshot holding the changes
+            this.logger.log(Level.SEVERE, "Unable to write to " + this.logFile.getName(), e);
+            this.closeChannel();
+            this.failed = true;
+        }
+    }
+
+    private T readSnapshot() {
+        this.generation = 0;
+        if(!this.snapshotFile.exists()) {
+            return this.createEmpty();
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.snapshotFile)))) {
+            in.mark(2);
+            if(in.readShort() == JAVA_SERIALIZATION_MAGIC) {
+                in.reset();
+                return this.fromSnapshot(new ObjectInputStream(in).readObject());
+            }
+            in.reset();
+            if(in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            long snapshotGeneration = in.readLong();
+            T snapshot = this.fromSnapshot(new ObjectInputStream(in).readObject());
+            this.generation = snapshotGeneration;
+            return snapshot;
+        } catch(IOException | ClassNotFoundException | ClassCastException e) {
+            // Keep the file around instead of overwriting it with an empty snapshot
+            File broken = new File(this.snapshotFile.getPath() + ".broken");
+            this.logger.log(Level.SEVERE, "Unable to load " + this.snapshotFile.getName() + ", moving it to " + broken.getName(), e);
+            this.snapshotFile.renameTo(broken);
+            return this.createEmpty();
+        }
+    }
+
+    private void replayLog() {
+        if(!this.logFile.exists()) {
+            return;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.logFile)))) {
+            if(in.readInt() != LOG_MAGIC || in.readInt() != VERSION || in.readLong() != this.generation) {
+                return; // Already part of the snapshot
+            }
+            byte[] record = new byte[64];
+            while(true) {
+                int length = in.readInt();
+                if(length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                if(length > record.length) {
+                    record = new byte[length];
+                }
+                in.readFully(record, 0, length);
+                int checksum = in.readInt();
+                this.crc.reset();
+                this.crc.update(record, 0, length);
+                if((int) this.crc.getValue() != checksum) {
+                    break;
+                }
+                this.apply(record[0] & 0xFF, new DataInputStream(new ByteArrayInputStream(record, 1, length - 1)));
+            }
+        } catch(EOFException ignore) {
+            // End of the log or a record that was cut off while being written
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to replay " + this.logFile.getName(), e);
+        }
+    }
+
+    private void writeSnapshot(byte[] snapshot) throws IOException {
+        File tempFile = new File(this.snapshotFile.getPath() + ".tmp");
+        try(FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(snapshot);
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void openLog(long logGeneration) throws IOException {
+        this.closeChannel();
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putInt(VERSION);
+        header.putLong(logGeneration);
+        header.flip();
+        this.channel = FileChannel.open(this.logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        while(header.hasRemaining()) {
+            this.channel.write(header);
+        }
+        this.logSize = LOG_HEADER_SIZE;
+    }
+
+    /**
+     * Closes the log, called by the persistence thread after its final flush.
+     */
+    void closeChannel() {
+        if(this.channel == null) {
+            return;
+        }
+        try {
+            this.channel.close();
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to close " + this.logFile.getName(), e);
+        }
+        this.channel = null;
+    }
+
+    /**
+     * Writes the payload of a log record.
+     */
+    @FunctionalInterface
+    protected interface RecordWriter {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+}
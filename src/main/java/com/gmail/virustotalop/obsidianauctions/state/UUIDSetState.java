@@ -0,0 +1,80 @@
+package com.gmail.virustotalop.obsidianauctions.state;
+
+import com.gmail.virustotalop.obsidianauctions.storage.PlayerSetStore;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Set of player uuids kept in a snapshot file plus write ahead log.
+ */
+public class UUIDSetState extends StateLog<HashSet<UUID>> implements PlayerSetStore {
+
+    private static final int ADD = 1;
+    private static final int REMOVE = 2;
+
+    public UUIDSetState(File snapshotFile, Logger logger, int compactThreshold, PersistenceService persistence) {
+        super(snapshotFile, logger, compactThreshold, persistence);
+    }
+
+    @Override
+    public boolean contains(UUID uuid) {
+        return this.state.contains(uuid);
+    }
+
+    @Override
+    public boolean add(UUID uuid) {
+        if(!this.state.add(uuid)) {
+            return false;
+        }
+        this.append(ADD, out -> {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        });
+        return true;
+    }
+
+    @Override
+    public boolean remove(UUID uuid) {
+        if(!this.state.remove(uuid)) {
+            return false;
+        }
+        this.append(REMOVE, out -> {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        });
+        return true;
+    }
+
+    public Set<UUID> getView() {
+        return Collections.unmodifiableSet(this.state);
+    }
+
+    @Override
+    protected HashSet<UUID> createEmpty() {
+        return new HashSet<>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected HashSet<UUID> fromSnapshot(Object snapshot) {
+        return new HashSet<>((Collection<UUID>) snapshot);
+    }
+
+    @Override
+    protected void apply(int op, DataInputStream in) throws IOException {
+        UUID uuid = new UUID(in.readLong(), in.readLong());
+        if(op == ADD) {
+            this.state.add(uuid);
+        } else if(op == REMOVE) {
+            this.state.remove(uuid);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionCheckpoint;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Persistent checkpoints of running auctions, keyed by auction id. Changes are written without waiting for the
+ * flush delay since they track items and money held by the plugin.
+ */
+public interface CheckpointStore {
+
+    /**
+     * Gets the checkpoints, at startup these are the auctions which were interrupted.
+     *
+     * @return unmodifiable view of the checkpoints
+     */
+    Collection<AuctionCheckpoint> getAll();
+
+    /**
+     * Adds or replaces the checkpoint of an auction, it is encoded right away.
+     *
+     * @param checkpoint the checkpoint
+     */
+    void put(AuctionCheckpoint checkpoint);
+
+    void remove(UUID auctionId);
+}
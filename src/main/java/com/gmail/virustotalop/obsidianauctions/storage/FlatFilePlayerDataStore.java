@@ -0,0 +1,318 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+import com.gmail.virustotalop.obsidianauctions.state.DelayedWriter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Player records kept as one small file per player, sharded into folders by the first two characters of the uuid.
+ * Records are encoded on the calling thread and written by a single background thread after the flush delay,
+ * a record which can't be written stays pending and is retried.
+ */
+public class FlatFilePlayerDataStore extends PlayerDataCache {
+
+    private static final int MAGIC = 0x4F415044; // OAPD
+    private static final int VERSION = 1;
+
+    private final File folder;
+    private final Logger logger;
+    private final DelayedWriter writer;
+
+    // Guarded by this
+    private final Map<UUID, Pending> pending = new LinkedHashMap<>();
+
+    /**
+     * @param folder     folder holding the records
+     * @param logger     logger to report io problems to
+     * @param flushDelay milliseconds changes are collected for before they are written
+     */
+    public FlatFilePlayerDataStore(File folder, Logger logger, long flushDelay) {
+        this.folder = folder;
+        this.logger = logger;
+        this.writer = new DelayedWriter("ObsidianAuctions-PlayerData", flushDelay, this::flush);
+    }
+
+    /**
+     * Writes a record right away, used to migrate state before the store is used.
+     *
+     * @param data the record
+     */
+    void importRecord(PlayerData data) {
+        try {
+            this.writeFile(data.getUUID(), encode(data));
+        } catch(IOException e) {
+            this.logger.log(Level.SEVERE, "Unable to save the record of " + data.getUUID(), e);
+        }
+    }
+
+    /**
+     * Writes all pending records and stops the background thread, blocks until everything is written.
+     */
+    public void close() {
+        this.writer.close(null);
+    }
+
+    @Override
+    protected void runOnStorageThread(Runnable task) {
+        try {
+            this.writer.submit(Executors.callable(task)).get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException | RejectedExecutionException e) {
+            this.logger.log(Level.SEVERE, "Unable to load a player record", e);
+        }
+    }
+
+    @Override
+    protected void executeOnStorageThread(Runnable task) {
+        try {
+            this.writer.execute(task);
+        } catch(RejectedExecutionException e) {
+            this.logger.log(Level.SEVERE, "Unable to load a player record", e);
+        }
+    }
+
+    @Override
+    protected PlayerData read(UUID uuid) {
+        boolean replace;
+        byte[] record;
+        List<AuctionLot> lots;
+        synchronized(this) {
+            Pending change = this.pending.get(uuid);
+            replace = change != null && change.replace;
+            record = change == null ? null : change.record;
+            lots = change == null ? new ArrayList<>() : new ArrayList<>(change.lots);
+        }
+        // Flushes run on this thread too, so the file holds everything which left the pending changes
+        PlayerData data = replace ? this.decodeOrEmpty(uuid, record) : this.readFile(uuid);
+        for(AuctionLot lot : lots) {
+            data.addOrphanLot(lot);
+        }
+        return data;
+    }
+
+    @Override
+    protected void auctionsDisabledChanged(PlayerData data) {
+        this.queueRecord(data);
+    }
+
+    @Override
+    protected void presetChanged(PlayerData data) {
+        this.queueRecord(data);
+    }
+
+    @Override
+    protected void orphanLotAdded(AuctionLot lot, PlayerData data) {
+        if(data != null) {
+            this.queueRecord(data);
+            return;
+        }
+        // Added to the record on disk when written
+        this.pending.computeIfAbsent(lot.getOwnerUUID(), uuid -> new Pending()).lots.add(lot);
+        this.writer.schedule();
+    }
+
+    @Override
+    protected void orphanLotsChanged(PlayerData data) {
+        this.queueRecord(data);
+    }
+
+    private void queueRecord(PlayerData data) {
+        Pending change = new Pending();
+        change.replace = true;
+        change.record = encode(data);
+        this.pending.put(data.getUUID(), change);
+        this.writer.schedule();
+    }
+
+    private boolean flush() {
+        Map<UUID, Pending> changes;
+        synchronized(this) {
+            changes = new LinkedHashMap<>(this.pending);
+            this.pending.clear();
+        }
+        boolean written = true;
+        for(Map.Entry<UUID, Pending> entry : changes.entrySet()) {
+            UUID uuid = entry.getKey();
+            Pending change = entry.getValue();
+            try {
+                byte[] record = change.record;
+                if(!change.lots.isEmpty()) {
+                    PlayerData data = change.replace ? this.decodeOrEmpty(uuid, record) : this.readFile(uuid);
+                    for(AuctionLot lot : change.lots) {
+                        data.addOrphanLot(lot);
+                    }
+                    record = encode(data);
+                }
+                this.writeFile(uuid, record);
+            } catch(IOException e) {
+                this.logger.log(Level.SEVERE, "Unable to save the record of " + uuid + ", retrying", e);
+                this.requeue(uuid, change);
+                written = false;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Puts a change which failed to be written back, unless a newer record replaced it.
+     *
+     * @param uuid   uuid of the player
+     * @param change the change
+     */
+    private synchronized void requeue(UUID uuid, Pending change) {
+        Pending newer = this.pending.get(uuid);
+        if(newer != null && newer.replace) {
+            // Read including this change when the player was loaded
+            return;
+        } else if(newer != null) {
+            change.lots.addAll(newer.lots);
+        }
+        this.pending.put(uuid, change);
+    }
+
+    private File file(UUID uuid) {
+        String name = uuid.toString();
+        return new File(new File(this.folder, name.substring(0, 2)), name + ".dat");
+    }
+
+    private PlayerData readFile(UUID uuid) {
+        File file = this.file(uuid);
+        if(!file.exists()) {
+            return new PlayerData(uuid);
+        }
+        try(InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return decode(uuid, in);
+        } catch(IOException | ClassNotFoundException | ClassCastException e) {
+            // Moved aside so the next write of this record doesn't replace what might still be recovered
+            File broken = new File(file.getPath() + ".broken");
+            this.logger.log(Level.SEVERE, "Unable to load " + file.getName() + ", moving it to " + broken.getName(), e);
+            file.renameTo(broken);
+            return new PlayerData(uuid);
+        }
+    }
+
+    private void writeFile(UUID uuid, byte[] record) throws IOException {
+        File file = this.file(uuid);
+        if(record == null) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+        File parent = file.getParentFile();
+        if(!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent.getPath());
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try(FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(record);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private PlayerData decodeOrEmpty(UUID uuid, byte[] record) {
+        if(record == null) {
+            return new PlayerData(uuid);
+        }
+        try {
+            return decode(uuid, new ByteArrayInputStream(record));
+        } catch(IOException | ClassNotFoundException | ClassCastException e) {
+            // Encoded by this process
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes a record.
+     *
+     * @param data the record
+     * @return the encoded record, null if the record is empty and the file can be deleted
+     */
+    private static byte[] encode(PlayerData data) {
+        if(data.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(data.isAuctionsDisabled());
+            String[] preset = data.getPreset();
+            out.writeByte(preset == null ? -1 : preset.length);
+            if(preset != null) {
+                for(String arg : preset) {
+                    out.writeUTF(arg);
+                }
+            }
+            List<AuctionLot> lots = data.getOrphanLots();
+            out.writeInt(lots.size());
+            if(!lots.isEmpty()) {
+                ObjectOutputStream objects = new ObjectOutputStream(out);
+                for(AuctionLot lot : lots) {
+                    objects.writeObject(lot);
+                }
+                objects.flush();
+            }
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PlayerData decode(UUID uuid, InputStream stream) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(stream);
+        if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported record format");
+        }
+        PlayerData data = new PlayerData(uuid);
+        data.setAuctionsDisabled(in.readBoolean());
+        int presetLength = in.readByte();
+        if(presetLength >= 0) {
+            String[] preset = new String[presetLength];
+            for(int i = 0; i < presetLength; i++) {
+                preset[i] = in.readUTF();
+            }
+            data.setPreset(preset);
+        }
+        int lotCount = in.readInt();
+        if(lotCount > 0) {
+            ObjectInputStream objects = new ObjectInputStream(in);
+            for(int i = 0; i < lotCount; i++) {
+                data.getOrphanLots().add((AuctionLot) objects.readObject());
+            }
+        }
+        return data;
+    }
+
+    private static final class Pending {
+
+        // Whether the record replaces the file, otherwise the lots are added to what is on disk
+        private boolean replace = false;
+        // Null if the file should be deleted
+        private byte[] record;
+        private final List<AuctionLot> lots = new ArrayList<>();
+    }
+}
@@ -0,0 +1,126 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+import com.gmail.virustotalop.obsidianauctions.state.CheckpointState;
+import com.gmail.virustotalop.obsidianauctions.state.InputArgsState;
+import com.gmail.virustotalop.obsidianauctions.state.OrphanLotState;
+import com.gmail.virustotalop.obsidianauctions.state.PersistenceService;
+import com.gmail.virustotalop.obsidianauctions.state.StateLog;
+import com.gmail.virustotalop.obsidianauctions.state.UUIDSetState;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Default storage, every store is a snapshot file plus write ahead log in the data folder.
+ * Player records are kept as one file per player in the players folder.
+ */
+public class FlatFileStorage implements Storage {
+
+    private final File dataFolder;
+    private final Logger logger;
+    private final int compactThreshold;
+    private final long flushDelay;
+    private final PersistenceService persistence;
+    private FlatFilePlayerDataStore playerData;
+    private final List<StateLog<?>> logs = new ArrayList<>();
+
+    /**
+     * @param dataFolder       folder holding the files
+     * @param logger           logger to report io problems to
+     * @param compactThreshold amount of logged changes after which a new snapshot is written
+     * @param flushDelay       milliseconds changes are collected for before they are written
+     */
+    public FlatFileStorage(File dataFolder, Logger logger, int compactThreshold, long flushDelay) {
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        this.compactThreshold = compactThreshold;
+        this.flushDelay = flushDelay;
+        this.persistence = new PersistenceService(flushDelay);
+    }
+
+    @Override
+    public PlayerSetStore loadPlayerSet(String name) {
+        return this.load(new UUIDSetState(this.file(name), this.logger, this.compactThreshold, this.persistence));
+    }
+
+    @Override
+    public PlayerDataStore loadPlayerData() {
+        this.playerData = new FlatFilePlayerDataStore(new File(this.dataFolder, "players"), this.logger, this.flushDelay);
+        this.migratePlayerData();
+        return this.playerData;
+    }
+
+    @Override
+    public CheckpointStore loadCheckpoints() {
+        return this.load(new CheckpointState(this.file("auctionCheckpoints"), this.logger, this.compactThreshold, this.persistence));
+    }
+
+    @Override
+    public void close() {
+        for(StateLog<?> log : this.logs) {
+            log.close();
+        }
+        this.persistence.close();
+        if(this.playerData != null) {
+            this.playerData.close();
+        }
+    }
+
+    private <T extends StateLog<?>> T load(T log) {
+        log.load();
+        this.logs.add(log);
+        return log;
+    }
+
+    /**
+     * Splits the state which older versions kept for all players in single files into per player records.
+     */
+    private void migratePlayerData() {
+        File[] legacyFiles = {this.file("voluntarilyDisabledUsers"), this.file("userSavedInputArgs"), this.file("orphanLots")};
+        boolean found = false;
+        for(File legacyFile : legacyFiles) {
+            found |= legacyFile.exists();
+        }
+        if(!found) {
+            return;
+        }
+        PersistenceService legacyPersistence = new PersistenceService(0);
+        UUIDSetState disabled = new UUIDSetState(legacyFiles[0], this.logger, this.compactThreshold, legacyPersistence);
+        InputArgsState presets = new InputArgsState(legacyFiles[1], this.logger, this.compactThreshold, legacyPersistence);
+        OrphanLotState orphanLots = new OrphanLotState(legacyFiles[2], this.logger, this.compactThreshold, legacyPersistence);
+        disabled.load();
+        presets.load();
+        orphanLots.load();
+        legacyPersistence.close();
+
+        Map<UUID, PlayerData> records = new HashMap<>();
+        for(UUID uuid : disabled.getView()) {
+            records.computeIfAbsent(uuid, PlayerData::new).setAuctionsDisabled(true);
+        }
+        for(Map.Entry<UUID, String[]> preset : presets.getView().entrySet()) {
+            records.computeIfAbsent(preset.getKey(), PlayerData::new).setPreset(preset.getValue());
+        }
+        for(Map.Entry<UUID, ? extends List<AuctionLot>> lots : orphanLots.getView().entrySet()) {
+            records.computeIfAbsent(lots.getKey(), PlayerData::new).getOrphanLots().addAll(lots.getValue());
+        }
+        for(PlayerData record : records.values()) {
+            this.playerData.importRecord(record);
+        }
+        for(File legacyFile : legacyFiles) {
+            String name = legacyFile.getName();
+            new File(this.dataFolder, name.substring(0, name.lastIndexOf('.')) + ".wal").delete();
+            legacyFile.renameTo(new File(legacyFile.getPath() + ".migrated"));
+        }
+        this.logger.info("Migrated the state of " + records.size() + " players to per player records");
+    }
+
+    private File file(String name) {
+        return new File(this.dataFolder, name + ".ser");
+    }
+}
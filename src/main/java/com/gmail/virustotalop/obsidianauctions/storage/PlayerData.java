@@ -0,0 +1,86 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a single player which is only kept in memory while the player is online.
+ */
+public class PlayerData {
+
+    private final UUID uuid;
+    private boolean auctionsDisabled = false;
+    private String[] preset = null;
+    private final List<AuctionLot> orphanLots = new ArrayList<>();
+
+    PlayerData(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    public UUID getUUID() {
+        return this.uuid;
+    }
+
+    /**
+     * Gets whether the player disabled auctions for themselves.
+     *
+     * @return whether auctions are disabled
+     */
+    public boolean isAuctionsDisabled() {
+        return this.auctionsDisabled;
+    }
+
+    void setAuctionsDisabled(boolean auctionsDisabled) {
+        this.auctionsDisabled = auctionsDisabled;
+    }
+
+    /**
+     * Gets the auction arguments saved with /auc prep.
+     *
+     * @return the preset or null if the player has none
+     */
+    public String[] getPreset() {
+        return this.preset;
+    }
+
+    void setPreset(String[] preset) {
+        this.preset = preset;
+    }
+
+    /**
+     * Gets the lots waiting for the player.
+     *
+     * @return the lots
+     */
+    public List<AuctionLot> getOrphanLots() {
+        return this.orphanLots;
+    }
+
+    /**
+     * Adds a lot waiting for the player, merged into a waiting lot of the same item if there is one.
+     *
+     * @param lot the lot
+     * @return whether the lot was merged
+     */
+    boolean addOrphanLot(AuctionLot lot) {
+        for(AuctionLot orphanLot : this.orphanLots) {
+            if(orphanLot.merge(lot)) {
+                return true;
+            }
+        }
+        this.orphanLots.add(lot);
+        return false;
+    }
+
+    /**
+     * Whether nothing needs to be kept for this player.
+     *
+     * @return true if the player has no state
+     */
+    public boolean isEmpty() {
+        return !this.auctionsDisabled && this.preset == null && this.orphanLots.isEmpty();
+    }
+}
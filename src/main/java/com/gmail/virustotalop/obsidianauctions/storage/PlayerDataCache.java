@@ -0,0 +1,228 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the records of loaded players in memory and tells the backend about every change.
+ * Records are read on the storage thread without holding the lock of the cache. A change made to a player which is
+ * not loaded while their record is being read makes the load read it again, so it is never lost.
+ * Players which are not loaded are never read on the calling thread, they are loaded in the background and read as
+ * empty until then. A null uuid, the console, has an empty record which can't be changed.
+ */
+abstract class PlayerDataCache implements PlayerDataStore {
+
+    // Guarded by this
+    private final Map<UUID, PlayerData> resident = new HashMap<>();
+    private final Set<UUID> loading = new HashSet<>();
+    private long unloadedChanges = 0;
+
+    /**
+     * Runs a task on the storage thread and waits for it.
+     *
+     * @param task the task
+     */
+    protected abstract void runOnStorageThread(Runnable task);
+
+    /**
+     * Runs a task on the storage thread without waiting for it.
+     *
+     * @param task the task
+     */
+    protected abstract void executeOnStorageThread(Runnable task);
+
+    /**
+     * Reads the record of a player including changes which were not written yet, called on the storage thread.
+     *
+     * @param uuid uuid of the player
+     * @return the record, empty if the player has none
+     */
+    protected abstract PlayerData read(UUID uuid);
+
+    protected abstract void auctionsDisabledChanged(PlayerData data);
+
+    protected abstract void presetChanged(PlayerData data);
+
+    /**
+     * Persists an orphaned lot.
+     *
+     * @param lot  the lot
+     * @param data record of the owner, null if the owner is not loaded
+     */
+    protected abstract void orphanLotAdded(AuctionLot lot, PlayerData data);
+
+    /**
+     * Persists the orphaned lots of a loaded player after lots were removed or merged.
+     *
+     * @param data record of the owner
+     */
+    protected abstract void orphanLotsChanged(PlayerData data);
+
+    @Override
+    public void load(UUID uuid) {
+        if(uuid != null) {
+            this.runOnStorageThread(() -> this.loadOnStorageThread(uuid));
+        }
+    }
+
+    @Override
+    public synchronized void unload(UUID uuid) {
+        this.resident.remove(uuid);
+    }
+
+    @Override
+    public synchronized boolean isAuctionsDisabled(UUID uuid) {
+        PlayerData data = this.getResident(uuid);
+        return data != null && data.isAuctionsDisabled();
+    }
+
+    @Override
+    public boolean setAuctionsDisabled(UUID uuid, boolean disabled) {
+        if(uuid == null) {
+            return false;
+        }
+        synchronized(this) {
+            PlayerData data = this.resident.get(uuid);
+            if(data != null) {
+                return this.changeAuctionsDisabled(data, disabled);
+            }
+        }
+        this.whenLoaded(uuid, data -> this.changeAuctionsDisabled(data, disabled));
+        return true;
+    }
+
+    @Override
+    public synchronized String[] getPreset(UUID uuid) {
+        PlayerData data = this.getResident(uuid);
+        return data == null ? null : data.getPreset();
+    }
+
+    @Override
+    public void putPreset(UUID uuid, String[] args) {
+        if(uuid == null) {
+            return;
+        }
+        synchronized(this) {
+            PlayerData data = this.resident.get(uuid);
+            if(data != null) {
+                this.changePreset(data, args);
+                return;
+            }
+        }
+        this.whenLoaded(uuid, data -> this.changePreset(data, args));
+    }
+
+    @Override
+    public synchronized void addOrphanLot(AuctionLot lot) {
+        PlayerData data = this.resident.get(lot.getOwnerUUID());
+        if(data != null && data.addOrphanLot(lot)) {
+            this.orphanLotsChanged(data);
+            return;
+        }
+        if(data == null) {
+            // A load reading the record right now has to read it again
+            this.unloadedChanges++;
+        }
+        this.orphanLotAdded(lot, data);
+    }
+
+    @Override
+    public synchronized List<AuctionLot> removeOrphanLots(UUID ownerUUID) {
+        PlayerData data = this.getResident(ownerUUID);
+        if(data == null || data.getOrphanLots().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<AuctionLot> removed = new ArrayList<>(data.getOrphanLots());
+        data.getOrphanLots().clear();
+        this.orphanLotsChanged(data);
+        return removed;
+    }
+
+    private boolean changeAuctionsDisabled(PlayerData data, boolean disabled) {
+        if(data.isAuctionsDisabled() == disabled) {
+            return false;
+        }
+        data.setAuctionsDisabled(disabled);
+        this.auctionsDisabledChanged(data);
+        return true;
+    }
+
+    private void changePreset(PlayerData data, String[] args) {
+        data.setPreset(args);
+        this.presetChanged(data);
+    }
+
+    /**
+     * Gets the record of a loaded player, players which are not loaded are loaded in the background.
+     * Callers hold the lock.
+     *
+     * @param uuid uuid of the player, may be null
+     * @return the record or null if the player is not loaded
+     */
+    private PlayerData getResident(UUID uuid) {
+        if(uuid == null) {
+            return null;
+        }
+        PlayerData data = this.resident.get(uuid);
+        if(data == null && this.loading.add(uuid)) {
+            // Not logged in through the usual path, for example after a reload
+            this.executeOnStorageThread(() -> this.loadOnStorageThread(uuid));
+        }
+        return data;
+    }
+
+    /**
+     * Applies a change to a player which is not loaded once their record has been read.
+     *
+     * @param uuid   uuid of the player
+     * @param change the change
+     */
+    private void whenLoaded(UUID uuid, Consumer<PlayerData> change) {
+        this.executeOnStorageThread(() -> {
+            this.loadOnStorageThread(uuid);
+            synchronized(this) {
+                PlayerData data = this.resident.get(uuid);
+                if(data != null) {
+                    change.accept(data);
+                }
+            }
+        });
+    }
+
+    private void loadOnStorageThread(UUID uuid) {
+        try {
+            while(true) {
+                long changes;
+                synchronized(this) {
+                    if(this.resident.containsKey(uuid)) {
+                        return;
+                    }
+                    changes = this.unloadedChanges;
+                }
+                PlayerData data = this.read(uuid);
+                synchronized(this) {
+                    if(this.resident.containsKey(uuid)) {
+                        return;
+                    } else if(changes == this.unloadedChanges) {
+                        this.resident.put(uuid, data);
+                        return;
+                    }
+                }
+                // Changed while being read
+            }
+        } finally {
+            synchronized(this) {
+                this.loading.remove(uuid);
+            }
+        }
+    }
+}
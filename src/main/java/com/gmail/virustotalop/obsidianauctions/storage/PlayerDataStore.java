@@ -0,0 +1,64 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Persistent per player state. Records are loaded when a player logs in and dropped from memory when they quit,
+ * players which are not loaded are loaded in the background and read as empty until then. Changes made to them are
+ * applied once they are loaded. The console, a null uuid, reads as empty.
+ */
+public interface PlayerDataStore {
+
+    /**
+     * Loads the record of a player, blocks until it is read so it must not be called from the main thread.
+     *
+     * @param uuid uuid of the player
+     */
+    void load(UUID uuid);
+
+    /**
+     * Drops the record of a player from memory, pending changes are still written.
+     *
+     * @param uuid uuid of the player
+     */
+    void unload(UUID uuid);
+
+    boolean isAuctionsDisabled(UUID uuid);
+
+    /**
+     * Sets whether a player disabled auctions for themselves.
+     *
+     * @param uuid     uuid of the player
+     * @param disabled whether auctions are disabled
+     * @return whether the value changed, true if the player is not loaded yet
+     */
+    boolean setAuctionsDisabled(UUID uuid, boolean disabled);
+
+    /**
+     * Gets the auction arguments saved with /auc prep.
+     *
+     * @param uuid uuid of the player
+     * @return the preset or null if the player has none
+     */
+    String[] getPreset(UUID uuid);
+
+    void putPreset(UUID uuid, String[] args);
+
+    /**
+     * Adds a lot which could not be given to its owner, the owner doesn't have to be loaded.
+     *
+     * @param lot the lot
+     */
+    void addOrphanLot(AuctionLot lot);
+
+    /**
+     * Removes all lots of an owner.
+     *
+     * @param ownerUUID uuid of the owner
+     * @return the removed lots, empty if the owner had none
+     */
+    List<AuctionLot> removeOrphanLots(UUID ownerUUID);
+}
@@ -0,0 +1,15 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import java.util.UUID;
+
+/**
+ * Persistent set of player uuids.
+ */
+public interface PlayerSetStore {
+
+    boolean contains(UUID uuid);
+
+    boolean add(UUID uuid);
+
+    boolean remove(UUID uuid);
+}
@@ -0,0 +1,552 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionCheckpoint;
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionLot;
+import com.gmail.virustotalop.obsidianauctions.state.DelayedWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Storage in an embedded SQLite database, using the driver bundled with the server. The connection is owned by a
+ * single background thread, changes are collected for the flush delay and written as batches in one transaction.
+ * A batch which fails is rolled back and retried, records read in the meantime include the writes still waiting.
+ */
+public class SqliteStorage implements Storage {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS player_sets (name TEXT NOT NULL, uuid TEXT NOT NULL, PRIMARY KEY (name, uuid))",
+            "CREATE TABLE IF NOT EXISTS presets (uuid TEXT PRIMARY KEY, args BLOB NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS orphan_lots (id INTEGER PRIMARY KEY AUTOINCREMENT, owner_uuid TEXT NOT NULL, lot BLOB NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS orphan_lots_owner ON orphan_lots (owner_uuid)",
+            "CREATE TABLE IF NOT EXISTS auction_checkpoints (auction_id TEXT PRIMARY KEY, checkpoint BLOB NOT NULL)"
+    };
+    private static final String VOLUNTARILY_DISABLED = "voluntarilyDisabledUsers";
+    private static final String ADD_PLAYER = "INSERT OR IGNORE INTO player_sets (name, uuid) VALUES (?, ?)";
+    private static final String REMOVE_PLAYER = "DELETE FROM player_sets WHERE name = ? AND uuid = ?";
+    private static final String PUT_PRESET = "INSERT OR REPLACE INTO presets (uuid, args) VALUES (?, ?)";
+    private static final String ADD_ORPHAN_LOT = "INSERT INTO orphan_lots (owner_uuid, lot) VALUES (?, ?)";
+    private static final String REMOVE_ORPHAN_LOTS = "DELETE FROM orphan_lots WHERE owner_uuid = ?";
+    private static final String PUT_CHECKPOINT = "INSERT OR REPLACE INTO auction_checkpoints (auction_id, checkpoint) VALUES (?, ?)";
+    private static final String REMOVE_CHECKPOINT = "DELETE FROM auction_checkpoints WHERE auction_id = ?";
+
+    private final File file;
+    private final Logger logger;
+    private final DelayedWriter writer;
+    // Guarded by this
+    private final List<Write> pending = new ArrayList<>();
+
+    // Database thread
+    private Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    /**
+     * @param file       the database file
+     * @param logger     logger to report database problems to
+     * @param flushDelay milliseconds changes are collected for before they are written
+     */
+    public SqliteStorage(File file, Logger logger, long flushDelay) {
+        this.file = file;
+        this.logger = logger;
+        this.writer = new DelayedWriter("ObsidianAuctions-Storage", flushDelay, this::flush);
+    }
+
+    /**
+     * Opens the database and creates missing tables.
+     *
+     * @throws SQLException if the database can't be opened
+     */
+    public void open() throws SQLException {
+        this.call(() -> {
+            try {
+                Class.forName("org.sqlite.JDBC");
+            } catch(ClassNotFoundException e) {
+                throw new SQLException("The SQLite driver is not available", e);
+            }
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + this.file.getAbsolutePath());
+            try(Statement statement = this.connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+            }
+            this.connection.setAutoCommit(false);
+            try(Statement statement = this.connection.createStatement()) {
+                for(String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            this.connection.commit();
+            return null;
+        });
+    }
+
+    @Override
+    public PlayerSetStore loadPlayerSet(String name) {
+        Set<UUID> uuids = new HashSet<>();
+        this.query("SELECT uuid FROM player_sets WHERE name = ?", result -> uuids.add(UUID.fromString(result.getString(1))), name);
+        return new SqlitePlayerSet(name, uuids);
+    }
+
+    @Override
+    public PlayerDataStore loadPlayerData() {
+        return new SqlitePlayerData();
+    }
+
+    @Override
+    public CheckpointStore loadCheckpoints() {
+        Map<UUID, AuctionCheckpoint> checkpoints = new LinkedHashMap<>();
+        this.query("SELECT auction_id, checkpoint FROM auction_checkpoints", result -> {
+            try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(result.getBytes(2)))) {
+                AuctionCheckpoint checkpoint = (AuctionCheckpoint) in.readObject();
+                checkpoints.put(checkpoint.getAuctionId(), checkpoint);
+            } catch(IOException | ClassNotFoundException | ClassCastException e) {
+                this.logger.log(Level.SEVERE, "Unable to read the checkpoint of auction " + result.getString(1), e);
+            }
+        });
+        return new SqliteCheckpoints(checkpoints);
+    }
+
+    @Override
+    public void close() {
+        this.writer.close(() -> {
+            for(PreparedStatement statement : this.statements.values()) {
+                try {
+                    statement.close();
+                } catch(SQLException ignore) {
+                    // Closing anyway
+                }
+            }
+            this.statements.clear();
+            if(this.connection != null) {
+                try {
+                    this.connection.close();
+                } catch(SQLException e) {
+                    this.logger.log(Level.SEVERE, "Unable to close " + this.file.getName(), e);
+                }
+                this.connection = null;
+            }
+        });
+    }
+
+    private void write(String sql, Object... params) {
+        synchronized(this) {
+            this.pending.add(new Write(sql, params));
+        }
+        this.writer.schedule();
+    }
+
+    /**
+     * Queues a change and writes it right away together with everything else which is waiting.
+     */
+    private void writeNow(String sql, Object... params) {
+        synchronized(this) {
+            this.pending.add(new Write(sql, params));
+        }
+        this.writer.flushNow();
+    }
+
+    private boolean flush() {
+        List<Write> writes;
+        synchronized(this) {
+            writes = new ArrayList<>(this.pending);
+            this.pending.clear();
+        }
+        if(writes.isEmpty() || this.connection == null) {
+            return true;
+        }
+        try {
+            // Consecutive writes using the same statement are batched, which keeps them in order
+            PreparedStatement batch = null;
+            for(Write write : writes) {
+                PreparedStatement statement = this.prepare(write.sql);
+                if(statement != batch) {
+                    if(batch != null) {
+                        batch.executeBatch();
+                    }
+                    batch = statement;
+                }
+                for(int i = 0; i < write.params.length; i++) {
+                    Object param = write.params[i];
+                    if(param instanceof byte[]) {
+                        statement.setBytes(i + 1, (byte[]) param);
+                    } else {
+                        statement.setString(i + 1, (String) param);
+                    }
+                }
+                statement.addBatch();
+            }
+            batch.executeBatch();
+            this.connection.commit();
+        } catch(SQLException e) {
+            this.logger.log(Level.SEVERE, "Unable to write " + writes.size() + " changes to " + this.file.getName() + ", retrying", e);
+            try {
+                this.connection.rollback();
+            } catch(SQLException ignore) {
+                // Already reported
+            }
+            this.requeue(writes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts writes which failed back in front of the ones made since, unless a newer write replaced them.
+     *
+     * @param failed the writes which were rolled back
+     */
+    private synchronized void requeue(List<Write> failed) {
+        Set<String> replaced = new HashSet<>();
+        for(Write write : this.pending) {
+            if(write.replaces) {
+                replaced.add(write.target);
+            }
+        }
+        List<Write> retry = new ArrayList<>();
+        for(Write write : failed) {
+            if(!replaced.contains(write.target)) {
+                retry.add(write);
+            }
+        }
+        this.pending.addAll(0, retry);
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = this.statements.get(sql);
+        if(statement == null) {
+            statement = this.connection.prepareStatement(sql);
+            this.statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private void query(String sql, RowReader reader, String... params) {
+        try {
+            this.call(() -> {
+                this.select(sql, reader, params);
+                return null;
+            });
+        } catch(SQLException e) {
+            this.logger.log(Level.SEVERE, "Unable to load from " + this.file.getName(), e);
+        }
+    }
+
+    /**
+     * Runs a query on the database thread.
+     */
+    private void select(String sql, RowReader reader, String... params) throws SQLException {
+        PreparedStatement statement = this.prepare(sql);
+        for(int i = 0; i < params.length; i++) {
+            statement.setString(i + 1, params[i]);
+        }
+        try(ResultSet result = statement.executeQuery()) {
+            while(result.next()) {
+                reader.read(result);
+            }
+        }
+        this.connection.commit();
+    }
+
+    private <T> T call(SqlTask<T> task) throws SQLException {
+        try {
+            return this.writer.submit(task::run).get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    private static byte[] encodeArgs(String[] args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(args.length);
+            for(String arg : args) {
+                out.writeUTF(arg);
+            }
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String[] decodeArgs(byte[] encoded) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        String[] args = new String[in.readUnsignedByte()];
+        for(int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        return args;
+    }
+
+    private static AuctionLot decodeLot(byte[] encoded) throws IOException, ClassNotFoundException {
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+            return (AuctionLot) in.readObject();
+        }
+    }
+
+    private static byte[] encodeObject(Object object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Write {
+
+        private final String sql;
+        private final Object[] params;
+        // Rows the write changes, a replacing write makes earlier writes of the same rows obsolete
+        private final String target;
+        private final boolean replaces;
+
+        private Write(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+            switch(sql) {
+                case ADD_PLAYER:
+                case REMOVE_PLAYER:
+                    this.target = "player_sets " + params[0] + " " + params[1];
+                    break;
+                case PUT_PRESET:
+                    this.target = "presets " + params[0];
+                    break;
+                case ADD_ORPHAN_LOT:
+                case REMOVE_ORPHAN_LOTS:
+                    this.target = "orphan_lots " + params[0];
+                    break;
+                default:
+                    this.target = "auction_checkpoints " + params[0];
+                    break;
+            }
+            // Lots are added one by one, everything else overwrites the row
+            this.replaces = !sql.equals(ADD_ORPHAN_LOT);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlTask<T> {
+
+        T run() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+
+        void read(ResultSet result) throws SQLException;
+    }
+
+    private final class SqlitePlayerSet implements PlayerSetStore {
+
+        private final String name;
+        private final Set<UUID> uuids;
+
+        private SqlitePlayerSet(String name, Set<UUID> uuids) {
+            this.name = name;
+            this.uuids = uuids;
+        }
+
+        @Override
+        public boolean contains(UUID uuid) {
+            return this.uuids.contains(uuid);
+        }
+
+        @Override
+        public boolean add(UUID uuid) {
+            if(!this.uuids.add(uuid)) {
+                return false;
+            }
+            write(ADD_PLAYER, this.name, uuid.toString());
+            return true;
+        }
+
+        @Override
+        public boolean remove(UUID uuid) {
+            if(!this.uuids.remove(uuid)) {
+                return false;
+            }
+            write(REMOVE_PLAYER, this.name, uuid.toString());
+            return true;
+        }
+    }
+
+    private final class SqlitePlayerData extends PlayerDataCache {
+
+        @Override
+        protected void runOnStorageThread(Runnable task) {
+            try {
+                call(() -> {
+                    task.run();
+                    return null;
+                });
+            } catch(SQLException e) {
+                logger.log(Level.SEVERE, "Unable to load a player record", e);
+            }
+        }
+
+        @Override
+        protected void executeOnStorageThread(Runnable task) {
+            try {
+                writer.execute(task);
+            } catch(RejectedExecutionException e) {
+                logger.log(Level.SEVERE, "Unable to load a player record", e);
+            }
+        }
+
+        @Override
+        protected PlayerData read(UUID uuid) {
+            PlayerData data = new PlayerData(uuid);
+            String key = uuid.toString();
+            try {
+                select("SELECT uuid FROM player_sets WHERE name = ? AND uuid = ?", result -> data.setAuctionsDisabled(true), VOLUNTARILY_DISABLED, key);
+                select("SELECT args FROM presets WHERE uuid = ?", result -> {
+                    try {
+                        data.setPreset(decodeArgs(result.getBytes(1)));
+                    } catch(IOException e) {
+                        logger.log(Level.SEVERE, "Unable to read the preset of " + key, e);
+                    }
+                }, key);
+                select("SELECT id, lot FROM orphan_lots WHERE owner_uuid = ? ORDER BY id", result -> {
+                    try {
+                        data.getOrphanLots().add(decodeLot(result.getBytes(2)));
+                    } catch(IOException | ClassNotFoundException | ClassCastException e) {
+                        logger.log(Level.SEVERE, "Unable to read orphan lot " + result.getLong(1), e);
+                    }
+                }, key);
+            } catch(SQLException e) {
+                logger.log(Level.SEVERE, "Unable to load the record of " + key, e);
+            }
+            this.applyPending(data);
+            return data;
+        }
+
+        /**
+         * Applies the changes to a record which are not written yet, they may be waiting for a retry.
+         *
+         * @param data the record as read from the database
+         */
+        private void applyPending(PlayerData data) {
+            List<Write> writes;
+            synchronized(SqliteStorage.this) {
+                writes = new ArrayList<>(pending);
+            }
+            String key = data.getUUID().toString();
+            for(Write write : writes) {
+                try {
+                    switch(write.sql) {
+                        case ADD_PLAYER:
+                        case REMOVE_PLAYER:
+                            if(VOLUNTARILY_DISABLED.equals(write.params[0]) && key.equals(write.params[1])) {
+                                data.setAuctionsDisabled(write.sql.equals(ADD_PLAYER));
+                            }
+                            break;
+                        case PUT_PRESET:
+                            if(key.equals(write.params[0])) {
+                                data.setPreset(decodeArgs((byte[]) write.params[1]));
+                            }
+                            break;
+                        case ADD_ORPHAN_LOT:
+                            if(key.equals(write.params[0])) {
+                                data.getOrphanLots().add(decodeLot((byte[]) write.params[1]));
+                            }
+                            break;
+                        case REMOVE_ORPHAN_LOTS:
+                            if(key.equals(write.params[0])) {
+                                data.getOrphanLots().clear();
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                } catch(IOException | ClassNotFoundException e) {
+                    throw new IllegalStateException("Unable to decode a pending write", e);
+                }
+            }
+        }
+
+        @Override
+        protected void auctionsDisabledChanged(PlayerData data) {
+            write(data.isAuctionsDisabled() ? ADD_PLAYER : REMOVE_PLAYER, VOLUNTARILY_DISABLED, data.getUUID().toString());
+        }
+
+        @Override
+        protected void presetChanged(PlayerData data) {
+            write(PUT_PRESET, data.getUUID().toString(), encodeArgs(data.getPreset()));
+        }
+
+        @Override
+        protected void orphanLotAdded(AuctionLot lot, PlayerData data) {
+            write(ADD_ORPHAN_LOT, lot.getOwnerUUID().toString(), encodeObject(lot));
+        }
+
+        @Override
+        protected void orphanLotsChanged(PlayerData data) {
+            String key = data.getUUID().toString();
+            write(REMOVE_ORPHAN_LOTS, key);
+            for(AuctionLot lot : data.getOrphanLots()) {
+                write(ADD_ORPHAN_LOT, key, encodeObject(lot));
+            }
+        }
+    }
+
+    private final class SqliteCheckpoints implements CheckpointStore {
+
+        private final Map<UUID, AuctionCheckpoint> checkpoints;
+        private final Collection<AuctionCheckpoint> view;
+
+        private SqliteCheckpoints(Map<UUID, AuctionCheckpoint> checkpoints) {
+            this.checkpoints = checkpoints;
+            this.view = Collections.unmodifiableCollection(checkpoints.values());
+        }
+
+        @Override
+        public Collection<AuctionCheckpoint> getAll() {
+            return this.view;
+        }
+
+        @Override
+        public void put(AuctionCheckpoint checkpoint) {
+            this.checkpoints.put(checkpoint.getAuctionId(), checkpoint);
+            writeNow(PUT_CHECKPOINT, checkpoint.getAuctionId().toString(), encodeObject(checkpoint));
+        }
+
+        @Override
+        public void remove(UUID auctionId) {
+            if(this.checkpoints.remove(auctionId) != null) {
+                writeNow(REMOVE_CHECKPOINT, auctionId.toString());
+            }
+        }
+    }
+}
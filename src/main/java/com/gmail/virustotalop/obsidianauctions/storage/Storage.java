@@ -0,0 +1,35 @@
+package com.gmail.virustotalop.obsidianauctions.storage;
+
+/**
+ * Backend persisting the plugin state. Stores keep their contents in memory so reads never wait on the backend,
+ * changes are written in the background. Per player state is only kept in memory while the player is online.
+ */
+public interface Storage {
+
+    /**
+     * Loads a set of player uuids, for example the suspended players.
+     *
+     * @param name name of the set
+     * @return the loaded set
+     */
+    PlayerSetStore loadPlayerSet(String name);
+
+    /**
+     * Loads the per player records, only the records of players who are online are kept in memory.
+     *
+     * @return the player records
+     */
+    PlayerDataStore loadPlayerData();
+
+    /**
+     * Loads the checkpoints of running auctions.
+     *
+     * @return the loaded checkpoints
+     */
+    CheckpointStore loadCheckpoints();
+
+    /**
+     * Writes all pending changes and releases the backend, blocks until everything is written.
+     */
+    void close();
+}
@@ -3,9 +3,7 @@ package com.gmail.virustotalop.obsidianauctions.util;
 import com.gmail.virustotalop.obsidianauctions.AuctionConfig;
 import com.gmail.virustotalop.obsidianauctions.ObsidianAuctions;
 import com.gmail.virustotalop.obsidianauctions.auction.AuctionScope;
-import net.milkbowl.vault.economy.EconomyResponse;
 
-import java.text.DecimalFormat;
 import java.util.UUID;
 
 public class Functions {
@@ -36,10 +34,11 @@ public class Functions {
         String[] resultArgs = null;
 
         // if player has no preset, use the current system defaults:
-        if(ObsidianAuctions.userSavedInputArgs.get(playerUUID) == null) {
+        String[] preset = ObsidianAuctions.get().getPlayerData().getPreset(playerUUID);
+        if(preset == null) {
             resultArgs = new String[]{"this", removeUselessDecimal(Double.toString(AuctionConfig.getDouble("default-starting-bid", null))), removeUselessDecimal(Double.toString(AuctionConfig.getDouble("default-bid-increment", null))), Integer.toString(AuctionConfig.getInt("default-auction-time", null)), "0"};
         } else {
-            resultArgs = ObsidianAuctions.userSavedInputArgs.get(playerUUID).clone();
+            resultArgs = preset.clone();
         }
 
         // Size increased in 2.10.0
@@ -76,7 +75,7 @@ public class Functions {
                     resultArgs[1] = processArgs[1];
                 }
                 if(validateArgs) {
-                    if(resultArgs[1].isEmpty() || !resultArgs[1].matches(ObsidianAuctions.decimalRegex)) {
+                    if(Money.parse(resultArgs[1]) < 0) {
                         ObsidianAuctions.get().getMessageManager().sendPlayerMessage("parse-error-invalid-starting-bid", playerUUID, (AuctionScope) null);
                         return null;
                     }
@@ -88,7 +87,7 @@ public class Functions {
                         resultArgs[2] = processArgs[2];
                     }
                     if(validateArgs) {
-                        if(resultArgs[2].isEmpty() || !resultArgs[2].matches(ObsidianAuctions.decimalRegex)) {
+                        if(Money.parse(resultArgs[2]) < 0) {
                             ObsidianAuctions.get().getMessageManager().sendPlayerMessage("parse-error-invalid-max-bid", playerUUID, (AuctionScope) null);
                             return null;
                         }
@@ -112,7 +111,7 @@ public class Functions {
                                 resultArgs[4] = processArgs[4];
                             }
                             if(validateArgs) {
-                                if(resultArgs[4].isEmpty() || !resultArgs[4].matches(ObsidianAuctions.decimalRegex)) {
+                                if(Money.parse(resultArgs[4]) < 0) {
                                     ObsidianAuctions.get().getMessageManager().sendPlayerMessage("parse-error-invalid-buynow", playerUUID, (AuctionScope) null);
                                     return null;
                                 }
@@ -127,36 +126,28 @@ public class Functions {
 
     }
 
+    // Whether mergeInputArgs falls back to the system default for an argument, i.e. the player has no preset and didn't give it.
+    public static boolean usesSystemDefault(UUID playerUUID, String[] inputArgs, int index) {
+        if(ObsidianAuctions.get().getPlayerData().getPreset(playerUUID) != null) {
+            return false;
+        }
+        int offset = 0;
+        if(inputArgs.length > 0) {
+            String first = inputArgs[0];
+            if(first.equalsIgnoreCase("start") || first.equalsIgnoreCase("s") || first.equalsIgnoreCase("prep") || first.equalsIgnoreCase("p")) {
+                offset = 1;
+            }
+        }
+        return inputArgs.length <= index + offset || inputArgs[index + offset].equalsIgnoreCase("-");
+    }
+
     // Money functions.
     public static String formatAmount(long safeMoney) {
-        return formatAmount(getUnsafeMoney(safeMoney));
+        return formatAmount(Money.toMajor(safeMoney));
     }
 
     public static String formatAmount(double unsafeMoney) {
         String vaultFormat = ObsidianAuctions.get().getEconomy().format(unsafeMoney);
         return vaultFormat;//decFormat.format(vaultFormat);
     }
-
-    public static boolean withdrawPlayer(String playerName, long safeMoney) {
-        return withdrawPlayer(playerName, getUnsafeMoney(safeMoney));
-    }
-
-    public static boolean withdrawPlayer(String playerName, double unsafeMoney) {
-        EconomyResponse receipt = ObsidianAuctions.get().getEconomy().withdrawPlayer(playerName, unsafeMoney);
-        return receipt.transactionSuccess();
-    }
-
-    public static boolean depositPlayer(String playerName, double unsafeMoney) {
-        EconomyResponse receipt = ObsidianAuctions.get().getEconomy().depositPlayer(playerName, unsafeMoney);
-        return receipt.transactionSuccess();
-    }
-
-    public static long getSafeMoney(Double money) {
-        DecimalFormat twoDForm = new DecimalFormat("#");
-        return Long.valueOf(twoDForm.format(money * Math.pow(10, ObsidianAuctions.decimalPlaces)));
-    }
-
-    public static double getUnsafeMoney(long money) {
-        return (double) money / Math.pow(10, ObsidianAuctions.decimalPlaces);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package com.gmail.virustotalop.obsidianauctions.util;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * Plans moving one kind of item into or out of a player inventory. The storage contents are scanned once, amounts and
+ * free space are answered from that scan and planned changes are written to the inventory in a single pass by {@link #apply()}.
+ */
+public class InventoryPlanner {
+
+    private final PlayerInventory inventory;
+    private final ItemStack item;
+    private final int maxStackSize;
+    private final ItemStack[] contents;
+    private final boolean[] changed;
+    // Slots holding the item and empty slots, both in inventory order
+    private final int[] similarSlots;
+    private final int similarCount;
+    private final int[] emptySlots;
+    private final int emptyCount;
+    private int amount = 0;
+    private int space = 0;
+
+    private InventoryPlanner(PlayerInventory inventory, ItemStack item) {
+        this.inventory = inventory;
+        this.item = item;
+        this.maxStackSize = Items.getMaxStackSize(item);
+        this.contents = inventory.getStorageContents();
+        this.changed = new boolean[this.contents.length];
+        this.similarSlots = new int[this.contents.length];
+        this.emptySlots = new int[this.contents.length];
+        int similarCount = 0;
+        int emptyCount = 0;
+        for(int slot = 0; slot < this.contents.length; slot++) {
+            ItemStack current = this.contents[slot];
+            if(isEmpty(current)) {
+                this.emptySlots[emptyCount++] = slot;
+                this.space += this.maxStackSize;
+            } else if(Items.isSameItem(item, current)) {
+                this.similarSlots[similarCount++] = slot;
+                this.amount += current.getAmount();
+                this.space += Math.max(this.maxStackSize - current.getAmount(), 0);
+            }
+        }
+        this.similarCount = similarCount;
+        this.emptyCount = emptyCount;
+    }
+
+    /**
+     * Scans the storage contents of an inventory for an item.
+     *
+     * @param inventory the inventory
+     * @param item      the item, the amount is ignored
+     * @return the planner
+     */
+    public static InventoryPlanner scan(PlayerInventory inventory, ItemStack item) {
+        return new InventoryPlanner(inventory, item);
+    }
+
+    /**
+     * @return how many of the item the inventory holds, including planned changes
+     */
+    public int getAmount() {
+        return this.amount;
+    }
+
+    /**
+     * @return how many of the item fit into the inventory, including planned changes
+     */
+    public int getSpace() {
+        return this.space;
+    }
+
+    /**
+     * Plans taking items out of the inventory, the held stack is used first.
+     *
+     * @param amount how many to take
+     * @return how many will be taken
+     */
+    public int remove(int amount) {
+        int removed = 0;
+        int heldSlot = this.inventory.getHeldItemSlot();
+        for(int i = 0; i < this.similarCount; i++) {
+            if(this.similarSlots[i] == heldSlot) {
+                removed += this.take(heldSlot, amount);
+            }
+        }
+        for(int i = 0; i < this.similarCount && removed < amount; i++) {
+            removed += this.take(this.similarSlots[i], amount - removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Plans putting items into the inventory, partial stacks are filled before empty slots are used.
+     *
+     * @param amount how many to put
+     * @return how many will be put, the rest does not fit
+     */
+    public int give(int amount) {
+        int given = 0;
+        for(int i = 0; i < this.similarCount && given < amount; i++) {
+            given += this.put(this.similarSlots[i], amount - given);
+        }
+        for(int i = 0; i < this.emptyCount && given < amount; i++) {
+            given += this.put(this.emptySlots[i], amount - given);
+        }
+        return given;
+    }
+
+    /**
+     * Writes the planned changes to the inventory.
+     */
+    public void apply() {
+        for(int slot = 0; slot < this.contents.length; slot++) {
+            if(this.changed[slot]) {
+                this.changed[slot] = false;
+                if(isEmpty(this.contents[slot])) {
+                    this.inventory.clear(slot);
+                } else {
+                    this.inventory.setItem(slot, this.contents[slot]);
+                }
+            }
+        }
+    }
+
+    private int take(int slot, int amount) {
+        ItemStack current = this.contents[slot];
+        if(isEmpty(current) || amount <= 0) {
+            return 0;
+        }
+        int taken = Math.min(current.getAmount(), amount);
+        int left = current.getAmount() - taken;
+        if(left == 0) {
+            this.contents[slot] = null;
+            this.space += this.maxStackSize - Math.max(this.maxStackSize - current.getAmount(), 0);
+        } else {
+            ItemStack stack = current.clone();
+            stack.setAmount(left);
+            this.contents[slot] = stack;
+            this.space += Math.max(this.maxStackSize - left, 0) - Math.max(this.maxStackSize - current.getAmount(), 0);
+        }
+        this.changed[slot] = true;
+        this.amount -= taken;
+        return taken;
+    }
+
+    private int put(int slot, int amount) {
+        ItemStack current = this.contents[slot];
+        int has = isEmpty(current) ? 0 : current.getAmount();
+        int put = Math.min(this.maxStackSize - has, amount);
+        if(put <= 0) {
+            return 0;
+        }
+        ItemStack stack = isEmpty(current) ? this.item.clone() : current.clone();
+        stack.setAmount(has + put);
+        this.contents[slot] = stack;
+        this.changed[slot] = true;
+        this.amount += put;
+        this.space -= put;
+        return put;
+    }
+
+    private static boolean isEmpty(ItemStack itemStack) {
+        return itemStack == null || itemStack.getType() == Material.AIR;
+    }
+}
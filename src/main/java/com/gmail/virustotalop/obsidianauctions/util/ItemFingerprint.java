@@ -0,0 +1,96 @@
+package com.gmail.virustotalop.obsidianauctions.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes a stable 64 bit fingerprint of an item type which ignores the stack amount.
+ */
+public final class ItemFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Gets the fingerprint of an item stack, two stacks of the same item have the same fingerprint regardless of amount.
+     *
+     * @param itemStack the item to fingerprint
+     * @return the fingerprint, zero for a null item
+     */
+    public static long of(ItemStack itemStack) {
+        if(itemStack == null) {
+            return 0L;
+        }
+        long hash = FNV_OFFSET;
+        hash = hash(hash, itemStack.getType().name());
+        hash = hash(hash, String.valueOf(LegacyUtil.getDurability(itemStack)));
+        if(itemStack.hasItemMeta()) {
+            for(Map.Entry<String, Object> entry : new TreeMap<>(itemStack.getItemMeta().serialize()).entrySet()) {
+                hash = hash(hash, entry.getKey());
+                hash = hashValue(hash, entry.getValue());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a serialized meta value the same way regardless of the order its maps and sets were filled in,
+     * enchantments for example keep the order they were added in on newer servers.
+     */
+    private static long hashValue(long hash, Object value) {
+        if(value instanceof ConfigurationSerializable) {
+            hash = hash(hash, value.getClass().getName());
+            return hashValue(hash, ((ConfigurationSerializable) value).serialize());
+        } else if(value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            hash = hash(hash, "{");
+            for(Map.Entry<String, Object> entry : sorted.entrySet()) {
+                hash = hash(hash, entry.getKey());
+                hash = hashValue(hash, entry.getValue());
+            }
+            return hash(hash, "}");
+        } else if(value instanceof List) {
+            // Order is part of the item here, banner patterns for example
+            hash = hash(hash, "[");
+            for(Object element : (List<?>) value) {
+                hash = hashValue(hash, element);
+            }
+            return hash(hash, "]");
+        } else if(value instanceof Collection) {
+            long[] elements = new long[((Collection<?>) value).size()];
+            int i = 0;
+            for(Object element : (Collection<?>) value) {
+                elements[i++] = hashValue(FNV_OFFSET, element);
+            }
+            Arrays.sort(elements);
+            hash = hash(hash, "(");
+            for(long element : elements) {
+                hash = hash(hash, Long.toHexString(element));
+            }
+            return hash(hash, ")");
+        }
+        return hash(hash, String.valueOf(value));
+    }
+
+    private static long hash(long hash, String value) {
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        // Separator so that adjacent values can't run into each other
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    private ItemFingerprint() {
+    }
+}
@@ -1,5 +1,6 @@
 package com.gmail.virustotalop.obsidianauctions.util;
 
+import com.gmail.virustotalop.obsidianauctions.nbt.NmsAdapters;
 import org.bukkit.Bukkit;
 import org.bukkit.FireworkEffect;
 import org.bukkit.Material;
@@ -7,7 +8,6 @@ import org.bukkit.enchantments.Enchantment;
 import org.bukkit.enchantments.EnchantmentWrapper;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.inventory.meta.BookMeta;
 import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 import org.bukkit.inventory.meta.FireworkEffectMeta;
@@ -16,94 +16,52 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.Repairable;
 import org.bukkit.inventory.meta.SkullMeta;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Items {
 
-    private static Map<Integer, String> enchantmentNames = new HashMap<>();
-    private static Map<Integer, String> enchantmentLevels = new HashMap<>();
-
-    private static int firstPartial(ItemStack item, ItemStack[] inventory) {
-        if(item == null) {
-            return -1;
-        }
-        for(int i = 0; i < inventory.length; i++) {
-            ItemStack cItem = inventory[i];
-            if(cItem != null && cItem.getAmount() < cItem.getMaxStackSize() && isSameItem(item, cItem)) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private static int firstEmpty(ItemStack[] inventory) {
-        for(int i = 0; i < inventory.length; i++) {
-            if(inventory[i] == null) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    // Most of this function was copied from CraftBukkit.  The above functions too.
-    public static void saferItemGive(PlayerInventory playerInventory, ItemStack item) {
-        // After bukkit is fixed:
-        // player.getInventory().addItem(givingItems);
-
-        while(true) {
-            // Do we already have a stack of it?
-            int firstPartial = firstPartial(item, playerInventory.getStorageContents());
-
-            // Drat! no partial stack
-            if(firstPartial == -1) {
-                // Find a free spot!
-                int firstFree = firstEmpty(playerInventory.getStorageContents());
-
-                if(firstFree == -1) {
-                    // No space at all!
-                    // Bukkit returns unplaced items, but floAuction only calls this after checking for space.
-                    break;
-                } else {
-                    // Again, floAuction checks for this elsewhere before calling this...technically this would never occur, no reason to code for it.
-
-                    // More than a single stack!
-/*                    if (item.getAmount() > getMaxStackSize(item)) {
-                        CraftItemStack stack = new CraftItemStack(item.getTypeId(), getMaxStackSize(item), item.getDurability());
-                        stack.addUnsafeEnchantments(item.getEnchantments());
-                        playerInventory.setItem(firstFree, stack);
-                        item.setAmount(item.getAmount() - getMaxStackSize(item));
-                    } else {*/
-                    // Just store it
-                    playerInventory.setItem(firstFree, item);
-                    break;
-//                    }
-                }
-            } else {
-                // So, apparently it might only partially fit, well lets do just that
-                ItemStack partialItem = playerInventory.getItem(firstPartial);
-
-                int amount = item.getAmount();
-                int partialAmount = partialItem.getAmount();
-                int maxAmount = partialItem.getMaxStackSize();
-
-                // Check if it fully fits
-                if(amount + partialAmount <= maxAmount) {
-                    partialItem.setAmount(amount + partialAmount);
-                    break;
-                }
-
-                // It fits partially
-                partialItem.setAmount(maxAmount);
-                item.setAmount(amount + partialAmount - maxAmount);
-            }
-        }
-
+    private static final Map<Integer, String> enchantmentNames = new HashMap<>();
+    private static final Map<Integer, String> enchantmentLevels = new HashMap<>();
+    // Parsed banned and taxed item rules
+    private static final Map<String, Rule> rules = new ConcurrentHashMap<>();
+
+    static {
+        enchantmentNames.put(0, "Protection");
+        enchantmentNames.put(1, "Fire Protection");
+        enchantmentNames.put(2, "Feather Falling");
+        enchantmentNames.put(3, "Blast Protection");
+        enchantmentNames.put(4, "Projectile Protection");
+        enchantmentNames.put(5, "Respiration");
+        enchantmentNames.put(6, "Aqua Afinity");
+        enchantmentNames.put(8, "Depth Strider");
+        enchantmentNames.put(16, "Sharpness");
+        enchantmentNames.put(17, "Smite");
+        enchantmentNames.put(18, "Bane of Arthropods");
+        enchantmentNames.put(19, "Knockback");
+        enchantmentNames.put(20, "Fire Aspect");
+        enchantmentNames.put(21, "Looting");
+        enchantmentNames.put(32, "Efficiency");
+        enchantmentNames.put(33, "Silk Touch");
+        enchantmentNames.put(34, "Unbreaking");
+        enchantmentNames.put(35, "Fortune");
+        enchantmentNames.put(48, "Power");
+        enchantmentNames.put(49, "Punch");
+        enchantmentNames.put(50, "Flame");
+        enchantmentNames.put(51, "Infinity");
+        enchantmentNames.put(61, "Luck of the Sea");
+        enchantmentNames.put(62, "Lure");
+        enchantmentNames.put(70, "Mending");
+        enchantmentLevels.put(0, "");
+        enchantmentLevels.put(1, "I");
+        enchantmentLevels.put(2, "II");
+        enchantmentLevels.put(3, "III");
+        enchantmentLevels.put(4, "IV");
+        enchantmentLevels.put(5, "V");
     }
 
     public static String[] getLore(ItemStack item) {
@@ -230,19 +188,7 @@ public class Items {
     }
 
     public static Object getNbtTag(ItemStack item) {
-        Object tag = null;
-        try {
-            Class<?> craftItemStack = Class.forName("org.bukkit.craftbukkit." + VersionUtil.getVersion() + ".inventory.CraftItemStack");
-            Method asCraftCopy = craftItemStack.getMethod("asCraftCopy", ItemStack.class);
-            Method asNMSCopy = craftItemStack.getMethod("asNMSCopy", ItemStack.class);
-            Object craftCopy = asCraftCopy.invoke(null, item);
-            Object itemStack = asNMSCopy.invoke(null, craftCopy);
-            Method tagField = itemStack.getClass().getMethod("getTag");
-            tag = tagField.invoke(itemStack);
-        } catch(ClassNotFoundException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-            e.printStackTrace();
-        }
-        return tag;
+        return NmsAdapters.get().getTag(item);
     }
 
     public static String getHeadOwner(ItemStack item) {
@@ -386,19 +332,36 @@ public class Items {
 
     // Some of this was taken from Vault's item classes.
     public static boolean isSameItem(ItemStack item, String searchString) {
-        Material mat;
-        short damageId = 0;
-        if(searchString.contains(",")) {
-            String[] split = searchString.split(",");
-            mat = Material.valueOf(split[0]);
-            damageId = Short.parseShort(split[1]);
-        } else {
-            mat = Material.valueOf(searchString);
-        }
-        if(damageId != 0) {
-            return isSameItem(item, new ItemStack(mat, 1, damageId));
-        }
-        return isSameItem(item, new ItemStack(mat, 1));
+        return isSameItem(item, getRule(searchString).item);
+    }
+
+    /**
+     * Checks an item against a banned or taxed item rule in the form MATERIAL or MATERIAL,damage. Rules are parsed
+     * once and compared by fingerprint first, isSimilar only confirms a match.
+     *
+     * @param item         the item
+     * @param fingerprint  fingerprint of the item
+     * @param searchString the rule
+     * @return whether the item matches the rule
+     */
+    public static boolean isSameItem(ItemStack item, long fingerprint, String searchString) {
+        Rule rule = getRule(searchString);
+        return rule.fingerprint == fingerprint && isSameItem(item, rule.item);
+    }
+
+    private static Rule getRule(String searchString) {
+        return rules.computeIfAbsent(searchString, key -> {
+            Material mat;
+            short damageId = 0;
+            if(key.contains(",")) {
+                String[] split = key.split(",");
+                mat = Material.valueOf(split[0]);
+                damageId = Short.parseShort(split[1]);
+            } else {
+                mat = Material.valueOf(key);
+            }
+            return new Rule(damageId != 0 ? new ItemStack(mat, 1, damageId) : new ItemStack(mat, 1));
+        });
     }
 
     public static boolean isSameItem(ItemStack item1, ItemStack item2) {
@@ -458,21 +421,7 @@ public class Items {
     }
 
     public static int getSpaceForItem(Player player, ItemStack item) {
-        int maxstack = getMaxStackSize(item);
-        int space = 0;
-
-        ItemStack[] items = player.getInventory().getStorageContents();
-        for(ItemStack current : items) {
-            if(current == null) {
-                space += maxstack;
-                continue;
-            }
-            if(isSameItem(item, current)) {
-                space += maxstack - current.getAmount();
-            }
-        }
-
-        return space;
+        return InventoryPlanner.scan(player.getInventory(), item).getSpace();
     }
 
     public static boolean hasSpace(Player player, int needed, ItemStack item) {
@@ -497,62 +446,17 @@ public class Items {
     }
 
     public static int getAmount(String ownerName, ItemStack compareItem) {
-        if(Bukkit.getPlayer(ownerName) == null) return 0;
-        PlayerInventory inventory = Bukkit.getPlayer(ownerName).getInventory();
-        ItemStack[] items = inventory.getStorageContents();
-        int has = 0;
-        for(ItemStack item : items) {
-            if(isSameItem(compareItem, item)) {
-                has += item.getAmount();
-            }
-        }
-        return has;
+        Player player = Bukkit.getPlayer(ownerName);
+        if(player == null) return 0;
+        return InventoryPlanner.scan(player.getInventory(), compareItem).getAmount();
     }
 
     public static void remove(String playerName, int amount, ItemStack compareItem) {
         Player player = Bukkit.getPlayer(playerName);
         if(player != null) {
-            PlayerInventory inventory = player.getInventory();
-
-            // Remove held item first:
-            ItemStack hand = LegacyUtil.getItemInMainHand(player);
-            if(isSameItem(compareItem, hand)) {
-                int heldAmount = hand.getAmount();
-                if(heldAmount <= amount) {
-                    amount -= heldAmount;
-                    inventory.clear(inventory.getHeldItemSlot());
-                } else {
-                    hand.setAmount(heldAmount - amount);
-                    amount = 0;
-                }
-            }
-
-            int counter = amount;
-            int leftover = 0;
-
-            // Remove from other stacks:
-            for(int invIndex = 0; invIndex < inventory.getSize(); invIndex++) {
-                ItemStack current = inventory.getItem(invIndex);
-
-                if(current == null || current.getAmount() <= 0)
-                    continue;
-
-                if(!isSameItem(compareItem, current))
-                    continue;
-
-                if(current.getAmount() > counter) {
-                    leftover = current.getAmount() - counter;
-                }
-
-                if(leftover != 0) {
-                    current.setAmount(leftover);
-                    counter = 0;
-                    break;
-                } else {
-                    counter -= current.getAmount();
-                    inventory.clear(invIndex);
-                }
-            }
+            InventoryPlanner planner = InventoryPlanner.scan(player.getInventory(), compareItem);
+            planner.remove(amount);
+            planner.apply();
         }
     }
 
@@ -596,58 +500,21 @@ public class Items {
     }
 
     public static String getEnchantmentName(Entry<Enchantment, Integer> enchantment) {
-        int enchantmentId = enchantment.getKey().getId();
-        int enchantmentLevel = enchantment.getValue();
-        String enchantmentName = null;
-        if(enchantmentNames.size() == 0) {
-            enchantmentNames = new HashMap<>();
-            enchantmentNames.put(0, "Protection");
-            enchantmentNames.put(1, "Fire Protection");
-            enchantmentNames.put(2, "Feather Falling");
-            enchantmentNames.put(3, "Blast Protection");
-            enchantmentNames.put(4, "Projectile Protection");
-            enchantmentNames.put(5, "Respiration");
-            enchantmentNames.put(6, "Aqua Afinity");
-            enchantmentNames.put(8, "Depth Strider");
-            enchantmentNames.put(16, "Sharpness");
-            enchantmentNames.put(17, "Smite");
-            enchantmentNames.put(18, "Bane of Arthropods");
-            enchantmentNames.put(19, "Knockback");
-            enchantmentNames.put(20, "Fire Aspect");
-            enchantmentNames.put(21, "Looting");
-            enchantmentNames.put(32, "Efficiency");
-            enchantmentNames.put(33, "Silk Touch");
-            enchantmentNames.put(34, "Unbreaking");
-            enchantmentNames.put(35, "Fortune");
-            enchantmentNames.put(48, "Power");
-            enchantmentNames.put(49, "Punch");
-            enchantmentNames.put(50, "Flame");
-            enchantmentNames.put(51, "Infinity");
-            enchantmentNames.put(61, "Luck of the Sea");
-            enchantmentNames.put(62, "Lure");
-            enchantmentNames.put(70, "Mending");
-        }
-        if(enchantmentNames.get(enchantmentId) != null) {
-            enchantmentName = enchantmentNames.get(enchantmentId) + " ";
-        } else {
-            enchantmentName = "UNKNOWN ";
-        }
-        if(enchantmentLevels.size() == 0) {
-            enchantmentLevels = new HashMap<Integer, String>();
-            enchantmentLevels.put(0, "");
-            enchantmentLevels.put(1, "I");
-            enchantmentLevels.put(2, "II");
-            enchantmentLevels.put(3, "III");
-            enchantmentLevels.put(4, "IV");
-            enchantmentLevels.put(5, "V");
-        }
-        if(enchantmentLevels.get(enchantmentLevel) != null) {
-            enchantmentName += enchantmentLevels.get(enchantmentLevel) + " ";
-        } else {
-            enchantmentName += enchantmentLevel;
-        }
-        return enchantmentName;
+        String enchantmentName = enchantmentNames.get(enchantment.getKey().getId());
+        String enchantmentLevel = enchantmentLevels.get(enchantment.getValue());
+        return (enchantmentName != null ? enchantmentName : "UNKNOWN") + " "
+                + (enchantmentLevel != null ? enchantmentLevel + " " : enchantment.getValue());
     }
     //}
 
+    private static final class Rule {
+
+        private final ItemStack item;
+        private final long fingerprint;
+
+        private Rule(ItemStack item) {
+            this.item = item;
+            this.fingerprint = ItemFingerprint.of(item);
+        }
+    }
 }
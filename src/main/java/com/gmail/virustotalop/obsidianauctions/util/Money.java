@@ -0,0 +1,201 @@
+package com.gmail.virustotalop.obsidianauctions.util;
+
+/**
+ * An amount of money in minor units, floAuction's proprietary "safe money". The scale follows the fractional digits
+ * of the economy and is computed once by {@link #setDecimalPlaces(int)}. Amounts which are only stored or compared are
+ * kept as plain longs, the static helpers convert them without allocating.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int MAX_WHOLE_DIGITS = 13;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for(int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private static volatile int decimalPlaces = 0;
+    private static volatile long scale = 1;
+    private static volatile double unsafeScale = 1D;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Sets how many digits of an amount follow the decimal point.
+     *
+     * @param places the fractional digits of the economy
+     */
+    public static void setDecimalPlaces(int places) {
+        int clamped = Math.max(0, Math.min(places, POWERS_OF_TEN.length - 1 - MAX_WHOLE_DIGITS));
+        decimalPlaces = clamped;
+        scale = POWERS_OF_TEN[clamped];
+        unsafeScale = POWERS_OF_TEN[clamped];
+    }
+
+    public static int getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    public static Money ofMajor(double majorUnits) {
+        return ofMinor(toMinor(majorUnits));
+    }
+
+    /**
+     * Converts an amount the economy understands to minor units.
+     *
+     * @param majorUnits the amount as a double
+     * @return the amount in minor units, rounded to the nearest
+     */
+    public static long toMinor(double majorUnits) {
+        return Math.round(majorUnits * unsafeScale);
+    }
+
+    /**
+     * Converts minor units to an amount the economy understands.
+     *
+     * @param minorUnits the amount in minor units
+     * @return the amount as a double
+     */
+    public static double toMajor(long minorUnits) {
+        return minorUnits / unsafeScale;
+    }
+
+    /**
+     * Parses an amount typed by a player, up to 13 digits followed by an optional point and at most as many digits as
+     * the economy has decimal places.
+     *
+     * @param text the typed amount
+     * @return the amount in minor units or -1 if it is not a valid amount
+     */
+    public static long parse(CharSequence text) {
+        int places = decimalPlaces;
+        int length = text.length();
+        int i = 0;
+        long whole = 0;
+        int wholeDigits = 0;
+        for(; i < length; i++) {
+            char c = text.charAt(i);
+            if(c == '.') {
+                break;
+            } else if(c < '0' || c > '9' || ++wholeDigits > MAX_WHOLE_DIGITS) {
+                return -1;
+            }
+            whole = whole * 10 + (c - '0');
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if(i < length) {
+            for(i++; i < length; i++) {
+                char c = text.charAt(i);
+                if(c < '0' || c > '9' || ++fractionDigits > places) {
+                    return -1;
+                }
+                fraction = fraction * 10 + (c - '0');
+            }
+            if(fractionDigits == 0) {
+                return -1;
+            }
+        } else if(wholeDigits == 0) {
+            return -1;
+        }
+        return whole * POWERS_OF_TEN[places] + fraction * POWERS_OF_TEN[places - fractionDigits];
+    }
+
+    /**
+     * Appends an amount the way a player would type it, trailing zeros of the fraction are left out.
+     *
+     * @param out        where to append to
+     * @param minorUnits the amount in minor units
+     * @return the builder
+     */
+    public static StringBuilder appendTo(StringBuilder out, long minorUnits) {
+        long currentScale = scale;
+        if(minorUnits < 0) {
+            out.append('-');
+        }
+        long whole = Math.abs(minorUnits / currentScale);
+        long fraction = Math.abs(minorUnits % currentScale);
+        out.append(whole);
+        if(fraction != 0) {
+            out.append('.');
+            int digits = decimalPlaces;
+            while(fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            // Leading zeros of the fraction
+            for(long power = POWERS_OF_TEN[digits - 1]; power > fraction; power /= 10) {
+                out.append('0');
+            }
+            out.append(fraction);
+        }
+        return out;
+    }
+
+    public long getMinorUnits() {
+        return this.minorUnits;
+    }
+
+    public double toMajor() {
+        return toMajor(this.minorUnits);
+    }
+
+    public boolean isPositive() {
+        return this.minorUnits > 0;
+    }
+
+    public Money add(Money other) {
+        return ofMinor(Math.addExact(this.minorUnits, other.minorUnits));
+    }
+
+    public Money subtract(Money other) {
+        return ofMinor(Math.subtractExact(this.minorUnits, other.minorUnits));
+    }
+
+    public Money multiply(long factor) {
+        return ofMinor(Math.multiplyExact(this.minorUnits, factor));
+    }
+
+    /**
+     * Gets a percentage of this amount rounded to the nearest minor unit.
+     *
+     * @param percent the percentage
+     * @return the share
+     */
+    public Money percent(double percent) {
+        return ofMinor(Math.round(this.minorUnits * (percent / 100D)));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(this.minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Money && ((Money) obj).minorUnits == this.minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(24), this.minorUnits).toString();
+    }
+}
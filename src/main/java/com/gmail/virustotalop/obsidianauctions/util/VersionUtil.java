@@ -4,13 +4,16 @@ import org.bukkit.Bukkit;
 
 public class VersionUtil {
 
-    public synchronized static String getVersion() {
-        String version = "";
-        if(Bukkit.getServer() == null) {
-            return null;
+    // The server doesn't change while running, null until it is known
+    private static volatile String version;
+
+    public static String getVersion() {
+        String version = VersionUtil.version;
+        if(version == null && Bukkit.getServer() != null) {
+            String name = Bukkit.getServer().getClass().getPackage().getName();
+            version = name.substring(name.lastIndexOf('.') + 1);
+            VersionUtil.version = version;
         }
-        String name = Bukkit.getServer().getClass().getPackage().getName();
-        version = name.substring(name.lastIndexOf('.') + 1);
         return version;
     }
 }
\ No newline at end of file
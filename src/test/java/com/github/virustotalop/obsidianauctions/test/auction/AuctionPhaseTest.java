@@ -0,0 +1,29 @@
+package com.github.virustotalop.obsidianauctions.test.auction;
+
+import com.gmail.virustotalop.obsidianauctions.auction.AuctionPhase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuctionPhaseTest {
+
+    @Test
+    public void testPendingIsDroppedQuietly() {
+        // Ending an auction which waits for its start tax neither announces nor records it
+        assertFalse(AuctionPhase.PENDING.isAnnounced());
+        assertTrue(AuctionPhase.PENDING.isDisposable());
+    }
+
+    @Test
+    public void testRunningIsAnnounced() {
+        assertTrue(AuctionPhase.RUNNING.isAnnounced());
+        assertTrue(AuctionPhase.RUNNING.isDisposable());
+    }
+
+    @Test
+    public void testDisposedIsLeftAlone() {
+        assertFalse(AuctionPhase.DISPOSED.isAnnounced());
+        assertFalse(AuctionPhase.DISPOSED.isDisposable());
+    }
+}
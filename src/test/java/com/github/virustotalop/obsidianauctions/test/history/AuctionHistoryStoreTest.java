@@ -0,0 +1,93 @@
+package com.github.virustotalop.obsidianauctions.test.history;
+
+import com.gmail.virustotalop.obsidianauctions.history.AuctionHistoryEntry;
+import com.gmail.virustotalop.obsidianauctions.history.AuctionHistoryStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuctionHistoryStoreTest {
+
+    private static final Logger LOGGER = Logger.getLogger("AuctionHistoryStoreTest");
+    private static final UUID SELLER = new UUID(0, 1);
+    private static final UUID WINNER = new UUID(0, 2);
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testQueriesAcrossSegments() throws Exception {
+        this.write(5, 2);
+        AuctionHistoryStore store = this.open(2);
+        List<AuctionHistoryEntry> entries = store.findByPlayer(WINNER, 0, 10).get();
+        assertEquals(5, entries.size());
+        // Newest first
+        assertEquals(5, entries.get(0).getQuantity());
+        assertEquals(3, store.findByMaterial("stone", 0, 3).get().size());
+        assertEquals(5, store.findByPlayerName("SELLER", 0, 10).get().size());
+        assertTrue(store.findByPlayer(new UUID(0, 3), 0, 10).get().isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void testRebuildMissingIndex() throws Exception {
+        this.write(5, 2);
+        assertTrue(new File(this.folder, "segment-000001.idx").delete());
+        AuctionHistoryStore store = this.open(2);
+        assertEquals(5, store.findByPlayer(SELLER, 0, 10).get().size());
+        store.close();
+        assertTrue(new File(this.folder, "segment-000001.idx").exists());
+    }
+
+    @Test
+    public void testTornTailIsCutOff() throws Exception {
+        this.write(3, 100);
+        File data = new File(this.folder, "segment-000001.dat");
+        long complete;
+        try(RandomAccessFile file = new RandomAccessFile(data, "rw")) {
+            complete = file.length();
+            // The length prefix of a record which never made it to disk
+            file.seek(complete);
+            file.writeInt(64);
+            file.write(new byte[10]);
+        }
+        AuctionHistoryStore store = this.open(100);
+        assertEquals(3, store.findByPlayer(SELLER, 0, 10).get().size());
+        store.record(this.entry(4));
+        assertEquals(4, store.findByPlayer(SELLER, 0, 10).get().size());
+        store.close();
+
+        store = this.open(100);
+        List<AuctionHistoryEntry> entries = store.findByPlayer(SELLER, 0, 10).get();
+        assertEquals(4, entries.size());
+        assertEquals(4, entries.get(0).getQuantity());
+        store.close();
+    }
+
+    private void write(int count, int segmentSize) {
+        AuctionHistoryStore store = this.open(segmentSize);
+        for(int i = 1; i <= count; i++) {
+            store.record(this.entry(i));
+        }
+        store.close();
+    }
+
+    private AuctionHistoryStore open(int segmentSize) {
+        AuctionHistoryStore store = new AuctionHistoryStore(this.folder, LOGGER, segmentSize, true);
+        store.start();
+        return store;
+    }
+
+    private AuctionHistoryEntry entry(int quantity) {
+        return new AuctionHistoryEntry(UUID.randomUUID(), 1000L * quantity, "default", SELLER, "Seller",
+                WINNER, "Winner", "STONE", 42L, quantity, 100L * quantity);
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.virustotalop.obsidianauctions.test.journal;
+
+import com.gmail.virustotalop.obsidianauctions.journal.AuctionJournal;
+import com.gmail.virustotalop.obsidianauctions.journal.JournalReader;
+import com.gmail.virustotalop.obsidianauctions.journal.JournalRecord;
+import com.gmail.virustotalop.obsidianauctions.journal.JournalRecordType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AuctionJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger("AuctionJournalTest");
+    private static final UUID AUCTION = new UUID(0, 1);
+    private static final UUID BIDDER = new UUID(0, 2);
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = new File(this.folder, "auctions.journal");
+        this.write(file, 1, 2, 3);
+        List<JournalRecord> records = this.replay(file);
+        assertEquals(3, records.size());
+        assertEquals(JournalRecordType.BID, records.get(0).getType());
+        assertEquals(AUCTION, records.get(0).getAuctionId());
+        assertEquals(BIDDER, records.get(0).getActor());
+        assertEquals("default", records.get(0).getScopeId());
+        assertEquals(300L, records.get(2).getAmount());
+    }
+
+    @Test
+    public void testAppendAfterTruncation() throws IOException {
+        File file = new File(this.folder, "auctions.journal");
+        this.write(file, 1, 2, 3);
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertEquals(2, this.replay(file).size());
+
+        // Records written after the crash follow the last complete one
+        this.write(file, 4, 5);
+        List<JournalRecord> records = this.replay(file);
+        assertEquals(4, records.size());
+        assertEquals(200L, records.get(1).getAmount());
+        assertEquals(400L, records.get(2).getAmount());
+        assertEquals(500L, records.get(3).getAmount());
+    }
+
+    @Test
+    public void testBadChecksumEndsJournal() throws IOException {
+        File file = new File(this.folder, "auctions.journal");
+        this.write(file, 1, 2);
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        }
+        assertEquals(1, this.replay(file).size());
+        this.write(file, 3);
+        List<JournalRecord> records = this.replay(file);
+        assertEquals(2, records.size());
+        assertEquals(300L, records.get(1).getAmount());
+    }
+
+    private void write(File file, int... amounts) {
+        AuctionJournal journal = new AuctionJournal(file, LOGGER, true);
+        journal.start();
+        for(int amount : amounts) {
+            journal.record(new JournalRecord(JournalRecordType.BID, amount, AUCTION, "default", BIDDER,
+                    null, amount * 100L, amount * 200L, 42L, 1));
+        }
+        journal.close();
+    }
+
+    private List<JournalRecord> replay(File file) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        JournalReader.replay(file, records::add);
+        return records;
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.virustotalop.obsidianauctions.test.price;
+
+import com.gmail.virustotalop.obsidianauctions.price.QuantileSketch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuantileSketchTest {
+
+    @Test
+    public void testEmpty() {
+        QuantileSketch sketch = new QuantileSketch(50);
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    }
+
+    @Test
+    public void testSingleValue() {
+        QuantileSketch sketch = new QuantileSketch(50);
+        sketch.add(42);
+        assertEquals(42D, sketch.quantile(0.5));
+    }
+
+    @Test
+    public void testQuantiles() {
+        QuantileSketch sketch = new QuantileSketch(50);
+        for(int i = 1; i <= 10000; i++) {
+            sketch.add(i);
+        }
+        assertEquals(10000, sketch.getCount());
+        assertEquals(5000, sketch.quantile(0.5), 50);
+        assertEquals(2500, sketch.quantile(0.25), 50);
+        assertEquals(9900, sketch.quantile(0.99), 10);
+        assertEquals(1D, sketch.quantile(0));
+        assertEquals(10000D, sketch.quantile(1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.virustotalop.obsidianauctions.test.state;
+
+import com.gmail.virustotalop.obsidianauctions.state.PersistenceService;
+import com.gmail.virustotalop.obsidianauctions.state.UUIDSetState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StateLogTest {
+
+    private static final Logger LOGGER = Logger.getLogger("StateLogTest");
+    private static final UUID FIRST = new UUID(0, 1);
+    private static final UUID SECOND = new UUID(0, 2);
+    private static final UUID THIRD = new UUID(0, 3);
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testReplay() {
+        this.writeAll();
+        UUIDSetState state = this.load();
+        assertEquals(3, state.getView().size());
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        this.writeAll();
+        File log = this.log();
+        try(RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        UUIDSetState state = this.load();
+        assertTrue(state.contains(FIRST));
+        assertTrue(state.contains(SECOND));
+        assertFalse(state.contains(THIRD));
+    }
+
+    @Test
+    public void testBadChecksum() throws IOException {
+        this.writeAll();
+        File log = this.log();
+        try(RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+        UUIDSetState state = this.load();
+        assertTrue(state.contains(SECOND));
+        assertFalse(state.contains(THIRD));
+    }
+
+    @Test
+    public void testFoldedLogIsSkipped() throws IOException {
+        PersistenceService persistence = new PersistenceService(0);
+        UUIDSetState state = this.create(persistence);
+        state.load();
+        state.add(FIRST);
+        persistence.close();
+        byte[] staleLog = Files.readAllBytes(this.log().toPath());
+
+        persistence = new PersistenceService(0);
+        state = this.create(persistence);
+        state.load();
+        state.remove(FIRST);
+        state.compact();
+        persistence.close();
+
+        // A log of an older generation, as left behind by a crash while switching snapshots
+        Files.write(this.log().toPath(), staleLog);
+        assertFalse(this.load().contains(FIRST));
+    }
+
+    private void writeAll() {
+        PersistenceService persistence = new PersistenceService(0);
+        UUIDSetState state = this.create(persistence);
+        state.load();
+        state.add(FIRST);
+        state.add(SECOND);
+        state.add(THIRD);
+        persistence.close();
+    }
+
+    private UUIDSetState load() {
+        PersistenceService persistence = new PersistenceService(0);
+        UUIDSetState state = this.create(persistence);
+        state.load();
+        persistence.close();
+        return state;
+    }
+
+    private UUIDSetState create(PersistenceService persistence) {
+        return new UUIDSetState(new File(this.folder, "players.dat"), LOGGER, 1000, persistence);
+    }
+
+    private File log() {
+        return new File(this.folder, "players.wal");
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.virustotalop.obsidianauctions.test.storage;
+
+import com.gmail.virustotalop.obsidianauctions.storage.FlatFilePlayerDataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlatFilePlayerDataStoreTest {
+
+    private static final Logger LOGGER = Logger.getLogger("FlatFilePlayerDataStoreTest");
+    private static final UUID PLAYER = new UUID(0, 1);
+    private static final UUID OTHER = new UUID(1L << 60, 2);
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testRoundTrip() {
+        FlatFilePlayerDataStore store = new FlatFilePlayerDataStore(this.folder, LOGGER, 0);
+        store.load(PLAYER);
+        store.putPreset(PLAYER, new String[]{"10", "5"});
+        store.setAuctionsDisabled(PLAYER, true);
+        store.close();
+
+        store = new FlatFilePlayerDataStore(this.folder, LOGGER, 0);
+        store.load(PLAYER);
+        assertEquals(Arrays.asList("10", "5"), Arrays.asList(store.getPreset(PLAYER)));
+        assertTrue(store.isAuctionsDisabled(PLAYER));
+        store.close();
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws IOException {
+        // A file where the folder of the record should go makes writing it fail
+        File blocker = new File(this.folder, PLAYER.toString().substring(0, 2));
+        assertTrue(blocker.createNewFile());
+
+        FlatFilePlayerDataStore store = new FlatFilePlayerDataStore(this.folder, LOGGER, 0);
+        store.load(PLAYER);
+        store.putPreset(PLAYER, new String[]{"10", "5"});
+        // Runs after the failed flush on the same thread
+        store.load(OTHER);
+        assertTrue(blocker.delete());
+        store.close();
+
+        store = new FlatFilePlayerDataStore(this.folder, LOGGER, 0);
+        store.load(PLAYER);
+        assertEquals(Arrays.asList("10", "5"), Arrays.asList(store.getPreset(PLAYER)));
+        store.close();
+    }
+}
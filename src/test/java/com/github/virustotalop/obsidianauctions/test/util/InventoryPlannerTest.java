@@ -0,0 +1,110 @@
+package com.github.virustotalop.obsidianauctions.test.util;
+
+import com.gmail.virustotalop.obsidianauctions.util.InventoryPlanner;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class InventoryPlannerTest {
+
+    @Test
+    public void testScan() {
+        ItemStack[] contents = this.contents();
+        InventoryPlanner planner = InventoryPlanner.scan(this.inventory(contents, 0), stack(Material.STONE, 1));
+        assertEquals(70, planner.getAmount());
+        // Two empty slots and what is left of the partial stacks
+        assertEquals(2 * 64 + 58, planner.getSpace());
+    }
+
+    @Test
+    public void testGive() {
+        ItemStack[] contents = this.contents();
+        InventoryPlanner planner = InventoryPlanner.scan(this.inventory(contents, 0), stack(Material.STONE, 1));
+        assertEquals(100, planner.give(100));
+        // Nothing is written before apply
+        assertNull(contents[1]);
+        planner.apply();
+        // Partial stacks are filled before the first empty slot is used
+        assertEquals(64, contents[0].getAmount());
+        assertEquals(42, contents[1].getAmount());
+        assertEquals(64, contents[2].getAmount());
+        assertEquals(Material.DIRT, contents[3].getType());
+        assertNull(contents[4]);
+        assertEquals(170, planner.getAmount());
+    }
+
+    @Test
+    public void testGiveMoreThanFits() {
+        ItemStack[] contents = this.contents();
+        InventoryPlanner planner = InventoryPlanner.scan(this.inventory(contents, 0), stack(Material.STONE, 1));
+        assertEquals(186, planner.give(500));
+        assertEquals(0, planner.getSpace());
+    }
+
+    @Test
+    public void testRemoveTakesHeldStackFirst() {
+        ItemStack[] contents = this.contents();
+        InventoryPlanner planner = InventoryPlanner.scan(this.inventory(contents, 2), stack(Material.STONE, 1));
+        assertEquals(10, planner.remove(10));
+        planner.apply();
+        assertEquals(60, contents[0].getAmount());
+        assertNull(contents[2]);
+        assertEquals(60, planner.getAmount());
+    }
+
+    @Test
+    public void testRemoveMoreThanHeld() {
+        ItemStack[] contents = this.contents();
+        InventoryPlanner planner = InventoryPlanner.scan(this.inventory(contents, 0), stack(Material.STONE, 1));
+        assertEquals(70, planner.remove(100));
+        planner.apply();
+        assertNull(contents[0]);
+        assertNull(contents[2]);
+        assertEquals(Material.DIRT, contents[3].getType());
+    }
+
+    /**
+     * 60 stone, empty, 10 stone, 5 dirt, empty.
+     */
+    private ItemStack[] contents() {
+        return new ItemStack[]{stack(Material.STONE, 60), null, stack(Material.STONE, 10), stack(Material.DIRT, 5), null};
+    }
+
+    private PlayerInventory inventory(ItemStack[] contents, int heldSlot) {
+        return (PlayerInventory) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[]{PlayerInventory.class},
+                (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "getStorageContents":
+                            return contents.clone();
+                        case "getHeldItemSlot":
+                            return heldSlot;
+                        case "setItem":
+                            contents[(Integer) args[0]] = (ItemStack) args[1];
+                            return null;
+                        case "clear":
+                            contents[(Integer) args[0]] = null;
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Items without meta, compared without asking the server for an item factory.
+     */
+    private static ItemStack stack(Material material, int amount) {
+        return new ItemStack(material, amount) {
+            @Override
+            public boolean isSimilar(ItemStack stack) {
+                return stack != null && stack.getType() == this.getType() && stack.getDurability() == this.getDurability();
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.virustotalop.obsidianauctions.test.util;
+
+import com.gmail.virustotalop.obsidianauctions.util.ItemFingerprint;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ItemFingerprintTest {
+
+    @Test
+    public void testEnchantOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("DAMAGE_ALL", 5);
+        first.put("DURABILITY", 3);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("DURABILITY", 3);
+        second.put("DAMAGE_ALL", 5);
+        assertEquals(ItemFingerprint.of(this.item(this.meta("enchants", first))),
+                ItemFingerprint.of(this.item(this.meta("enchants", second))));
+    }
+
+    @Test
+    public void testEnchantLevel() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("DAMAGE_ALL", 5);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("DAMAGE_ALL", 4);
+        assertTrue(ItemFingerprint.of(this.item(this.meta("enchants", first)))
+                != ItemFingerprint.of(this.item(this.meta("enchants", second))));
+    }
+
+    @Test
+    public void testListOrder() {
+        assertTrue(ItemFingerprint.of(this.item(this.meta("lore", Arrays.asList("a", "b"))))
+                != ItemFingerprint.of(this.item(this.meta("lore", Arrays.asList("b", "a")))));
+    }
+
+    @Test
+    public void testAmountIgnored() {
+        assertEquals(ItemFingerprint.of(new ItemStack(Material.STONE, 1)),
+                ItemFingerprint.of(new ItemStack(Material.STONE, 64)));
+    }
+
+    private Map<String, Object> meta(String key, Object value) {
+        Map<String, Object> serialized = new LinkedHashMap<>();
+        serialized.put("meta-type", "UNSPECIFIC");
+        serialized.put(key, value);
+        return serialized;
+    }
+
+    /**
+     * An item with the given serialized meta, without asking the server for an item factory.
+     */
+    private ItemStack item(Map<String, Object> serialized) {
+        ItemMeta meta = (ItemMeta) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[]{ItemMeta.class},
+                (proxy, method, args) -> {
+                    if(method.getName().equals("serialize")) {
+                        return serialized;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ItemStack(Material.DIAMOND_SWORD, 1) {
+            @Override
+            public boolean hasItemMeta() {
+                return true;
+            }
+
+            @Override
+            public ItemMeta getItemMeta() {
+                return meta;
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.virustotalop.obsidianauctions.test.util;
+
+import com.gmail.virustotalop.obsidianauctions.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoneyTest {
+
+    @BeforeEach
+    public void setup() {
+        Money.setDecimalPlaces(2);
+    }
+
+    @AfterEach
+    public void reset() {
+        Money.setDecimalPlaces(0);
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(500, Money.parse("5"));
+        assertEquals(550, Money.parse("5.5"));
+        assertEquals(505, Money.parse("5.05"));
+        assertEquals(5, Money.parse(".05"));
+        assertEquals(-1, Money.parse("5.055"));
+        assertEquals(-1, Money.parse("5."));
+        assertEquals(-1, Money.parse(""));
+        assertEquals(-1, Money.parse("-5"));
+        assertEquals(-1, Money.parse("5a"));
+        assertEquals(-1, Money.parse("12345678901234"));
+    }
+
+    @Test
+    public void testParseNoDecimals() {
+        Money.setDecimalPlaces(0);
+        assertEquals(5, Money.parse("5"));
+        assertEquals(-1, Money.parse("5.5"));
+    }
+
+    @Test
+    public void testAppendTo() {
+        assertEquals("5", Money.ofMinor(500).toString());
+        assertEquals("5.5", Money.ofMinor(550).toString());
+        assertEquals("5.05", Money.ofMinor(505).toString());
+        assertEquals("0.01", Money.ofMinor(1).toString());
+        assertEquals("-1.5", Money.ofMinor(-150).toString());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertEquals(10, Money.toMinor(0.1D));
+        assertEquals(0.1D, Money.toMajor(10));
+        assertEquals(Money.ofMinor(1999), Money.ofMajor(19.99D));
+    }
+
+    @Test
+    public void testPercent() {
+        assertEquals(Money.ofMinor(125), Money.ofMinor(2500).percent(5));
+        assertEquals(Money.ofMinor(33), Money.ofMinor(999).percent(3.3));
+        assertEquals(Money.ZERO, Money.ZERO.percent(50));
+    }
+}